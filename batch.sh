@@ -0,0 +1,3 @@
+#!/bin/sh
+
+java -cp ./bin/:./lib/cscl20110315.jar:./lib/pj20120620.jar edu.rit.cs4005730.dsgroup3.sim.BatchRunner "$@"
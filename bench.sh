@@ -0,0 +1,6 @@
+#!/bin/sh
+
+# builds the sources and the benchmarks into bin/bench and runs the benchmarks; arguments: [<name regex>] [<results>.csv|<results>.json]
+mkdir -p bin/bench
+javac $(find src/java src/bench -name '*.java') -cp ./lib/cscl20110315.jar:./lib/pj20120620.jar -d bin/bench || exit 1
+java -cp ./bin/bench:./lib/cscl20110315.jar:./lib/pj20120620.jar $BENCH_OPTS edu.rit.cs4005730.dsgroup3.bench.BenchmarkRunner "$@"
@@ -1,3 +1,3 @@
 #!/bin/sh
 
-javac src/java/edu/rit/cs4005730/dsgroup3/*.java src/java/edu/rit/cs4005730/dsgroup3/ui/*.java src/java/edu/rit/cs4005730/dsgroup3/util/*.java -cp ./bin/:./lib/cscl20110315.jar:./lib/pj20120620.jar  -d bin/
\ No newline at end of file
+javac src/java/edu/rit/cs4005730/dsgroup3/*.java src/java/edu/rit/cs4005730/dsgroup3/ui/*.java src/java/edu/rit/cs4005730/dsgroup3/util/*.java src/java/edu/rit/cs4005730/dsgroup3/sim/*.java src/java/edu/rit/cs4005730/dsgroup3/transport/*.java src/java/edu/rit/cs4005730/dsgroup3/picker/*.java src/java/edu/rit/cs4005730/dsgroup3/metrics/*.java src/java/edu/rit/cs4005730/dsgroup3/network/*.java -cp ./bin/:./lib/cscl20110315.jar:./lib/pj20120620.jar  -d bin/
\ No newline at end of file
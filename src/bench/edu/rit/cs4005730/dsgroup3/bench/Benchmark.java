@@ -0,0 +1,85 @@
+package edu.rit.cs4005730.dsgroup3.bench;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single measured operation, run by the {@link BenchmarkRunner}. Subclasses prepare their state in {@link #setUp()} and perform a batch of operations in
+ * {@link #run(int, int)}; the runner calls {@code run} repeatedly, from several threads at once if {@link #getThreads()} asks for it, and reports the
+ * throughput.
+ *
+ */
+public abstract class Benchmark {
+   private final String              name;
+   private final Map<String, String> params = new LinkedHashMap<String, String>();
+
+   protected Benchmark(final String name) {
+      this.name = name;
+   }
+
+   /**
+    * Records a parameter of this benchmark, reported with its results.
+    *
+    * @param key
+    *           the parameter name
+    * @param value
+    *           the parameter value
+    * @return this benchmark
+    */
+   protected Benchmark param(final String key, final Object value) {
+      this.params.put(key, String.valueOf(value));
+      return this;
+   }
+
+   public String getName() {
+      return this.name;
+   }
+
+   public Map<String, String> getParams() {
+      return this.params;
+   }
+
+   /**
+    * Returns the number of threads that run this benchmark at the same time.
+    *
+    * @return the thread count, 1 unless overridden
+    */
+   public int getThreads() {
+      return 1;
+   }
+
+   /**
+    * Prepares the state the operation runs on. Called once before the warmup.
+    *
+    * @throws Exception
+    */
+   public void setUp() throws Exception {
+      // nothing to prepare
+   }
+
+   /**
+    * Releases whatever {@link #setUp()} acquired. Called once after the last measurement.
+    *
+    * @throws Exception
+    */
+   public void tearDown() throws Exception {
+      // nothing to release
+   }
+
+   /**
+    * Performs the operation the given number of times.
+    *
+    * @param thread
+    *           the index of the calling thread, from 0 to {@link #getThreads()} - 1
+    * @param count
+    *           the number of operations to perform
+    * @return a value derived from the results, which the runner consumes so the work cannot be optimized away
+    * @throws Exception
+    */
+   public abstract long run(int thread, int count) throws Exception;
+
+   @Override
+   public String toString() {
+      return this.params.isEmpty() ? this.name : (this.name + this.params);
+   }
+}
@@ -0,0 +1,320 @@
+package edu.rit.cs4005730.dsgroup3.bench;
+
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.regex.Pattern;
+
+import edu.rit.cs4005730.dsgroup3.picker.PiecePicker;
+import edu.rit.cs4005730.dsgroup3.util.RemoteUtils;
+
+/**
+ * Runs the benchmarks of the hot paths of a node and reports their throughput. Every benchmark is warmed up for a number of iterations and then measured
+ * for a number of iterations of fixed wall time; the score is the mean number of operations per second over the measured iterations, with the error being
+ * the half-width of a 99.9% confidence interval, as JMH reports it. The iteration settings are read from system properties:
+ *
+ * <pre>
+ * bench.warmup     = 5     # warmup iterations
+ * bench.iterations = 10    # measured iterations
+ * bench.time       = 200   # milliseconds per iteration
+ * </pre>
+ *
+ * Results are printed as a table and, if a file is given, written as CSV or JSON with one record per benchmark and parameter set so builds can be compared.
+ *
+ */
+public class BenchmarkRunner {
+   public static final String    WARMUP      = "bench.warmup";
+   public static final String    ITERATIONS  = "bench.iterations";
+   public static final String    TIME        = "bench.time";
+
+   // operations per call to Benchmark.run between two clock reads
+   private static final int      BATCH       = 256;
+   // two-sided Student's t quantiles for 99.9% confidence, by degrees of freedom from 1
+   private static final double[] T_999       = { 636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587, 4.437, 4.318, 4.221, 4.140, 4.073,
+         4.015, 3.965, 3.922, 3.883, 3.850, 3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646 };
+   // consumes the results of the benchmarks so the JIT cannot drop the work
+   private static volatile long  sink;
+
+   /**
+    * Throughput of one benchmark.
+    */
+   public static class Result {
+      public final Benchmark benchmark;
+      // operations per second, summed over all threads
+      public final double    score;
+      public final double    scoreError;
+      public final double[]  iterations;
+
+      private Result(final Benchmark benchmark, final double[] iterations) {
+         this.benchmark = benchmark;
+         this.iterations = iterations;
+
+         double sum = 0;
+
+         for (final double value : iterations) {
+            sum += value;
+         }
+
+         this.score = sum / iterations.length;
+
+         if (iterations.length < 2) {
+            this.scoreError = Double.NaN;
+         } else {
+            double squares = 0;
+
+            for (final double value : iterations) {
+               squares += (value - this.score) * (value - this.score);
+            }
+
+            final int df = iterations.length - 1;
+            final double t = (df <= T_999.length) ? T_999[df - 1] : 3.291;
+            this.scoreError = (t * Math.sqrt(squares / df)) / Math.sqrt(iterations.length);
+         }
+      }
+
+      /**
+       * Returns the mean time of a single operation on one thread.
+       *
+       * @return nanoseconds per operation
+       */
+      public double getNanosPerOp() {
+         return (1e9 * this.benchmark.getThreads()) / this.score;
+      }
+   }
+
+   private final int  warmup;
+   private final int  measured;
+   // milliseconds per iteration
+   private final long time;
+
+   public BenchmarkRunner(final int warmup, final int measured, final long time) {
+      this.warmup = Math.max(0, warmup);
+      this.measured = Math.max(1, measured);
+      this.time = Math.max(1, time);
+   }
+
+   /**
+    * Returns every benchmark of the suite.
+    *
+    * @return the benchmarks, one per parameter set
+    */
+   public static List<Benchmark> getSuite() {
+      final List<Benchmark> suite = new ArrayList<Benchmark>();
+
+      for (final PiecePicker.Type type : PiecePicker.Type.values()) {
+         suite.add(new PickerBenchmark(type, 4000, 0.01));
+      }
+
+      for (final int threads : new int[] { 1, 4 }) {
+         suite.add(new TransferBenchmark(threads, 5));
+      }
+
+      for (final int blocks : new int[] { 400, 4000, 40000 }) {
+         suite.add(new ProgressBenchmark(blocks));
+      }
+
+      for (final MapChurnBenchmark.Impl impl : MapChurnBenchmark.Impl.values()) {
+         suite.add(new MapChurnBenchmark(impl, 64));
+      }
+
+      for (final FormatBenchmark.Kind kind : FormatBenchmark.Kind.values()) {
+         suite.add(new FormatBenchmark(kind));
+      }
+
+      return suite;
+   }
+
+   /**
+    * Warms up and measures a benchmark.
+    *
+    * @param benchmark
+    *           the benchmark to run
+    * @return its throughput
+    * @throws Exception
+    *            if the benchmark failed
+    */
+   public Result run(final Benchmark benchmark) throws Exception {
+      benchmark.setUp();
+
+      try {
+         for (int i = 0; i < this.warmup; i++) {
+            this.iterate(benchmark);
+         }
+
+         final double[] iterations = new double[this.measured];
+
+         for (int i = 0; i < this.measured; i++) {
+            iterations[i] = this.iterate(benchmark);
+         }
+
+         return new Result(benchmark, iterations);
+      } finally {
+         benchmark.tearDown();
+      }
+   }
+
+   /**
+    * Runs one iteration on all threads of the benchmark at once.
+    *
+    * @return operations per second over all threads
+    */
+   private double iterate(final Benchmark benchmark) throws Exception {
+      final int threads = benchmark.getThreads();
+      final long[] counts = new long[threads];
+      final long[] elapsed = new long[threads];
+      final Exception[] failures = new Exception[threads];
+      final CyclicBarrier start = new CyclicBarrier(threads);
+      final Thread[] workers = new Thread[threads];
+
+      for (int t = 0; t < threads; t++) {
+         final int thread = t;
+
+         workers[t] = new Thread("Benchmark-" + t) {
+            @Override
+            public void run() {
+               try {
+                  start.await();
+
+                  final long begin = System.nanoTime();
+                  final long deadline = begin + (BenchmarkRunner.this.time * RemoteUtils.MILLISECOND_IN_NANOSECONDS);
+                  long count = 0;
+                  long now;
+                  long result = 0;
+
+                  do {
+                     result += benchmark.run(thread, BATCH);
+                     count += BATCH;
+                     now = System.nanoTime();
+                  } while (now < deadline);
+
+                  sink += result;
+                  counts[thread] = count;
+                  elapsed[thread] = now - begin;
+               } catch (final Exception e) {
+                  failures[thread] = e;
+               }
+            }
+         };
+
+         workers[t].start();
+      }
+
+      double throughput = 0;
+
+      for (int t = 0; t < threads; t++) {
+         workers[t].join();
+
+         if (failures[t] != null) {
+            throw failures[t];
+         }
+
+         throughput += (counts[t] * 1e9) / elapsed[t];
+      }
+
+      return throughput;
+   }
+
+   /**
+    * Writes the results as CSV with a header row.
+    *
+    * @param results
+    *           the results to write
+    * @param out
+    *           the writer to write to
+    */
+   public static void writeCsv(final List<Result> results, final PrintWriter out) {
+      out.println("benchmark,params,threads,score,scoreError,unit,nsPerOp");
+
+      for (final Result result : results) {
+         final StringBuilder params = new StringBuilder();
+
+         for (final Map.Entry<String, String> param : result.benchmark.getParams().entrySet()) {
+            params.append((params.length() == 0) ? "" : ";").append(param.getKey()).append('=').append(param.getValue());
+         }
+
+         out.println(result.benchmark.getName() + "," + params + "," + result.benchmark.getThreads() + "," + result.score + "," + result.scoreError
+               + ",ops/s," + result.getNanosPerOp());
+      }
+
+      out.flush();
+   }
+
+   /**
+    * Writes the results as a JSON array in the layout of JMH's JSON output, so the usual tools for comparing JMH runs can read it.
+    *
+    * @param results
+    *           the results to write
+    * @param out
+    *           the writer to write to
+    */
+   public static void writeJson(final List<Result> results, final PrintWriter out) {
+      out.println("[");
+
+      for (int i = 0; i < results.size(); i++) {
+         final Result result = results.get(i);
+         final StringBuilder line = new StringBuilder("  {\"benchmark\": \"").append(result.benchmark.getName()).append("\", \"mode\": \"thrpt\", \"threads\": ")
+               .append(result.benchmark.getThreads()).append(", \"params\": {");
+         boolean isFirst = true;
+
+         for (final Map.Entry<String, String> param : result.benchmark.getParams().entrySet()) {
+            line.append(isFirst ? "" : ", ").append('"').append(param.getKey()).append("\": \"").append(param.getValue()).append('"');
+            isFirst = false;
+         }
+
+         line.append("}, \"primaryMetric\": {\"score\": ").append(result.score).append(", \"scoreError\": ")
+               .append(Double.isNaN(result.scoreError) ? "null" : Double.toString(result.scoreError)).append(", \"scoreUnit\": \"ops/s\", \"rawData\": [[");
+
+         for (int j = 0; j < result.iterations.length; j++) {
+            line.append((j == 0) ? "" : ", ").append(result.iterations[j]);
+         }
+
+         out.println(line.append("]]}}").append((i < (results.size() - 1)) ? "," : ""));
+      }
+
+      out.println("]");
+      out.flush();
+   }
+
+   public static void main(final String[] args) throws Exception {
+      if (args.length > 2) {
+         throw new IllegalArgumentException("Usage: java edu.rit.cs4005730.dsgroup3.bench.BenchmarkRunner [<name regex>] [<results>.csv|<results>.json]");
+      }
+
+      final Pattern filter = Pattern.compile((args.length > 0) ? args[0] : ".*");
+      final String output = (args.length > 1) ? args[1] : null;
+      final BenchmarkRunner runner = new BenchmarkRunner(Integer.getInteger(WARMUP, 5), Integer.getInteger(ITERATIONS, 10), Long.getLong(TIME, 200));
+      final List<Result> results = new ArrayList<Result>();
+
+      for (final Benchmark benchmark : getSuite()) {
+         if (!filter.matcher(benchmark.getName()).find()) {
+            continue;
+         }
+
+         final Result result = runner.run(benchmark);
+         results.add(result);
+
+         System.out.println(String.format("%-60s %16.1f +- %12.1f ops/s %12.1f ns/op", benchmark, result.score, result.scoreError, result.getNanosPerOp()));
+      }
+
+      if (output != null) {
+         final PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(output), "UTF-8"));
+
+         try {
+            if (output.toLowerCase().endsWith(".json")) {
+               writeJson(results, out);
+            } else {
+               writeCsv(results, out);
+            }
+         } finally {
+            out.close();
+         }
+      }
+
+      // the node manager's remote event generator keeps non-daemon threads around
+      System.exit(0);
+   }
+}
@@ -0,0 +1,43 @@
+package edu.rit.cs4005730.dsgroup3.bench;
+
+import java.text.NumberFormat;
+
+import edu.rit.cs4005730.dsgroup3.ui.FileSizeFormat;
+import edu.rit.cs4005730.dsgroup3.ui.TransferSpeedFormat;
+
+/**
+ * Formatting of the rate and size labels drawn for every visible node on every repaint, over values from bytes to gigabytes.
+ *
+ */
+public class FormatBenchmark extends Benchmark {
+   public enum Kind {
+      SPEED, SIZE;
+   }
+
+   private static final double[] VALUES = { 512, 3 * 1024, 256 * 1024, 1.5 * 1024 * 1024, 15 * 1024 * 1024, 100 * 1024 * 1024, 3.2 * 1024 * 1024 * 1024 };
+
+   private final Kind             kind;
+   private NumberFormat           format;
+
+   public FormatBenchmark(final Kind kind) {
+      super("format");
+      this.kind = kind;
+      this.param("kind", kind);
+   }
+
+   @Override
+   public void setUp() {
+      this.format = (this.kind == Kind.SPEED) ? new TransferSpeedFormat() : new FileSizeFormat();
+   }
+
+   @Override
+   public long run(final int thread, final int count) {
+      long sum = 0;
+
+      for (int i = 0; i < count; i++) {
+         sum += this.format.format(VALUES[i % VALUES.length]).length();
+      }
+
+      return sum;
+   }
+}
@@ -0,0 +1,84 @@
+package edu.rit.cs4005730.dsgroup3.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.rit.cs4005730.dsgroup3.util.LongDoubleHashMap;
+import edu.rit.cs4005730.dsgroup3.util.Pair;
+
+/**
+ * Churn of the per-upload rate table of a node: every operation starts one upload keyed by the downloading node and block, updates the rate of another and
+ * ends the oldest one, keeping a fixed number of uploads open. Compares the primitive {@link LongDoubleHashMap} the nodes use with the
+ * {@link Pair}-keyed {@link HashMap} it replaced.
+ *
+ */
+public class MapChurnBenchmark extends Benchmark {
+   public enum Impl {
+      PRIMITIVE, PAIR;
+   }
+
+   private final Impl                            impl;
+   private final int                             open;
+   private LongDoubleHashMap                     primitive;
+   private Map<Pair<Integer, Integer>, Double>   boxed;
+   private long                                  next;
+
+   public MapChurnBenchmark(final Impl impl, final int open) {
+      super("mapChurn");
+      this.impl = impl;
+      this.open = open;
+      this.param("impl", impl).param("open", open);
+   }
+
+   @Override
+   public void setUp() {
+      this.primitive = new LongDoubleHashMap();
+      this.boxed = new HashMap<Pair<Integer, Integer>, Double>();
+
+      for (this.next = 0; this.next < this.open; this.next++) {
+         this.put(this.next);
+      }
+   }
+
+   private static int getNodeId(final long n) {
+      return (int) (n % 97);
+   }
+
+   private static int getIndex(final long n) {
+      return (int) (n % 400);
+   }
+
+   private void put(final long n) {
+      if (this.impl == Impl.PRIMITIVE) {
+         this.primitive.put(((long) getNodeId(n) << 32) | getIndex(n), n);
+      } else {
+         this.boxed.put(Pair.getInstance(getNodeId(n), getIndex(n)), (double) n);
+      }
+   }
+
+   @Override
+   public long run(final int thread, final int count) {
+      double sum = 0;
+
+      for (int i = 0; i < count; i++) {
+         final long n = this.next++;
+         final long update = n - (this.open / 2);
+         final long oldest = n - this.open;
+         this.put(n);
+
+         if (this.impl == Impl.PRIMITIVE) {
+            sum += this.primitive.addTo(((long) getNodeId(update) << 32) | getIndex(update), 1.0);
+            this.primitive.remove(((long) getNodeId(oldest) << 32) | getIndex(oldest));
+         } else {
+            final Pair<Integer, Integer> key = Pair.getInstance(getNodeId(update), getIndex(update));
+            final Double value = this.boxed.get(key);
+            final double rate = ((value == null) ? 0 : value) + 1.0;
+            this.boxed.put(key, rate);
+            sum += rate;
+            this.boxed.remove(Pair.getInstance(getNodeId(oldest), getIndex(oldest)));
+         }
+      }
+
+      return (long) sum;
+   }
+}
@@ -0,0 +1,64 @@
+package edu.rit.cs4005730.dsgroup3.bench;
+
+import java.util.Random;
+
+import edu.rit.cs4005730.dsgroup3.BlockState;
+import edu.rit.cs4005730.dsgroup3.picker.PiecePicker;
+
+/**
+ * Block selection near the end of a download, where a node wants only a few blocks and most peers it asks own none of them. Each operation picks a block
+ * from a peer that owns every other block, reserves it and releases it again, leaving the picker as it was.
+ *
+ */
+public class PickerBenchmark extends Benchmark {
+   private final PiecePicker.Type type;
+   private final int              blockCount;
+   // fraction of the blocks still wanted
+   private final double           remaining;
+   private PiecePicker            picker;
+   private long[]                 available;
+
+   public PickerBenchmark(final PiecePicker.Type type, final int blockCount, final double remaining) {
+      super("picker");
+      this.type = type;
+      this.blockCount = blockCount;
+      this.remaining = remaining;
+      this.param("type", type).param("blocks", blockCount).param("remaining", remaining);
+   }
+
+   @Override
+   public void setUp() {
+      final Random random = new Random(42);
+      this.picker = this.type.create(this.blockCount, random);
+      this.available = new long[BlockState.getWordCount(this.blockCount)];
+
+      for (int i = 0; i < this.blockCount; i++) {
+         if ((i % 2) == 0) {
+            this.available[i >>> 6] |= 1L << i;
+            this.picker.addAvailability(i);
+         }
+
+         if (random.nextDouble() >= this.remaining) {
+            this.picker.completed(i);
+         }
+      }
+   }
+
+   @Override
+   public long run(final int thread, final int count) {
+      long sum = 0;
+
+      for (int i = 0; i < count; i++) {
+         final int index = this.picker.pick(this.available);
+
+         if (index >= 0) {
+            this.picker.reserved(index);
+            this.picker.released(index);
+         }
+
+         sum += index;
+      }
+
+      return sum;
+   }
+}
@@ -0,0 +1,46 @@
+package edu.rit.cs4005730.dsgroup3.bench;
+
+import edu.rit.cs4005730.dsgroup3.BlockState;
+
+/**
+ * Reading the progress of a half finished download, which the node panels and statistics do for every node on every refresh. Runs on the
+ * {@link BlockState} that {@link edu.rit.cs4005730.dsgroup3.Node#getProgress()} reads.
+ *
+ */
+public class ProgressBenchmark extends Benchmark {
+   private final int  blockCount;
+   private BlockState blocks;
+
+   public ProgressBenchmark(final int blockCount) {
+      super("getProgress");
+      this.blockCount = blockCount;
+      this.param("blocks", blockCount);
+   }
+
+   @Override
+   public void setUp() {
+      this.blocks = new BlockState(this.blockCount, false);
+
+      // a quarter owned, a quarter in flight, the rest missing
+      for (int i = 0; i < (this.blockCount / 2); i++) {
+         this.blocks.reserve(i);
+
+         if ((i % 2) == 0) {
+            this.blocks.complete(i);
+         } else {
+            this.blocks.setProgress(i, 0.5);
+         }
+      }
+   }
+
+   @Override
+   public long run(final int thread, final int count) {
+      double sum = 0;
+
+      for (int i = 0; i < count; i++) {
+         sum += this.blocks.getProgress();
+      }
+
+      return (long) sum;
+   }
+}
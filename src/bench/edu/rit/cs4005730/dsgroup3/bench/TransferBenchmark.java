@@ -0,0 +1,70 @@
+package edu.rit.cs4005730.dsgroup3.bench;
+
+import edu.rit.cs4005730.dsgroup3.Node;
+import edu.rit.cs4005730.dsgroup3.NodeEventBus;
+import edu.rit.cs4005730.dsgroup3.NodeManager;
+import edu.rit.cs4005730.dsgroup3.SwarmConfig;
+import edu.rit.cs4005730.dsgroup3.sim.EventScheduler;
+import edu.rit.cs4005730.dsgroup3.transport.LocalTransport;
+
+/**
+ * The upload side of a block transfer: a batch is requested from a seed and finalized again, by several downloaders at once so the seed's upload share is
+ * contended. The downloaders are not known to the seed, which skips the rate notifications and keeps the measurement on the seed's own bookkeeping.
+ *
+ */
+public class TransferBenchmark extends Benchmark {
+   private final int          threads;
+   private final int          pipelineDepth;
+   private Node               seed;
+   private EventScheduler     scheduler;
+
+   public TransferBenchmark(final int threads, final int pipelineDepth) {
+      super("requestFinalize");
+      this.threads = threads;
+      this.pipelineDepth = pipelineDepth;
+      this.param("threads", threads).param("pipelineDepth", pipelineDepth);
+   }
+
+   @Override
+   public int getThreads() {
+      return this.threads;
+   }
+
+   @Override
+   public void setUp() throws Exception {
+      final SwarmConfig config = SwarmConfig.DEFAULT;
+      final LocalTransport transport = new LocalTransport();
+      new NodeManager(transport, config);
+
+      // never run; it only holds the rechoke round the first request schedules
+      this.scheduler = new EventScheduler();
+      this.seed = new Node("seed", config.uploadMax, config.downloadMax, true, config, transport, this.scheduler,
+            new NodeEventBus(this.scheduler, config.eventInterval));
+   }
+
+   @Override
+   public void tearDown() throws Exception {
+      this.seed.dispose();
+      this.scheduler.shutdown();
+   }
+
+   @Override
+   public long run(final int thread, final int count) throws Exception {
+      // ids 1 to threads fit in the unchoke slots the seed hands out before its first rechoke
+      final int nodeId = thread + 1;
+      final int blockCount = SwarmConfig.DEFAULT.blockCount;
+      final int[] indices = new int[this.pipelineDepth];
+      long sum = 0;
+
+      for (int i = 0; i < count; i++) {
+         for (int j = 0; j < indices.length; j++) {
+            indices[j] = ((i * indices.length) + j) % blockCount;
+         }
+
+         sum += (long) this.seed.requestBlocks(nodeId, indices, SwarmConfig.DEFAULT.downloadMax);
+         this.seed.finalizeBlocks(nodeId, indices);
+      }
+
+      return sum;
+   }
+}
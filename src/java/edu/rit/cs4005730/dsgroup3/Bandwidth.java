@@ -0,0 +1,111 @@
+package edu.rit.cs4005730.dsgroup3;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Upload or download capacity of a single {@link Node}. The unused part is kept as fixed-point bytes per second in an {@link AtomicLong}, so acquiring and
+ * releasing are compare-and-set loops that never box and never wait on a monitor, and the available rate never drops below 0 however many threads acquire
+ * at once. Rates passed through {@link #round(double)} first are accounted exactly, so acquiring and releasing them any number of times does not drift.
+ *
+ */
+public class Bandwidth {
+   // fixed-point scale; rates are stored in 1/1024 bytes per second
+   private static final int  SHIFT = 10;
+   private static final long UNIT  = 1L << SHIFT;
+
+   private final long        capacity;
+   private final AtomicLong  available;
+
+   /**
+    * Creates a bandwidth account with everything available.
+    *
+    * @param capacity
+    *           the maximum rate in bytes per second
+    */
+   public Bandwidth(final double capacity) {
+      this.capacity = toFixed(capacity);
+      this.available = new AtomicLong(this.capacity);
+   }
+
+   private static long toFixed(final double rate) {
+      return (long) (rate * UNIT);
+   }
+
+   private static double toRate(final long fixed) {
+      return fixed / (double) UNIT;
+   }
+
+   /**
+    * Rounds a rate down to the resolution it is accounted at.
+    *
+    * @param rate
+    *           the rate in bytes per second
+    * @return the largest accountable rate not above the given one
+    */
+   public static double round(final double rate) {
+      return toRate(toFixed(rate));
+   }
+
+   /**
+    * Marks as much of the given rate as used as is available.
+    *
+    * @param amount
+    *           the rate wanted in bytes per second
+    * @return the rate acquired in bytes per second, at most the given one; 0 if nothing is available
+    */
+   public double tryAcquire(final double amount) {
+      final long wanted = toFixed(amount);
+
+      while (true) {
+         final long current = this.available.get();
+         final long taken = Math.min(wanted, current);
+
+         if (taken <= 0) {
+            return 0;
+         }
+
+         if (this.available.compareAndSet(current, current - taken)) {
+            return toRate(taken);
+         }
+      }
+   }
+
+   /**
+    * Returns a previously acquired rate.
+    *
+    * @param amount
+    *           the rate in bytes per second returned by {@link #tryAcquire(double)}
+    */
+   public void release(final double amount) {
+      if (amount > 0) {
+         this.available.addAndGet(toFixed(amount));
+      }
+   }
+
+   /**
+    * Returns the rate in bytes per second that is not used.
+    *
+    * @return the available rate
+    */
+   public double getAvailable() {
+      return toRate(this.available.get());
+   }
+
+   /**
+    * Returns the rate in bytes per second that is used.
+    *
+    * @return the used rate
+    */
+   public double getUsed() {
+      return toRate(this.capacity - this.available.get());
+   }
+
+   /**
+    * Returns the maximum rate in bytes per second.
+    *
+    * @return the capacity
+    */
+   public double getCapacity() {
+      return toRate(this.capacity);
+   }
+}
@@ -0,0 +1,337 @@
+package edu.rit.cs4005730.dsgroup3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Completion state of every block of the downloadable file for a single {@link Node}. Ownership is kept in a {@code long[]} bitfield and the progress of
+ * blocks that are being transferred in a primitive {@code double[]}, so lookups never box and a whole bitfield can be handed to another node cheaply.
+ *
+ * Progress values follow {@link NodeRef#getBlockCompletion(int)}: {@link #MISSING} for blocks that are not being downloaded, {@link #RESERVED} for blocks that
+ * have been reserved with a peer but not started yet, and a value between 0 and 1 otherwise.
+ *
+ * The sum of all completion values is kept up to date on every change as a fixed-point {@link AtomicLong}, so the progress of the whole file and the seed
+ * check cost O(1) and can be read without taking the lock, however many blocks the file has.
+ *
+ * Every change of a block's {@link NodeStatus#quantize(double) quantized} state bumps a version number and is written to a ring buffer of recent changes,
+ * so {@link #getBlocks(long)} can hand out only what changed since a version the caller already has.
+ *
+ */
+public class BlockState {
+   public static final double MISSING  = -1.0;
+   public static final double RESERVED = -0.5;
+   // fixed-point scale of the progress sum; one owned block counts as UNIT
+   private static final long  UNIT     = 1L << 20;
+   // smallest number of changes kept for delta snapshots; grows with the block count
+   private static final int   MIN_LOG  = 1024;
+
+   private final int          blockCount;
+   private final long[]       owned;
+   private final double[]     progress;
+   // number of transfers currently reserved for each block; more than one only in endgame mode
+   private final int[]        pending;
+   private final AtomicLong   progressSum;
+   // written only while holding the lock
+   private volatile int       ownedCount;
+   private final byte[]       quantized;
+   // ring buffer of the indices of the last changes; the change to version v is at v & logMask
+   private final int[]        changeLog;
+   private final int          logMask;
+   private long               version  = 0;
+
+   /**
+    * Creates the block state for a file split into the given number of blocks.
+    *
+    * @param blockCount
+    *           the number of blocks
+    * @param isComplete
+    *           true if every block is already owned (a seed)
+    */
+   public BlockState(final int blockCount, final boolean isComplete) {
+      this.blockCount = blockCount;
+      this.owned = new long[getWordCount(blockCount)];
+      this.progress = new double[blockCount];
+      this.pending = new int[blockCount];
+
+      for (int i = 0; i < blockCount; i++) {
+         this.progress[i] = isComplete ? 1.0 : MISSING;
+
+         if (isComplete) {
+            this.owned[i >> 6] |= 1L << i;
+         }
+      }
+
+      this.ownedCount = isComplete ? blockCount : 0;
+      this.progressSum = new AtomicLong(isComplete ? (blockCount * UNIT) : 0);
+
+      this.quantized = new byte[blockCount];
+      Arrays.fill(this.quantized, isComplete ? NodeStatus.OWNED : NodeStatus.MISSING);
+
+      int logSize = MIN_LOG;
+
+      while (logSize < blockCount) {
+         logSize <<= 1;
+      }
+
+      this.changeLog = new int[logSize];
+      this.logMask = logSize - 1;
+   }
+   
+   private static long toFixed(final double value) {
+      // MISSING and RESERVED add nothing to the progress
+      return (value <= 0) ? 0 : (long) (value * UNIT);
+   }
+   
+   /**
+    * Changes the completion value of a block and the progress sum with it. Must hold the lock.
+    */
+   private void set(final int index, final double value) {
+      this.progressSum.addAndGet(toFixed(value) - toFixed(this.progress[index]));
+      this.progress[index] = value;
+
+      final byte state = NodeStatus.quantize(value);
+
+      if (state != this.quantized[index]) {
+         this.quantized[index] = state;
+         this.changeLog[(int) (++this.version & this.logMask)] = index;
+      }
+   }
+
+   /**
+    * Returns the number of {@code long} words needed to hold a bitfield for the given number of blocks.
+    *
+    * @param blockCount
+    *           the number of blocks
+    * @return the length of the bitfield array
+    */
+   public static int getWordCount(final int blockCount) {
+      return (blockCount + 63) >> 6;
+   }
+
+   /**
+    * Returns true if the given bitfield has the given block set.
+    *
+    * @param bitfield
+    *           the bitfield to test
+    * @param index
+    *           the block index
+    * @return true if the block is set
+    */
+   public static boolean isSet(final long[] bitfield, final int index) {
+      return (bitfield[index >> 6] & (1L << index)) != 0;
+   }
+
+   public int getBlockCount() {
+      return this.blockCount;
+   }
+
+   public int getOwnedCount() {
+      return this.ownedCount;
+   }
+
+   public boolean isComplete() {
+      return this.ownedCount == this.blockCount;
+   }
+
+   /**
+    * Returns true if the given block has been completely downloaded.
+    *
+    * @param index
+    *           the block index
+    * @return true if the block is owned
+    */
+   public synchronized boolean has(final int index) {
+      return isSet(this.owned, index);
+   }
+
+   /**
+    * Returns the completion value of the given block.
+    *
+    * @param index
+    *           the block index
+    * @return {@link #MISSING}, {@link #RESERVED} or the completion between 0 and 1
+    */
+   public synchronized double get(final int index) {
+      return this.progress[index];
+   }
+
+   /**
+    * Returns true if the given block is neither owned nor reserved for a transfer, i.e. if it is still to be requested.
+    *
+    * @param index
+    *           the block index
+    * @return true if the block is wanted
+    */
+   public synchronized boolean isWanted(final int index) {
+      return (this.pending[index] == 0) && !isSet(this.owned, index);
+   }
+
+   /**
+    * Returns the number of wanted blocks among the blocks set in the given bitfield, as defined by {@link #isWanted(int)}.
+    *
+    * @param bitfield
+    *           the bitfield of the blocks owned by a peer
+    * @return the number of blocks the peer could serve
+    */
+   public synchronized int countWanted(final long[] bitfield) {
+      int count = 0;
+
+      for (int word = 0; word < this.owned.length; word++) {
+         long bits = bitfield[word] & ~this.owned[word];
+
+         while (bits != 0) {
+            final int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+
+            if (this.pending[index] == 0) {
+               count++;
+            }
+         }
+      }
+
+      return count;
+   }
+
+   /**
+    * Marks a block as reserved for a new transfer. The completion value is only changed if no other transfer of the block is running.
+    *
+    * @param index
+    *           the block index
+    * @return true if the block was wanted until this call
+    */
+   public synchronized boolean reserve(final int index) {
+      if ((this.pending[index]++ == 0) && !isSet(this.owned, index)) {
+         this.set(index, RESERVED);
+         return true;
+      }
+
+      return false;
+   }
+
+   /**
+    * Records the progress of a running transfer. Values lower than the current one are ignored so duplicate transfers of the same block cannot move the
+    * progress backwards.
+    *
+    * @param index
+    *           the block index
+    * @param value
+    *           the completion between 0 and 1
+    */
+   public synchronized void setProgress(final int index, final double value) {
+      if (!isSet(this.owned, index) && (value > this.progress[index]) && (value < 1.0)) {
+         this.set(index, value);
+      }
+   }
+
+   /**
+    * Marks a block as owned.
+    *
+    * @param index
+    *           the block index
+    * @return true if the block was not owned before this call
+    */
+   public synchronized boolean complete(final int index) {
+      if (isSet(this.owned, index)) {
+         return false;
+      }
+
+      this.owned[index >> 6] |= 1L << index;
+      this.set(index, 1.0);
+      this.ownedCount++;
+      return true;
+   }
+
+   /**
+    * Ends one transfer of a block. If it was the last transfer and the block was not completed, the block becomes missing again.
+    *
+    * @param index
+    *           the block index
+    * @return true if the block is missing again and should be requested anew
+    */
+   public synchronized boolean release(final int index) {
+      if (this.pending[index] > 0) {
+         this.pending[index]--;
+      }
+
+      if ((this.pending[index] == 0) && !isSet(this.owned, index)) {
+         this.set(index, MISSING);
+         return true;
+      }
+
+      return false;
+   }
+
+   /**
+    * Returns a copy of the ownership bitfield.
+    *
+    * @return the bitfield with one bit per owned block
+    */
+   public synchronized long[] getBitfield() {
+      return this.owned.clone();
+   }
+
+   /**
+    * Returns the completion values of all blocks that are not {@link #MISSING}.
+    *
+    * @return the completion values of all started blocks
+    */
+   public synchronized Double[] getStatus() {
+      final List<Double> values = new ArrayList<Double>();
+
+      for (int i = 0; i < this.blockCount; i++) {
+         if (this.progress[i] != MISSING) {
+            values.add(this.progress[i]);
+         }
+      }
+
+      return values.toArray(new Double[values.size()]);
+   }
+
+   public synchronized long getVersion() {
+      return this.version;
+   }
+
+   /**
+    * Returns the quantized block states that changed since the given version, or all of them if the caller has none or its version is too old for the change
+    * log.
+    *
+    * @param sinceVersion
+    *           the version of the caller's last snapshot, or -1 for a full snapshot
+    * @return the block states and the version they bring the caller up to
+    */
+   public synchronized NodeStatus.Blocks getBlocks(final long sinceVersion) {
+      if ((sinceVersion < 0) || (sinceVersion > this.version) || ((this.version - sinceVersion) > this.changeLog.length)) {
+         return new NodeStatus.Blocks(this.version, this.quantized.clone());
+      }
+
+      // a block may have changed several times; send it once with its current state
+      final BitSet changed = new BitSet(this.blockCount);
+
+      for (long v = sinceVersion + 1; v <= this.version; v++) {
+         changed.set(this.changeLog[(int) (v & this.logMask)]);
+      }
+
+      final int[] indices = new int[changed.cardinality()];
+      final byte[] values = new byte[indices.length];
+      int count = 0;
+
+      for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+         indices[count] = i;
+         values[count++] = this.quantized[i];
+      }
+
+      return new NodeStatus.Blocks(this.version, indices, values);
+   }
+
+   /**
+    * Returns the completion of the whole file as a value between 0 and 1.
+    *
+    * @return the download progress
+    */
+   public double getProgress() {
+      return this.progressSum.get() / ((double) UNIT * this.blockCount);
+   }
+}
@@ -0,0 +1,215 @@
+package edu.rit.cs4005730.dsgroup3;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import edu.rit.cs4005730.dsgroup3.util.LongDoubleHashMap;
+
+/**
+ * Tit-for-tat upload policy of a single {@link Node}. Only unchoked peers may start downloads from the node. Every {@link #CHOKE_INTERVAL} the node calls
+ * {@link #rechoke(boolean)}. This unchokes the interested peers that sent this node the most bytes during the last interval, plus one optimistic slot that
+ * goes to a random other peer and rotates every {@link #OPTIMISTIC_ROUNDS} rounds, so newcomers get a chance to reciprocate. A seed has nothing to
+ * reciprocate, so it picks its regular slots at random every round.
+ *
+ * Choking only refuses new requests; batches that are already running are allowed to finish. A refused peer does not ask again until it is told it was
+ * unchoked, so {@link #rechoke(boolean)} returns the peers it newly unchoked. Peers are identified by the dense ids handed out by the
+ * {@link NodeManager}, so the per-request bookkeeping is done on bit sets and a primitive map.
+ *
+ */
+public class ChokeManager {
+   // simulated milliseconds between two rechoke rounds, the same as BitTorrent
+   public static final long          CHOKE_INTERVAL    = 10 * 1000;
+   // number of rechoke rounds an optimistic unchoke is kept
+   public static final int           OPTIMISTIC_ROUNDS = 3;
+
+   private final int                 slots;
+   private final Random              random;
+   private final LongDoubleHashMap   received          = new LongDoubleHashMap();
+   private final BitSet              interested        = new BitSet();
+   private final BitSet              unchoked          = new BitSet();
+   private int                       optimistic        = -1;
+   private int                       round             = 0;
+
+   /**
+    * Creates a choke manager that starts with every slot free.
+    *
+    * @param slots
+    *           the number of peers unchoked for their upload rate, not counting the optimistic slot
+    * @param random
+    *           the random source used to break ties and choose the optimistic unchoke
+    */
+   public ChokeManager(final int slots, final Random random) {
+      this.slots = Math.max(1, slots);
+      this.random = random;
+   }
+
+   /**
+    * Records that the given peer wants to download from this node and returns whether it may. Until the first round fills them, free slots are handed out
+    * to whoever asks first.
+    *
+    * @param id
+    *           the id of the requesting peer
+    * @return true if the peer is unchoked
+    */
+   public synchronized boolean isUnchoked(final int id) {
+      this.interested.set(id);
+
+      if (this.unchoked.get(id)) {
+         return true;
+      }
+
+      if (this.unchoked.cardinality() < (this.slots + 1)) {
+         this.unchoked.set(id);
+         return true;
+      }
+
+      return false;
+   }
+
+   /**
+    * Returns true if a request of the given peer would be let in now, like {@link #isUnchoked(int)} but without recording the peer as interested or handing
+    * it a free slot.
+    *
+    * @param id
+    *           the id of the peer
+    * @return true if the peer is unchoked or a slot is free
+    */
+   public synchronized boolean wouldUnchoke(final int id) {
+      return this.unchoked.get(id) || (this.unchoked.cardinality() < (this.slots + 1));
+   }
+
+   /**
+    * Counts bytes downloaded from the given peer towards its rank in the next round.
+    *
+    * @param id
+    *           the id of the uploading peer
+    * @param bytes
+    *           the number of bytes received
+    */
+   public synchronized void received(final int id, final double bytes) {
+      this.received.addTo(id, bytes);
+   }
+
+   /**
+    * Forgets a peer that left or no longer needs anything from this node. If the peer was unchoked, its slot goes to a random choked peer that is waiting,
+    * so the slot does not stay empty until the next round.
+    *
+    * @param id
+    *           the id of the peer
+    * @return the id of the peer unchoked into the freed slot, or -1 if none was
+    */
+   public synchronized int remove(final int id) {
+      this.interested.clear(id);
+      this.received.remove(id);
+
+      if (id == this.optimistic) {
+         this.optimistic = -1;
+      }
+
+      if (!this.unchoked.get(id)) {
+         return -1;
+      }
+
+      this.unchoked.clear(id);
+
+      final BitSet waiting = (BitSet) this.interested.clone();
+      waiting.andNot(this.unchoked);
+
+      final int count = waiting.cardinality();
+
+      if (count == 0) {
+         return -1;
+      }
+
+      int next = waiting.nextSetBit(0);
+
+      for (int skip = this.random.nextInt(count); skip > 0; skip--) {
+         next = waiting.nextSetBit(next + 1);
+      }
+
+      this.unchoked.set(next);
+      return next;
+   }
+
+   /**
+    * Returns true if any peer still wants to download from this node, in which case further rounds are needed.
+    *
+    * @return true if there are interested peers
+    */
+   public synchronized boolean hasInterest() {
+      return !this.interested.isEmpty();
+   }
+
+   /**
+    * Chooses the peers unchoked for the next interval and starts counting received bytes from zero.
+    *
+    * @param isSeed
+    *           true if this node is a seed and ranks peers at random instead of by their upload rate
+    * @return the ids of the peers that are unchoked now but were not before
+    */
+   public synchronized int[] rechoke(final boolean isSeed) {
+      final BitSet previous = (BitSet) this.unchoked.clone();
+      final int[] candidates = new int[this.interested.cardinality()];
+      int count = 0;
+
+      for (int id = this.interested.nextSetBit(0); id >= 0; id = this.interested.nextSetBit(id + 1)) {
+         candidates[count++] = id;
+      }
+
+      // shuffle first so peers with equal rates are ranked at random
+      for (int i = count - 1; i > 0; i--) {
+         swap(candidates, i, this.random.nextInt(i + 1));
+      }
+
+      final int top = Math.min(this.slots, count);
+
+      if (!isSeed) {
+         // partial selection sort; only the first slots places matter
+         for (int i = 0; i < top; i++) {
+            int best = i;
+
+            for (int j = i + 1; j < count; j++) {
+               if (this.received.get(candidates[j], 0) > this.received.get(candidates[best], 0)) {
+                  best = j;
+               }
+            }
+
+            swap(candidates, i, best);
+         }
+      }
+
+      this.unchoked.clear();
+
+      for (int i = 0; i < top; i++) {
+         this.unchoked.set(candidates[i]);
+      }
+
+      if (((this.round++ % OPTIMISTIC_ROUNDS) == 0) || (this.optimistic == -1) || this.unchoked.get(this.optimistic)) {
+         this.optimistic = (count > top) ? candidates[top + this.random.nextInt(count - top)] : -1;
+      }
+
+      if (this.optimistic != -1) {
+         this.unchoked.set(this.optimistic);
+      }
+
+      this.received.clear();
+
+      final BitSet added = (BitSet) this.unchoked.clone();
+      added.andNot(previous);
+
+      final int[] ids = new int[added.cardinality()];
+      count = 0;
+
+      for (int id = added.nextSetBit(0); id >= 0; id = added.nextSetBit(id + 1)) {
+         ids[count++] = id;
+      }
+
+      return ids;
+   }
+
+   private static void swap(final int[] values, final int i, final int j) {
+      final int value = values[i];
+      values[i] = values[j];
+      values[j] = value;
+   }
+}
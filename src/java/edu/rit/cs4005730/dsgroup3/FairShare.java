@@ -0,0 +1,409 @@
+package edu.rit.cs4005730.dsgroup3;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Max-min fair split of one node's upload capacity over the transfers it is serving. Every transfer states a demand, the most the receiving end can take, and
+ * the capacity is filled up evenly: transfers that want less than an equal share get their demand and the rest is split among the others. The split is
+ * recomputed whenever a transfer starts, ends or changes its demand, so capacity freed by a finished transfer goes to the remaining ones right away.
+ *
+ * Nothing here waits on a monitor. A transfer takes one of {@code maxFlows} slots with a compare-and-set, and every rate is acquired from and released to a
+ * {@link Bandwidth}, so the capacity can never be handed out twice. The split itself is run by one thread at a time: a thread that finds another one
+ * splitting marks the split as out of date and returns, and the splitting thread goes round again before it stops. Without contention, as in a simulation
+ * on one thread, every call sees its own split finished before it returns.
+ *
+ * The {@link Listener}, which usually makes a remote call, is told about changed rates after the split is done, so a slow or remote listener never holds up
+ * other transfers of this node, and two nodes updating each other's shares cannot deadlock.
+ *
+ */
+public class FairShare {
+
+   /**
+    * Receives the new rates of transfers after the capacity was split again. Called from whichever thread ran the split, possibly from several threads at
+    * once; the last call for a key always carries its current rate.
+    */
+   public interface Listener {
+      public void rateChanged(final long key, final double rate);
+   }
+
+   private static final long[]              NONE        = new long[0];
+   // rate of a transfer that was removed; a split that still holds it leaves it alone
+   private static final double              REMOVED     = -1;
+
+   private final Bandwidth                  bandwidth;
+   private final int                        maxFlows;
+   private final Listener                   listener;
+   // the running transfers; an empty slot is null
+   private final AtomicReferenceArray<Flow> slots;
+   // set whenever a transfer starts, ends or changes its demand; cleared by the thread that splits the capacity again
+   private final AtomicBoolean              isStale     = new AtomicBoolean();
+   // held by the thread running the split
+   private final AtomicBoolean              isSplitting = new AtomicBoolean();
+   // scratch space for split(), ordered by demand; only used by the thread holding isSplitting
+   private final Flow[]                     sortedFlows;
+   private final double[]                   sortedDemands;
+   private final long[]                     changedKeys;
+
+   /**
+    * Creates a fair share of the given capacity.
+    *
+    * @param capacity
+    *           the capacity in bytes per second
+    * @param maxFlows
+    *           the number of transfers served at the same time; further transfers are refused
+    * @param listener
+    *           receives the rates of transfers that changed because another transfer started, ended or changed its demand
+    */
+   public FairShare(final double capacity, final int maxFlows, final Listener listener) {
+      this.bandwidth = new Bandwidth(capacity);
+      this.maxFlows = Math.max(1, maxFlows);
+      this.listener = listener;
+      this.slots = new AtomicReferenceArray<Flow>(this.maxFlows);
+      this.sortedFlows = new Flow[this.maxFlows];
+      this.sortedDemands = new double[this.maxFlows];
+      this.changedKeys = new long[this.maxFlows];
+   }
+
+   /**
+    * Adds a transfer and splits the capacity again. The listener is told about the other transfers whose rate changed, but not about this one. A key must
+    * not be added twice at the same time.
+    *
+    * @param key
+    *           the key of the new transfer
+    * @param demand
+    *           the most the transfer can use in bytes per second
+    * @return the rate of the new transfer in bytes per second, or 0 if it was refused
+    */
+   public double add(final long key, final double demand) {
+      if ((demand <= 0) || (this.find(key) != null)) {
+         return 0;
+      }
+
+      final Flow flow = new Flow(key, demand);
+
+      if (!this.claim(flow)) {
+         return 0;
+      }
+
+      this.isStale.set(true);
+      this.notifyListener(this.split(key));
+
+      final double rate = flow.getRate();
+
+      if (rate > 0) {
+         return rate;
+      }
+
+      // another thread is splitting and has not got to this transfer yet, or every byte is taken; refuse it rather than start it at 0
+      this.remove(key);
+      return 0;
+   }
+
+   /**
+    * Changes the demand of a transfer and splits the capacity again. The listener is told about every transfer whose rate changed, including this one.
+    *
+    * @param key
+    *           the key of the transfer
+    * @param demand
+    *           the most the transfer can use in bytes per second
+    */
+   public void setDemand(final long key, final double demand) {
+      final Flow flow = this.find(key);
+
+      if ((demand <= 0) || (flow == null) || (flow.demand == demand)) {
+         return;
+      }
+
+      flow.demand = demand;
+      this.isStale.set(true);
+      this.notifyListener(this.split(Long.MIN_VALUE));
+   }
+
+   /**
+    * Removes a transfer and hands its share to the remaining ones.
+    *
+    * @param key
+    *           the key of the transfer
+    * @return true if the transfer was known
+    */
+   public boolean remove(final long key) {
+      for (int i = 0; i < this.maxFlows; i++) {
+         final Flow flow = this.slots.get(i);
+
+         if ((flow != null) && (flow.key == key) && this.slots.compareAndSet(i, flow, null)) {
+            // a split still holding the flow cannot change the rate any more, so what is released here is all it ever got
+            this.bandwidth.release(flow.remove());
+            this.isStale.set(true);
+            this.notifyListener(this.split(Long.MIN_VALUE));
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private Flow find(final long key) {
+      for (int i = 0; i < this.maxFlows; i++) {
+         final Flow flow = this.slots.get(i);
+
+         if ((flow != null) && (flow.key == key)) {
+            return flow;
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Puts a new transfer into the first free slot.
+    *
+    * @return false if every slot is taken
+    */
+   private boolean claim(final Flow flow) {
+      for (int i = 0; i < this.maxFlows; i++) {
+         if ((this.slots.get(i) == null) && this.slots.compareAndSet(i, null, flow)) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Tells the listener the current rates of the given transfers. Another split may run between reading a rate and delivering it, so a thread whose rate was
+    * overtaken sends the current one again; whichever call is delivered last carries the current rate.
+    */
+   private void notifyListener(final long[] changed) {
+      if (this.listener == null) {
+         return;
+      }
+
+      for (final long key : changed) {
+         double rate = this.getRate(key);
+
+         while (rate > 0) {
+            this.listener.rateChanged(key, rate);
+
+            final double current = this.getRate(key);
+
+            if (current == rate) {
+               break;
+            }
+
+            rate = current;
+         }
+      }
+   }
+
+   /**
+    * Returns the current rate of a transfer.
+    *
+    * @param key
+    *           the key of the transfer
+    * @return the rate in bytes per second, or 0 if the transfer is not known
+    */
+   public double getRate(final long key) {
+      final Flow flow = this.find(key);
+      return (flow == null) ? 0 : Math.max(0, flow.getRate());
+   }
+
+   /**
+    * Splits the capacity again unless another thread is doing so, in which case that thread picks up the change. Goes round until no change is left.
+    *
+    * @param silent
+    *           the key of a transfer the listener is not told about
+    * @return the keys of the other transfers whose rate this thread changed
+    */
+   private long[] split(final long silent) {
+      long[] changed = NONE;
+
+      // a change made just before isSplitting was let go is seen by the next check of isStale
+      while (this.isStale.get() && this.isSplitting.compareAndSet(false, true)) {
+         try {
+            while (this.isStale.getAndSet(false)) {
+               changed = merge(changed, this.fill(silent));
+            }
+         } finally {
+            this.isSplitting.set(false);
+         }
+      }
+
+      return changed;
+   }
+
+   /**
+    * Water-filling: the transfers are served in order of increasing demand, each getting the smaller of its demand and an equal part of what is left. Rates
+    * that go down are lowered first, so the capacity they free is there for the rates that go up. Must hold isSplitting.
+    *
+    * @return the keys of the transfers other than the silent one whose rate changed
+    */
+   private long[] fill(final long silent) {
+      int count = 0;
+
+      // insertion sort; there are never more than maxFlows entries
+      for (int slot = 0; slot < this.maxFlows; slot++) {
+         final Flow flow = this.slots.get(slot);
+
+         if (flow == null) {
+            continue;
+         }
+
+         final double demand = flow.demand;
+         int i = count++;
+
+         while ((i > 0) && (this.sortedDemands[i - 1] > demand)) {
+            this.sortedFlows[i] = this.sortedFlows[i - 1];
+            this.sortedDemands[i] = this.sortedDemands[i - 1];
+            i--;
+         }
+
+         this.sortedFlows[i] = flow;
+         this.sortedDemands[i] = demand;
+      }
+
+      double remaining = this.bandwidth.getCapacity();
+
+      // the targets go where the demands were
+      for (int i = 0; i < count; i++) {
+         final double rate = Bandwidth.round(Math.min(this.sortedDemands[i], remaining / (count - i)));
+         this.sortedDemands[i] = rate;
+         remaining -= rate;
+      }
+
+      final long[] changed = this.changedKeys;
+      int changedCount = 0;
+
+      for (int i = 0; i < count; i++) {
+         final Flow flow = this.sortedFlows[i];
+         final double rate = flow.getRate();
+         final double target = this.sortedDemands[i];
+
+         if ((target < rate) && flow.setRate(rate, target)) {
+            this.bandwidth.release(rate - target);
+
+            if (flow.key != silent) {
+               changed[changedCount++] = flow.key;
+            }
+         }
+      }
+
+      for (int i = 0; i < count; i++) {
+         final Flow flow = this.sortedFlows[i];
+         final double rate = flow.getRate();
+         final double target = this.sortedDemands[i];
+
+         if ((target > rate) && (rate != REMOVED)) {
+            // less than the target only while other threads are adding transfers, and those split again
+            final double acquired = this.bandwidth.tryAcquire(target - rate);
+
+            if ((acquired > 0) && flow.setRate(rate, rate + acquired)) {
+               if (flow.key != silent) {
+                  changed[changedCount++] = flow.key;
+               }
+            } else {
+               this.bandwidth.release(acquired);
+            }
+         }
+      }
+
+      for (int i = 0; i < count; i++) {
+         this.sortedFlows[i] = null;
+      }
+
+      if (changedCount == 0) {
+         return NONE;
+      }
+
+      final long[] result = new long[changedCount];
+      System.arraycopy(changed, 0, result, 0, changedCount);
+      return result;
+   }
+
+   /**
+    * Joins two lists of changed keys, leaving out repeats.
+    */
+   private static long[] merge(final long[] keys, final long[] more) {
+      if (keys.length == 0) {
+         return more;
+      }
+
+      final long[] merged = new long[keys.length + more.length];
+      System.arraycopy(keys, 0, merged, 0, keys.length);
+      int count = keys.length;
+
+      for (final long key : more) {
+         boolean isKnown = false;
+
+         for (int i = 0; (i < keys.length) && !isKnown; i++) {
+            isKnown = keys[i] == key;
+         }
+
+         if (!isKnown) {
+            merged[count++] = key;
+         }
+      }
+
+      final long[] result = new long[count];
+      System.arraycopy(merged, 0, result, 0, count);
+      return result;
+   }
+
+   public int size() {
+      int count = 0;
+
+      for (int i = 0; i < this.maxFlows; i++) {
+         if (this.slots.get(i) != null) {
+            count++;
+         }
+      }
+
+      return count;
+   }
+
+   public double getUsed() {
+      return this.bandwidth.getUsed();
+   }
+
+   public double getAvailable() {
+      return this.bandwidth.getAvailable();
+   }
+
+   public double getCapacity() {
+      return this.bandwidth.getCapacity();
+   }
+
+   /**
+    * One transfer. Its rate only changes with a compare-and-set, made by the split or once by {@link FairShare#remove(long)}, so a transfer removed while a
+    * split is running keeps no capacity: whichever of the two comes second sees what the other did.
+    */
+   private static final class Flow {
+      private final long       key;
+      private volatile double  demand;
+      // raw bits of the rate in bytes per second, REMOVED once the transfer is gone
+      private final AtomicLong rate = new AtomicLong(Double.doubleToRawLongBits(0));
+
+      private Flow(final long key, final double demand) {
+         this.key = key;
+         this.demand = demand;
+      }
+
+      private double getRate() {
+         return Double.longBitsToDouble(this.rate.get());
+      }
+
+      private boolean setRate(final double expected, final double rate) {
+         return (expected != REMOVED) && this.rate.compareAndSet(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(rate));
+      }
+
+      /**
+       * Marks the transfer as removed.
+       *
+       * @return the rate it held
+       */
+      private double remove() {
+         return Double.longBitsToDouble(this.rate.getAndSet(Double.doubleToRawLongBits(REMOVED)));
+      }
+   }
+}
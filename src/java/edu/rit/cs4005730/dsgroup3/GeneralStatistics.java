@@ -1,16 +1,16 @@
 package edu.rit.cs4005730.dsgroup3;
 
 import java.io.Serializable;
-import java.rmi.RemoteException;
-import java.util.List;
-import java.util.Map;
 
-//import edu.rit.cs4005730.dsgroup3.util.RemoteUtils;
+import edu.rit.cs4005730.dsgroup3.util.RemoteUtils;
 
 public class GeneralStatistics implements Serializable {
 
     private static final long serialVersionUID = 3286190655961061721L;
 
+    // settings of the swarm these statistics describe
+    private final SwarmConfig config;
+
     // number of seeds when the simulation started
     int initialSeedCount;
 
@@ -26,72 +26,118 @@ public class GeneralStatistics implements Serializable {
     // set to true when there are no incomplete peers left
     boolean isComplete;
 
-    public GeneralStatistics() {
-        reset();
+    // number of registered nodes that are seeds, whether they started as one
+    // or completed their download
+    int seedCount;
+
+    // number of registered nodes that completed their download, and the sum
+    // of their download times
+    int completedCount;
+    long totalDuration;
+
+    public GeneralStatistics(SwarmConfig config) {
+        this.config = config;
+        update();
     }
 
-    void reset() {
-        reset(null, null);
+    private GeneralStatistics(GeneralStatistics other) {
+        config = other.config;
+        initialSeedCount = other.initialSeedCount;
+        initialPeerCount = other.initialPeerCount;
+        totalNodeCount = other.totalNodeCount;
+        meanTimeToCompletion = other.meanTimeToCompletion;
+        isComplete = other.isComplete;
+        seedCount = other.seedCount;
+        completedCount = other.completedCount;
+        totalDuration = other.totalDuration;
     }
 
-    void reset(List<NodeRef> peers, Map<String, NodeRef> seeds) {
-        totalNodeCount = (peers == null) ? 0 : peers.size();
-        initialSeedCount = (seeds == null) ? 0 : seeds.size();
-        initialPeerCount = totalNodeCount - initialSeedCount;
-        meanTimeToCompletion = 0;
-        isComplete = false;
+    /**
+     * Counts a node that joined the swarm.
+     * 
+     * @param isSeed
+     *            true if the node joined with every block
+     */
+    synchronized void nodeAdded(boolean isSeed) {
+        totalNodeCount++;
+        seedCount += isSeed ? 1 : 0;
+        update();
+    }
 
-        // System.out.println("Stats reset: " + initialSeedCount + " seeds, " +
-        // initialPeerCount + " peers");
+    /**
+     * Counts a registered node that completed its download.
+     * 
+     * @param duration
+     *            the simulated milliseconds the download took
+     */
+    synchronized void nodeCompleted(long duration) {
+        seedCount++;
+
+        if (duration > 0) {
+            completedCount++;
+            totalDuration += duration;
+        }
+
+        update();
     }
 
-    public void updateStats(List<NodeRef> peers, Map<String, NodeRef> seeds) {
-        long totalDuration = 0;
-        long completedNodes = 0;
-        boolean isReset = true; // gets set to false if this is not a reset
-                                // update
-        for (NodeRef node : peers) {
-            boolean isSeed = false;
-            long duration = 0;
-            try {
-                isSeed = node.isSeed();
-                duration = node.getTransferTime();
-            } catch (RemoteException e) {
-                e.printStackTrace();
-            }
-
-            if (isSeed == true) {
-                if (duration > 0) {
-                    totalDuration += duration;
-                    completedNodes++;
-                }
-                isReset &= (duration == 0); // all initial seeds have a duration
-                                            // of 0
-            }
-            /*
-             * else { // if a peer has existed for more than .5 seconds, we're
-             * out of // the reset period. this is a bit of a hack isReset &=
-             * (duration <= 500); complete = false; }
-             */
+    /**
+     * Forgets a node that left the swarm, including its download time if it
+     * had completed.
+     * 
+     * @param isSeed
+     *            true if the node was a seed when it left
+     * @param duration
+     *            the download time that was counted for the node, or 0 if
+     *            none was
+     */
+    synchronized void nodeRemoved(boolean isSeed, long duration) {
+        totalNodeCount--;
+        seedCount -= isSeed ? 1 : 0;
+
+        if (duration > 0) {
+            completedCount--;
+            totalDuration -= duration;
         }
 
-        if (isReset) {
-            reset(peers, seeds);
+        update();
+    }
+
+    /**
+     * Recomputes the derived values from the running counts. Until the first
+     * download completes every change resets the initial counts, so nodes
+     * added before the swarm gets going count as initial seeds and peers.
+     */
+    private void update() {
+        if (completedCount == 0) {
+            initialSeedCount = seedCount;
+            initialPeerCount = totalNodeCount - seedCount;
+            meanTimeToCompletion = 0;
+            isComplete = false;
+
+            // System.out.println("Stats reset: " + initialSeedCount + " seeds, " +
+            // initialPeerCount + " peers");
         } else {
-            meanTimeToCompletion = (completedNodes == 0) ? 0 : totalDuration
-                    / completedNodes;
-            totalNodeCount = peers.size();
-            isComplete = (peers.size() == seeds.size());
+            meanTimeToCompletion = totalDuration / completedCount;
+            isComplete = (totalNodeCount == seedCount);
 
             // System.out.println("Stats updated: average download time = " +
             // meanTimeToCompletion/1000.0 + ", node count = " + totalNodeCount
             // + " complete = " + isComplete);
             // System.out.println("average transfer speed: " +
-            // RemoteUtils.formatSpeed((RemoteUtils.FILESIZE /
-            // (this.meanTimeToCompletion / 1000.0))));
+            // RemoteUtils.formatSpeed(getMeanTransferRate()));
         }
     }
 
+    /**
+     * Returns a copy of the current values that later changes do not affect.
+     * 
+     * @return a consistent copy of these statistics
+     */
+    synchronized GeneralStatistics copy() {
+        return new GeneralStatistics(this);
+    }
+
     public int getInitialPeerCount() {
         return initialPeerCount;
     }
@@ -111,4 +157,19 @@ public class GeneralStatistics implements Serializable {
     public boolean getIsComplete() {
         return isComplete;
     }
+
+    public SwarmConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the rate at which the completed peers downloaded the file on
+     * average, or 0 if none has completed yet.
+     * 
+     * @return the mean download rate in bytes per second
+     */
+    public double getMeanTransferRate() {
+        return (meanTimeToCompletion == 0) ? 0 : config.fileSize
+                / ((double) meanTimeToCompletion / RemoteUtils.SECONDS_IN_MILLISECONDS);
+    }
 }
@@ -1,48 +1,95 @@
 package edu.rit.cs4005730.dsgroup3;
 
 import java.rmi.RemoteException;
-import java.rmi.server.UnicastRemoteObject;
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import edu.rit.cs4005730.dsgroup3.NodeManagerEvent.EventType;
-import edu.rit.cs4005730.dsgroup3.util.BlockingThreadPool;
-import edu.rit.cs4005730.dsgroup3.util.Pair;
+import edu.rit.cs4005730.dsgroup3.network.NetworkModel;
+import edu.rit.cs4005730.dsgroup3.picker.PiecePicker;
+import edu.rit.cs4005730.dsgroup3.sim.Scheduler;
+import edu.rit.cs4005730.dsgroup3.sim.SimulationEvent;
+import edu.rit.cs4005730.dsgroup3.transport.Transport;
+import edu.rit.cs4005730.dsgroup3.util.LongDoubleHashMap;
 import edu.rit.cs4005730.dsgroup3.util.RemoteUtils;
+import edu.rit.cs4005730.dsgroup3.util.SplitMix;
 import edu.rit.ds.Lease;
-import edu.rit.ds.RemoteEventGenerator;
 import edu.rit.ds.registry.NotBoundException;
-import edu.rit.ds.registry.RegistryProxy;
-import edu.rit.numeric.prob.UniformIntPrng;
 
 public class Node implements NodeRef {
-   // private final ReentrantLock lock = new ReentrantLock();
+   // simulated milliseconds a peer that refused a request is not asked again, unless it says it would accept one; only matters if that message is lost
+   private static final long                        REFUSAL_TIMEOUT  = ChokeManager.CHOKE_INTERVAL;
+   // number of requestBlock calls allowed per request round
+   private static final int                         MAX_REQUESTS     = 100;
+   // number of peers unchoked for their upload rate, besides the optimistic unchoke
+   private static final int                         UNCHOKE_SLOTS    = 4;
    
    private final String                             name;
+   // dense id handed out by the NodeManager; peers use it instead of the name in every transfer call
+   private volatile int                             id               = -1;
    private final double                             upload;
    private final double                             download;
+   // one-way milliseconds from this node to the backbone
+   private final double                             latency;
+   // null if transfers start without delay
+   private final NetworkModel                       network;
+   // master seed of the swarm, which fixes the round trip time of every pair of nodes
+   private final long                               seed;
    private final int                                blockCount;
-   private final Map<Integer, Double>               blockCompletion  = new ConcurrentHashMap<Integer, Double>();
+   private final BlockState                         blocks;
    private final long                               blockSize;
-   private final UniformIntPrng                     random;
-   private final BlockingThreadPool                 jobs             = new BlockingThreadPool(8);
+   private final PiecePicker                        picker;
+   // true if the picker asks for blocks already in flight once no block is wanted any more
+   private final boolean                            hasEndgame;
+   private final Random                             random;
+   private final int                                pipelineDepth;
+   // number of batches downloaded at the same time
+   private final int                                maxConcurrentDownloads;
+   private final Scheduler                          scheduler;
+   // true if peers are found by announcing to the NodeManager rather than through its NODE_ADDED events
+   private final boolean                            isTracker;
+   private final int                                announceSize;
+   private final long                               announceInterval;
+   // number of peers kept at most; unbounded unless in tracker mode
+   private final int                                maxPeers;
    
-   private NodeManagerRef                           manager;
-   private boolean                                  isSeed;
-   private boolean                                  isDisposed       = false;
-   private long                                     startTime;
+   private final NodeManagerRef                     manager;
+   private final Transport                          transport;
+   private volatile boolean                         isSeed;
+   private volatile boolean                         isDisposed       = false;
+   // subscription to the NODE_ADDED and NODE_REMOVED events of the manager; null in tracker mode
+   private volatile Lease                           managerLease;
+   private long                                     startTime        = -1;
    private long                                     endTime;
-   private volatile Double                          downloadAvailable;
-   private volatile Double                          uploadAvailable;
+   private final Bandwidth                          downloadBandwidth;
+   // uploads are keyed by the downloading node's id and the first block of the batch, see getKey
+   private final FairShare                          uploadShare;
+   private final ChokeManager                       chokeManager;
+   // true while rechoke rounds are scheduled; written while holding chokeManager, read without it to skip the lock on every request
+   private volatile boolean                         isChoking        = false;
+   // ids of the peers refused an upload because every slot was taken, offered the next free slot; guarded by itself
+   private final BitSet                             waiting          = new BitSet();
+   // the waiting peer offered a slot first next time, so every peer gets its turn
+   private int                                      nextWaiting      = 0;
    
-   private final Map<Pair<String, Integer>, Double> currentDownloads = new ConcurrentHashMap<Pair<String, Integer>, Double>();
-   private final Map<Pair<String, Integer>, Double> currentUploads   = new ConcurrentHashMap<Pair<String, Integer>, Double>();
-   
-   private final Map<String, NodeRef>               peers            = new ConcurrentHashMap<String, NodeRef>();
-   private final RemoteEventGenerator<NodeEvent>    eventGenerator   = new RemoteEventGenerator<NodeEvent>();
+   // known peers; replaced whenever a peer is added or removed, written only while holding peerLock, which also guards which blocks are wanted and the
+   // wanted counts of the peers
+   private volatile PeerTable                       peerTable        = PeerTable.EMPTY;
+   private final Object                             peerLock         = new Object();
+   private final Set<Transfer>                      transfers        = Collections.newSetFromMap(new ConcurrentHashMap<Transfer, Boolean>());
+   // blocks of the running transfers, keyed like uploads by the uploader's id and the block, see getKey; guarded by peerLock
+   private final LongDoubleHashMap                  queued           = new LongDoubleHashMap();
+   private final NodeEventBus                       eventBus;
+   // download slots that found no peer to serve them and wait for a wake-up
+   private final AtomicInteger                      parkedSlots      = new AtomicInteger();
+   // number of wake-ups so far, so a slot parking just after one was sent notices it
+   private final AtomicLong                         wakeups          = new AtomicLong();
    
    /**
     * Creates a new Node object with the given name and the given settings
@@ -53,343 +100,1284 @@ public class Node implements NodeRef {
     *           the upload rate in bytes per second
     * @param download
     *           the download rate in bytes per second
+    * @param isSeed
+    *           true if this node starts out with every block
+    * @param config
+    *           the {@link SwarmConfig} of the swarm this node joins: the file it shares, the piece picker, pipelining and the name of the
+    *           {@link NodeManagerRef}
+    * @param transport
+    *           the {@link Transport} used to find the {@link NodeManagerRef} and to make this node reachable by its peers
+    * @param scheduler
+    *           the {@link Scheduler} that drives this node's transfers
+    * @param eventBus
+    *           the {@link NodeEventBus} of the swarm, which this node posts its progress to
+    * @throws RemoteException
+    * @throws NotBoundException
+    */
+   public Node(final String name, final double upload, final double download, final boolean isSeed, final SwarmConfig config, final Transport transport,
+         final Scheduler scheduler, final NodeEventBus eventBus) throws RemoteException, NotBoundException {
+      this(name, upload, download, 0, isSeed, config, transport, scheduler, eventBus);
+   }
+   
+   /**
+    * Creates a new Node object with the given name, rates and latency
+    * 
+    * @param name
+    *           the name for this node (does not have to be unique)
+    * @param upload
+    *           the upload rate in bytes per second
+    * @param download
+    *           the download rate in bytes per second
+    * @param latency
+    *           the one-way latency from this node to the backbone in milliseconds; only used if the config has a {@link NetworkModel}
+    * @param isSeed
+    *           true if this node starts out with every block
+    * @param config
+    *           the {@link SwarmConfig} of the swarm this node joins
+    * @param transport
+    *           the {@link Transport} used to find the {@link NodeManagerRef} and to make this node reachable by its peers
+    * @param scheduler
+    *           the {@link Scheduler} that drives this node's transfers
+    * @param eventBus
+    *           the {@link NodeEventBus} of the swarm, which this node posts its progress to
     * @throws RemoteException
     * @throws NotBoundException
-    * @throws InterruptedException
     */
-   public Node(final String name, final double upload, final double download, final long filesize, final long blockSize, final int blockCount, final boolean isSeed, final String host, final int port,
-         final String nodeManagerName) throws RemoteException, NotBoundException, InterruptedException {
+   public Node(final String name, final double upload, final double download, final double latency, final boolean isSeed, final SwarmConfig config,
+         final Transport transport, final Scheduler scheduler, final NodeEventBus eventBus) throws RemoteException, NotBoundException {
+      this(name, upload, download, latency, isSeed, config, transport, scheduler, eventBus, (NodeManagerRef) transport.lookup(config.nodeManagerName));
+      
+      this.join(this.manager.registerNode(this));
+   }
+   
+   /**
+    * Creates a node and makes it reachable through the given {@link Transport}, but does not register it yet; {@link SwarmBootstrap} registers many such
+    * nodes in one batch and then calls {@link #join(int)} on each.
+    */
+   Node(final String name, final double upload, final double download, final double latency, final boolean isSeed, final SwarmConfig config,
+         final Transport transport, final Scheduler scheduler, final NodeEventBus eventBus, final NodeManagerRef manager) throws RemoteException {
       this.name = name;
       this.upload = upload;
       this.download = download;
-      this.blockCount = blockCount;
-      this.blockSize = blockSize;
+      this.latency = latency;
+      this.network = config.network;
+      this.seed = config.seed;
+      this.blockCount = config.blockCount;
+      this.blockSize = config.blockSize;
       this.isSeed = isSeed;
-      this.random = new UniformIntPrng(new Random(), 0, blockCount - 1);
+      this.scheduler = scheduler;
+      this.manager = manager;
+      this.transport = transport;
+      this.eventBus = eventBus;
+      this.blocks = new BlockState(this.blockCount, isSeed);
+      // a stream of its own, so what this node draws does not depend on the other nodes
+      this.random = SplitMix.newRandom(config.seed, name);
+      this.pipelineDepth = config.pipelineDepth;
+      this.maxConcurrentDownloads = config.maxConcurrentDownloads;
+      this.picker = config.pickerType.create(this.blockCount, this.random);
+      this.hasEndgame = config.pickerType == PiecePicker.Type.ENDGAME;
+      this.chokeManager = new ChokeManager(UNCHOKE_SLOTS, this.random);
+      this.isTracker = config.isTracker;
+      this.announceSize = config.announceSize;
+      this.announceInterval = config.announceInterval;
+      this.maxPeers = config.isTracker ? config.maxPeers : Integer.MAX_VALUE;
+      
+      this.downloadBandwidth = new Bandwidth(download);
+      this.uploadShare = new FairShare(upload, config.maxUploads, new FairShare.Listener() {
+         @Override
+         public void rateChanged(final long key, final double rate) {
+            Node.this.notifyRate(key, rate);
+         }
+      });
+      
+      transport.export(this);
+   }
+   
+   /**
+    * Takes the id the {@link NodeManagerRef} gave this node when it registered and connects to the swarm: to a random subset of it in tracker mode, to every
+    * registered node otherwise. Schedules nothing, so nodes of an {@link edu.rit.cs4005730.dsgroup3.sim.EventScheduler} may join from several threads.
+    * 
+    * @param id
+    *           the id returned by {@link NodeManagerRef#registerNode(NodeRef)}
+    * @throws RemoteException
+    */
+   void join(final int id) throws RemoteException {
+      this.id = id;
+      
+      if (this.isTracker) {
+         this.requestPeers();
+         return;
+      }
+      
+      try {
+         final NodeManagerListener nodeManagerListener = new NodeManagerListener() {
+            @Override
+            public void report(final long sequenceNumber, final NodeManagerEvent event) throws RemoteException {
+               if (event.type == EventType.NODE_ADDED) {
+                  Node.this.connectPeer(event.id, event.node);
+               } else if (event.type == EventType.NODE_REMOVED) {
+                  Node.this.removePeer(event.id);
+               }
+            }
+         };
+         
+         this.transport.export(nodeManagerListener);
+         this.managerLease = this.manager.addNodeManagerListener(nodeManagerListener);
+      } catch (final RemoteException e) {
+         e.printStackTrace();
+      }
+      
+      final List<NodeRef> nodes = this.manager.getNodes();
+      
+      for (final NodeRef node : nodes) {
+         try {
+            this.connectPeer(node.getId(), node);
+         } catch (final RemoteException e) {
+            // could not access node; ignore
+         }
+      }
+   }
+   
+   /**
+    * Announces this node to the tracker and connects to the peers it returns until the peer table is full.
+    */
+   private void requestPeers() {
+      final List<NodeRef> nodes;
+      
+      try {
+         nodes = this.manager.announce(this, this.announceSize);
+      } catch (final RemoteException e) {
+         // tracker unreachable; try again at the next announce
+         return;
+      }
+      
+      for (final NodeRef node : nodes) {
+         if (this.peerTable.peers.length >= this.maxPeers) {
+            break;
+         }
+         
+         try {
+            this.connectPeer(node.getId(), node);
+         } catch (final RemoteException e) {
+            // could not access node; ignore
+         }
+      }
+   }
+   
+   /**
+    * Announces again every announce interval while this node is downloading, so it replaces peers that left. Seeds stop announcing since peers find them.
+    */
+   private void scheduleAnnounce() {
+      this.scheduler.schedule(SimulationEvent.EventType.TIMER, this.announceInterval, new Runnable() {
+         @Override
+         public void run() {
+            if (Node.this.isSeed || Node.this.isDisposed) {
+               return;
+            }
+            
+            if (Node.this.peerTable.peers.length >= Node.this.maxPeers) {
+               // make room for peers that may own what the current ones do not
+               Node.this.dropUninterestingPeers();
+            }
+            
+            if (Node.this.peerTable.peers.length < Node.this.maxPeers) {
+               Node.this.requestPeers();
+            }
+            
+            Node.this.scheduleAnnounce();
+         }
+      });
+   }
+   
+   /**
+    * Swaps bitfields with a peer unless the peer is already known, which happens when the peer connected to this node first.
+    */
+   private void connectPeer(final int peerId, final NodeRef node) {
+      if (this.isDisposed || (peerId == this.id) || (peerId < 0) || (this.getPeer(peerId) != null) || (this.peerTable.peers.length >= this.maxPeers)) {
+         return;
+      }
+      
+      try {
+         final long[] bitfield = node.exchangeBitfield(this.id, this, this.blocks.getBitfield());
+         
+         if (bitfield != null) {
+            this.addPeer(peerId, node, bitfield);
+         }
+      } catch (final RemoteException e) {
+         // could not access node; ignore
+      }
+   }
+   
+   private Peer getPeer(final int peerId) {
+      return this.peerTable.get(peerId);
+   }
+   
+   /**
+    * Records a peer and the blocks it owns, replacing any earlier record of the same peer. A new peer is refused once the table holds maxPeers, and so is a
+    * bitfield of another file, which a node of an earlier swarm may still send.
+    * 
+    * @return true if the peer was recorded
+    */
+   private boolean addPeer(final int peerId, final NodeRef node, final long[] bitfield) {
+      if (bitfield.length != BlockState.getWordCount(this.blockCount)) {
+         return false;
+      }
+      
+      final Peer peer;
+      
+      synchronized (this.peerLock) {
+         final PeerTable table = this.peerTable;
+         final Peer old = table.get(peerId);
+         
+         if ((old == null) && (table.peers.length >= this.maxPeers)) {
+            return false;
+         }
+         
+         peer = new Peer(peerId, node, bitfield, this.blockCount);
+         
+         synchronized (bitfield) {
+            peer.wantedCount = this.blocks.countWanted(bitfield);
+         }
+         
+         if (old != null) {
+            this.updateAvailability(old.bitfield, false);
+         }
+         
+         this.updateAvailability(bitfield, true);
+         this.peerTable = table.copy(old, peer);
+      }
+      
+      if (peer.wantedCount > 0) {
+         this.wake(peerId);
+      }
+      
+      return true;
+   }
+   
+   private void removePeer(final int peerId) {
+      synchronized (this.peerLock) {
+         final PeerTable table = this.peerTable;
+         final Peer old = table.get(peerId);
+         
+         if (old != null) {
+            this.updateAvailability(old.bitfield, false);
+            this.peerTable = table.copy(old, null);
+         }
+      }
+      
+      synchronized (this.waiting) {
+         this.waiting.clear(peerId);
+      }
+      
+      this.sendUnchoke(this.chokeManager.remove(peerId));
+   }
+   
+   /**
+    * Removes a peer on both ends, freeing a slot in each peer table.
+    */
+   private void dropPeer(final Peer peer) {
+      this.removePeer(peer.id);
+      
+      try {
+         peer.node.disconnect(this.id);
+      } catch (final RemoteException e) {
+         // the peer is gone anyway
+      }
+   }
+   
+   /**
+    * Drops every peer that owns no block this node is missing.
+    */
+   private void dropUninterestingPeers() {
+      final long[] owned = this.blocks.getBitfield();
+      
+      for (final Peer peer : this.peerTable.peers) {
+         boolean isInteresting = false;
+         
+         synchronized (peer.bitfield) {
+            for (int word = 0; (word < owned.length) && !isInteresting; word++) {
+               isInteresting = (peer.bitfield[word] & ~owned[word]) != 0;
+            }
+         }
+         
+         if (!isInteresting) {
+            this.dropPeer(peer);
+         }
+      }
+   }
+   
+   /**
+    * Drops every peer that is a seed as well; two seeds have nothing to exchange. Only called in tracker mode, where peer slots are limited.
+    */
+   private void dropSeedPeers() {
+      for (final Peer peer : this.peerTable.peers) {
+         if (peer.isComplete()) {
+            this.dropPeer(peer);
+         }
+      }
+   }
+   
+   private void updateAvailability(final long[] bitfield, final boolean isAdded) {
+      synchronized (bitfield) {
+         for (int word = 0; word < bitfield.length; word++) {
+            long bits = bitfield[word];
+            
+            while (bits != 0) {
+               final int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+               bits &= bits - 1;
+               
+               if (isAdded) {
+                  this.picker.addAvailability(index);
+               } else {
+                  this.picker.removeAvailability(index);
+               }
+            }
+         }
+      }
+   }
+   
+   /**
+    * Sends a HAVE announcement for a newly completed block to every known peer.
+    */
+   private void announce(final int index) {
+      for (final Peer peer : this.peerTable.peers) {
+         try {
+            peer.node.have(this.id, index);
+         } catch (final RemoteException e) {
+            this.removePeer(peer.id);
+         }
+      }
+   }
+   
+   @Override
+   public long[] exchangeBitfield(final int nodeId, final NodeRef node, final long[] bitfield) throws RemoteException {
+      if (this.isDisposed || (bitfield.length != BlockState.getWordCount(this.blockCount))) {
+         return null;
+      }
+      
+      if ((nodeId != this.id) && (nodeId >= 0) && !this.addPeer(nodeId, node, bitfield)) {
+         return null;
+      }
+      
+      return this.blocks.getBitfield();
+   }
+   
+   @Override
+   public void disconnect(final int nodeId) throws RemoteException {
+      this.removePeer(nodeId);
+   }
+   
+   @Override
+   public void unchoke(final int nodeId) throws RemoteException {
+      final Peer peer = this.getPeer(nodeId);
+      
+      if (peer != null) {
+         peer.refusedUntil = 0;
+         
+         if (this.canServe(peer)) {
+            this.wake(nodeId);
+         }
+      }
+   }
+   
+   @Override
+   public boolean offerUpload(final int nodeId) throws RemoteException {
+      final Peer peer = this.getPeer(nodeId);
+      
+      if (peer == null) {
+         return false;
+      }
+      
+      peer.refusedUntil = 0;
+      // a slot this node has no use for is better offered to the next peer
+      return this.canServe(peer) && this.wake(nodeId);
+   }
+   
+   /**
+    * Returns true if the given peer owns a block this node would ask it for: a wanted one, or in endgame mode any block still in flight.
+    */
+   private boolean canServe(final Peer peer) {
+      return (peer.wantedCount > 0) || (this.hasEndgame && (this.picker.getWantedCount() == 0));
+   }
+   
+   @Override
+   public void have(final int nodeId, final int index) throws RemoteException {
+      final Peer peer = this.getPeer(nodeId);
+      
+      if (peer != null) {
+         final boolean isWanted;
+         
+         synchronized (this.peerLock) {
+            synchronized (peer.bitfield) {
+               if (BlockState.isSet(peer.bitfield, index)) {
+                  return;
+               }
+               
+               peer.bitfield[index >> 6] |= 1L << index;
+               peer.ownedCount++;
+            }
+            
+            isWanted = this.blocks.isWanted(index);
+            
+            if (isWanted) {
+               peer.wantedCount++;
+            }
+         }
+         
+         this.picker.addAvailability(index);
+         
+         if (isWanted && (peer.refusedUntil <= this.scheduler.currentTime())) {
+            this.wake(nodeId);
+         }
+         
+         if (peer.isComplete()) {
+            // a new seed never asks for anything again
+            this.sendUnchoke(this.chokeManager.remove(nodeId));
+            
+            if (this.isTracker && this.isSeed) {
+               this.dropPeer(peer);
+            }
+         }
+      }
+   }
+   
+   @Override
+   public void dispose() throws RemoteException {
+      // pending transfer events check this flag and stop rescheduling themselves
+      this.isDisposed = true;
+      
+      if (this.managerLease != null) {
+         // a later swarm may reuse the manager; its NODE_ADDED events are none of this node's business
+         this.managerLease.cancel();
+      }
+      
+      try {
+         this.manager.deregisterNode(this);
+      } catch (final Exception e) {
+         // dont care
+      }
+      
+      if (this.isTracker) {
+         // nobody else tells the peers of this node that it left
+         for (final Peer peer : this.peerTable.peers) {
+            try {
+               peer.node.disconnect(this.id);
+            } catch (final RemoteException e) {
+               // dont care
+            }
+         }
+      }
+      
+   }
+   
+   @Override
+   public double requestBlock(final int nodeId, final int index, final double maxDownloadAvailable) throws RemoteException {
+      return this.requestBlocks(nodeId, new int[] { index }, maxDownloadAvailable);
+   }
+   
+   @Override
+   public double requestBlocks(final int nodeId, final int[] indices, final double maxDownloadAvailable) throws RemoteException {
+      if (this.isDisposed || (nodeId < 0) || (indices.length == 0)) {
+         return -1;
+      }
+      
+      for (final int index : indices) {
+         if (!this.blocks.has(index)) {
+            return -1;
+         }
+      }
+      
+      this.startChoking();
+      
+      if (!this.chokeManager.isUnchoked(nodeId)) {
+         return CHOKED;
+      }
+      
+      // the whole batch is one transfer, recorded under its first block
+      final double rate = this.uploadShare.add(getKey(nodeId, indices[0]), maxDownloadAvailable);
+      
+      if (rate == 0) {
+         synchronized (this.waiting) {
+            this.waiting.set(nodeId);
+         }
+      }
+      
+      return rate;
+   }
+   
+   @Override
+   public void finalizeBlock(final int nodeId, final int index) throws RemoteException {
+      this.finalizeBlocks(nodeId, new int[] { index });
+   }
+   
+   @Override
+   public void finalizeBlocks(final int nodeId, final int[] indices) throws RemoteException {
+      if ((nodeId >= 0) && (indices.length > 0) && this.uploadShare.remove(getKey(nodeId, indices[0]))) {
+         this.offerFreeSlot();
+      }
+   }
+   
+   /**
+    * Offers a free upload slot to the unchoked peers refused for want of one, in turn, until one of them takes it up.
+    */
+   private void offerFreeSlot() {
+      while (!this.isDisposed) {
+         int peerId;
+         
+         synchronized (this.waiting) {
+            peerId = this.waiting.nextSetBit(this.nextWaiting);
+            
+            if (peerId < 0) {
+               peerId = this.waiting.nextSetBit(0);
+            }
+            
+            if (peerId < 0) {
+               return;
+            }
+            
+            this.waiting.clear(peerId);
+            this.nextWaiting = peerId + 1;
+         }
+         
+         final Peer peer = this.getPeer(peerId);
+         
+         try {
+            // a peer choked since it asked would only be refused again; it is told when it is unchoked
+            if ((peer != null) && this.chokeManager.wouldUnchoke(peerId) && peer.node.offerUpload(this.id)) {
+               return;
+            }
+         } catch (final RemoteException e) {
+            this.removePeer(peerId);
+         }
+      }
+   }
+   
+   @Override
+   public void updateDemand(final int nodeId, final int index, final double demand) throws RemoteException {
+      this.uploadShare.setDemand(getKey(nodeId, index), demand);
+   }
+   
+   @Override
+   public void updateRate(final int nodeId, final int index, final double rate) throws RemoteException {
+      for (final Transfer transfer : this.transfers) {
+         if ((transfer.peer.id == nodeId) && (transfer.indices[0] == index)) {
+            transfer.setRate(rate);
+            return;
+         }
+      }
+   }
+   
+   /**
+    * Packs a node id and a block index into the primitive key of an upload.
+    */
+   private static long getKey(final int nodeId, final int index) {
+      return ((long) nodeId << 32) | (index & 0xFFFFFFFFL);
+   }
+   
+   /**
+    * Schedules rechoke rounds unless they are already running. Rounds stop by themselves once no peer is interested, so a finished swarm runs out of events.
+    */
+   private void startChoking() {
+      if (this.isChoking) {
+         return;
+      }
+      
+      synchronized (this.chokeManager) {
+         if (this.isChoking) {
+            return;
+         }
+         
+         this.isChoking = true;
+      }
+      
+      this.scheduler.schedule(SimulationEvent.EventType.TIMER, ChokeManager.CHOKE_INTERVAL, new Runnable() {
+         @Override
+         public void run() {
+            Node.this.rechoke();
+         }
+      });
+   }
+   
+   private void rechoke() {
+      final int[] unchoked;
+      
+      synchronized (this.chokeManager) {
+         if (this.isDisposed || !this.chokeManager.hasInterest()) {
+            this.isChoking = false;
+            return;
+         }
+         
+         unchoked = this.chokeManager.rechoke(this.isSeed);
+      }
+      
+      this.scheduler.schedule(SimulationEvent.EventType.TIMER, ChokeManager.CHOKE_INTERVAL, new Runnable() {
+         @Override
+         public void run() {
+            Node.this.rechoke();
+         }
+      });
+      
+      for (final int peerId : unchoked) {
+         this.sendUnchoke(peerId);
+      }
+   }
+   
+   /**
+    * Tells a peer that it was unchoked, so it asks this node for blocks again.
+    * 
+    * @param peerId
+    *           the id of the peer; -1 for none
+    */
+   private void sendUnchoke(final int peerId) {
+      final Peer peer = (peerId < 0) ? null : this.getPeer(peerId);
+      
+      if (peer != null) {
+         try {
+            peer.node.unchoke(this.id);
+         } catch (final RemoteException e) {
+            this.removePeer(peerId);
+         }
+      }
+   }
+   
+   /**
+    * Tells a downloading node about an upload rate that changed after the upload capacity was split again.
+    */
+   private void notifyRate(final long key, final double rate) {
+      final Peer peer = this.getPeer((int) (key >>> 32));
+      
+      if (peer != null) {
+         try {
+            peer.node.updateRate(this.id, (int) key, rate);
+         } catch (final RemoteException e) {
+            // nothing; the node is gone and its transfer with it
+         }
+      }
+   }
+   
+   /**
+    * Splits the download capacity evenly over the running transfers and tells their uploaders about the new demand. Afterwards every transfer takes the
+    * download capacity it is short of, which the lowered rates of the others may have freed.
+    */
+   private void updateDemands() {
+      final int count = this.transfers.size();
+      
+      if (count == 0) {
+         return;
+      }
+      
+      final double demand = this.download / count;
+      
+      for (final Transfer transfer : this.transfers) {
+         if (transfer.demand != demand) {
+            transfer.demand = demand;
+            
+            try {
+               transfer.peer.node.updateDemand(this.id, transfer.indices[0], demand);
+            } catch (final RemoteException e) {
+               // nothing; the transfer is cancelled once the uploader is removed
+            }
+         }
+      }
+      
+      for (final Transfer transfer : this.transfers) {
+         synchronized (transfer) {
+            transfer.reserve();
+         }
+      }
+   }
+   
+   /**
+    * Starts downloading the file. Seeds are finished immediately; peers fill their download slots and return, the transfers themselves are driven by the
+    * {@link Scheduler}.
+    * 
+    * @throws RemoteException
+    */
+   public void startProcess() throws RemoteException {
+      this.startProcess(this.scheduler.currentTime());
+   }
+   
+   /**
+    * Starts downloading the file as of the given instant, so nodes started together measure their download times from the same moment.
+    * 
+    * @param startTime
+    *           the scheduler time the download counts from
+    */
+   void startProcess(final long startTime) {
+      this.startTime = startTime;
+      
+      if (this.isSeed) {
+         this.endTime = this.startTime;
+      } else {
+         for (int i = 0; i < this.maxConcurrentDownloads; i++) {
+            this.getBlock();
+         }
+         
+         if (this.isTracker) {
+            this.scheduleAnnounce();
+         }
+      }
+   }
+   
+   private void getBlock() {
+      this.getBlock(-1, false);
+   }
+   
+   /**
+    * Fills one download slot. A slot that no peer can serve is parked instead of asking again after a while: every peer that refused it or owns nothing it
+    * wants tells this node once that changes, and {@link #wake(int)} then sends one parked slot back to asking.
+    * 
+    * @param peerId
+    *           the id of the peer asked first, -1 to start at a random one
+    * @param isWoken
+    *           true if the slot was parked; if it gets a batch, whatever made that possible may serve the next parked slot as well
+    */
+   private void getBlock(final int peerId, final boolean isWoken) {
+      if (this.isSeed || this.isDisposed) {
+         return;
+      }
+      
+      final long wakeups = this.wakeups.get();
+      
+      try {
+         final Transfer transfer = this.getSeed(peerId);
+         
+         if (transfer != null) {
+            transfer.start();
+            this.updateDemands();
+            
+            if (isWoken || (this.hasEndgame && (this.picker.getWantedCount() == 0))) {
+               // whatever let this slot in may let in another, and in endgame mode any peer may serve the parked slots
+               this.wake(peerId);
+            }
+            
+            return;
+         }
+      } catch (final Exception e) {
+         e.printStackTrace();
+      }
+      
+      this.parkedSlots.incrementAndGet();
+      
+      if (this.wakeups.get() != wakeups) {
+         // the wake-up may have come while this slot was asking, and found no slot parked
+         this.wake(-1);
+      }
+   }
+   
+   /**
+    * Sends a parked download slot back to asking for blocks, if there is one. Called whenever a request may have become possible: a peer announced a wanted
+    * block, unchoked this node or offered it an upload slot, a peer with wanted blocks connected, or blocks became wanted again.
+    * 
+    * @param peerId
+    *           the id of the peer that made a request possible, which is asked first; -1 for none
+    * @return true if a slot was woken
+    */
+   private boolean wake(final int peerId) {
+      this.wakeups.incrementAndGet();
+      
+      if (this.isSeed || this.isDisposed) {
+         return false;
+      }
+      
+      int parked;
+      
+      do {
+         parked = this.parkedSlots.get();
+         
+         if (parked == 0) {
+            return false;
+         }
+      } while (!this.parkedSlots.compareAndSet(parked, parked - 1));
+      
+      this.scheduler.schedule(SimulationEvent.EventType.BLOCK_REQUEST, 0, new Runnable() {
+         @Override
+         public void run() {
+            Node.this.getBlock(peerId, true);
+         }
+      });
+      
+      return true;
+   }
+   
+   /**
+    * Ends a batch on both ends, drops every block of the batch that did not finish and hands the freed download capacity to the remaining transfers.
+    */
+   private void finishBlocks(final Transfer transfer) {
+      try {
+         transfer.peer.node.finalizeBlocks(this.id, transfer.indices);
+      } catch (final RemoteException e) {
+         e.printStackTrace();
+      }
+      
+      this.releaseBlocks(transfer.peer.id, transfer.indices);
+      this.updateDemands();
+      this.checkSeedStatus();
+   }
+   
+   private void releaseBlocks(final int peerId, final int[] indices) {
+      boolean isReleased = false;
+      
+      synchronized (this.peerLock) {
+         for (final int index : indices) {
+            this.queued.remove(getKey(peerId, index));
+            
+            if (this.blocks.release(index)) {
+               this.picker.released(index);
+               this.updateWantedCounts(index, 1);
+               isReleased = true;
+            }
+         }
+      }
+      
+      if (isReleased) {
+         this.wake(-1);
+      }
+   }
+   
+   /**
+    * Counts a block that became wanted again, or is no longer wanted, at every peer that owns it. Must hold peerLock.
+    */
+   private void updateWantedCounts(final int index, final int delta) {
+      for (final Peer peer : this.peerTable.peers) {
+         synchronized (peer.bitfield) {
+            if (BlockState.isSet(peer.bitfield, index)) {
+               peer.wantedCount += delta;
+            }
+         }
+      }
+   }
+   
+   /**
+    * A batch of blocks downloaded one after the other from the same peer, like BitTorrent's request pipelining. The rate is set by the uploader's fair share
+    * and can change at any time; the transferred bytes are brought up to date on every change and the next event is moved to match the new rate.
+    */
+   private class Transfer {
+      private final Peer               peer;
+      private final int[]              indices;
+      // the download capacity offered to the uploader; only touched by updateDemands
+      private volatile double          demand;
+      
+      // guarded by this
+      private int                      current     = 0;
+      private double                   rate;
+      // download capacity held by this transfer; short of the rate only while the uploaders of other transfers have not yet lowered their rates to the
+      // new demands
+      private double                   reserved    = 0;
+      private double                   transferred = 0;
+      // simulated milliseconds until the first byte of the batch arrives
+      private final long               delay;
+      private long                     updated;
+      private long                     generation  = 0;
+      private boolean                  isFinished  = false;
+      private SimulationEvent          event;
       
-      this.downloadAvailable = download;
-      this.uploadAvailable = upload;
+      private Transfer(final Peer peer, final int[] indices, final double rate, final double demand, final long delay) {
+         this.peer = peer;
+         this.indices = indices;
+         this.rate = rate;
+         this.demand = demand;
+         this.delay = delay;
+      }
       
-      RegistryProxy myProxy = null;
-      try {
-         myProxy = new RegistryProxy(host, port);
-         UnicastRemoteObject.exportObject(this, 0);
-         
-      } catch (final RemoteException e) {
-         throw new RemoteException("Node: export object problem");
+      /**
+       * Hashes by uploader and first block instead of by identity, so the transfer set is iterated in the same order every time a run is replayed.
+       */
+      @Override
+      public int hashCode() {
+         return (31 * this.peer.id) + this.indices[0];
       }
       
-      if (isSeed) {
-         for (int i = 0; i < blockCount; i++) {
-            this.blockCompletion.put(i, 1.0);
+      /**
+       * Starts the batch once the request has reached the peer and the first byte has come back. The blocks after the first are pipelined and follow without
+       * another round trip.
+       */
+      private void start() {
+         Node.this.transfers.add(this);
+         
+         synchronized (this) {
+            this.reserve();
+            this.updated = Node.this.scheduler.currentTime() + this.delay;
+            this.schedule(SimulationEvent.EventType.TRANSFER_START, this.delay);
          }
       }
       
-      try {
-         this.manager = (NodeManagerRef) myProxy.lookup(nodeManagerName);
-         this.manager.registerNode(this);
+      private void step(final long generation) {
+         if (!Node.this.transfers.contains(this)) {
+            // cancelled while this event was already running
+            return;
+         }
          
-         final NodeManagerListener nodeManagerListener = new NodeManagerListener() {
-            @Override
-            public void report(final long sequenceNumber, final NodeManagerEvent event) throws RemoteException {
-               if (event.type == EventType.NODE_ADDED) {
-                  Node.this.peers.put(event.name, event.node);
-               } else if (event.type == EventType.NODE_REMOVED) {
-                  Node.this.peers.remove(event.name);
+         if (Node.this.isDisposed) {
+            this.cancel();
+            return;
+         }
+         
+         final int index;
+         
+         synchronized (this) {
+            if (generation != this.generation) {
+               // replaced by a reschedule after a rate change
+               return;
+            }
+            
+            index = this.indices[this.current];
+            
+            if (!Node.this.blocks.has(index)) {
+               this.advance();
+               
+               if (this.transferred < Node.this.blockSize) {
+                  Node.this.blocks.setProgress(index, this.transferred / Node.this.blockSize);
+                  this.scheduleNext();
+                  return;
                }
             }
-         };
+         }
          
-         UnicastRemoteObject.exportObject(nodeManagerListener, 0);
-         this.manager.addNodeManagerListener(nodeManagerListener);
-      } catch (final RemoteException e) {
-         e.printStackTrace();
+         // either this transfer finished the block or, in endgame mode, another one already delivered it
+         if (Node.this.blocks.complete(index)) {
+            Node.this.picker.completed(index);
+            Node.this.announce(index);
+            Node.this.notifyListeners();
+         }
+         
+         // in endgame mode other peers may be sending this block right now; move them on
+         for (final Transfer transfer : Node.this.transfers) {
+            if (transfer != this) {
+               transfer.skip(index);
+            }
+         }
+         
+         this.next(generation);
       }
       
-      final List<NodeRef> nodes = this.manager.getNodes();
-      
-      for (final NodeRef node : nodes) {
-         try {
-            this.peers.put(node.getName(), node);
-         } catch (final RemoteException e) {
-            // could not access node; ignore
+      /**
+       * Counts the bytes sent at the current rate since the last update. Must hold this transfer's lock.
+       */
+      private void advance() {
+         final long now = Node.this.scheduler.currentTime();
+         
+         if (now <= this.updated) {
+            // still waiting for the first byte of the batch
+            return;
          }
+         
+         final double bytes = (this.rate * (now - this.updated)) / RemoteUtils.SECONDS_IN_MILLISECONDS;
+         
+         this.transferred += bytes;
+         this.updated = now;
+         Node.this.chokeManager.received(this.peer.id, bytes);
       }
-   }
-   
-   @Override
-   public void dispose() throws RemoteException {
-      this.isDisposed = true;
       
-      RemoteUtils.sleep(100);
+      /**
+       * Schedules the next progress update, or the completion of the current block if it comes first. Must hold this transfer's lock.
+       */
+      private void scheduleNext() {
+         // size of block in bytes divided by transfer speed in bytes per second is the number of
+         // seconds the transfer will take
+         // multiply by the number of milliseconds in a second to get the simulated duration
+         final double duration = (Node.this.blockSize / this.rate) * RemoteUtils.SECONDS_IN_MILLISECONDS;
+         final double remaining = ((Node.this.blockSize - this.transferred) / this.rate) * RemoteUtils.SECONDS_IN_MILLISECONDS;
+         final double step = duration / Node.this.scheduler.getProgressSteps(duration);
+         // the rest of the request's round trip if the rate changed before the first byte arrived
+         final long wait = Math.max(0, this.updated - Node.this.scheduler.currentTime());
+         
+         if (remaining <= step) {
+            this.schedule(SimulationEvent.EventType.TRANSFER_COMPLETE, wait + (long) Math.ceil(remaining));
+         } else {
+            this.schedule(SimulationEvent.EventType.TRANSFER_PROGRESS, wait + (long) Math.ceil(step));
+         }
+      }
       
-      try {
-         this.jobs.shutdown();
-      } catch (final Exception e) {
-         // dont care
+      /**
+       * Replaces the pending event. Must hold this transfer's lock.
+       */
+      private void schedule(final SimulationEvent.EventType type, final long delay) {
+         final long generation = ++this.generation;
+         
+         this.event = Node.this.scheduler.schedule(type, delay, new Runnable() {
+            @Override
+            public void run() {
+               Transfer.this.step(generation);
+            }
+         });
       }
       
-      try {
-         this.manager.deregisterNode(this);
-      } catch (final Exception e) {
-         // dont care
+      /**
+       * Switches to a new rate, keeping the bytes already sent for the current block.
+       */
+      private void setRate(final double rate) {
+         synchronized (this) {
+            if (this.isFinished || (rate <= 0) || (rate == this.rate)) {
+               return;
+            }
+            
+            this.advance();
+            this.rate = rate;
+            this.reserve();
+            
+            this.event.cancel();
+            this.scheduleNext();
+         }
       }
       
-   }
-   
-   private int selectRandomBlock() {
-      try {
-         // this.lock.lock();
-         int index = -1;
-         int ctr = 0;
+      /**
+       * Gives up on the current block if it is the given one, because another transfer delivered it.
+       */
+      private void skip(final int index) {
+         final long generation;
          
-         while ((index == -1) && (ctr < this.blockCount)) {
-            index = this.random.next();
-            
-            if (this.blockCompletion.containsKey(index)) {
-               index = -1;
+         synchronized (this) {
+            if (this.isFinished || (this.indices[this.current] != index)) {
+               return;
             }
             
-            ctr++;
+            this.event.cancel();
+            generation = this.generation;
          }
          
-         // took too long to select random index; pick first available
-         if (index == -1) {
-            for (int i = 0; i < this.blockCount; i++) {
-               if (!this.blockCompletion.containsKey(i)) {
-                  index = i;
-                  break;
-               }
+         this.next(generation);
+      }
+      
+      /**
+       * Moves on to the next block of the batch, or finalizes the batch and frees the download slot after the last one. Does nothing if the given event
+       * generation is no longer current, so two callers cannot both move the batch on.
+       */
+      private void next(final long generation) {
+         synchronized (this) {
+            if ((generation != this.generation) || this.isFinished) {
+               return;
             }
+            
+            this.current++;
+            this.transferred = 0;
+            this.updated = Node.this.scheduler.currentTime();
+            
+            if (this.current < this.indices.length) {
+               this.schedule(SimulationEvent.EventType.TRANSFER_START, 0);
+               return;
+            }
+            
+            this.finish();
          }
          
-         return index;
-      } finally {
-         // this.lock.unlock();
+         if (Node.this.transfers.remove(this)) {
+            Node.this.finishBlocks(this);
+            
+            // this download slot is free again
+            Node.this.getBlock();
+         }
       }
-   }
-   
-   @Override
-   public double requestBlock(final String nodeName, final int index, final double maxDownloadAvailable) throws RemoteException {
-      try {
-         // this.lock.lock();
-         
-         if ((nodeName != null) && (this.getBlockCompletion(index) == 1.0)) {
-            synchronized (this.currentUploads) {
-               final double uploadReserved = Math.min(maxDownloadAvailable, Math.min(this.upload / 4.0, this.uploadAvailable));
-               
-               if ((uploadReserved > 0) && (uploadReserved > (this.upload / 6.0))) {
-                  this.decrementUploadAvailable(nodeName, index, uploadReserved);
-                  return uploadReserved;
-               } else {
-                  return 0;
-               }
+      
+      /**
+       * Stops this batch before it completes and frees its download slot.
+       */
+      private void cancel() {
+         if (Node.this.transfers.remove(this)) {
+            synchronized (this) {
+               this.event.cancel();
+               this.finish();
             }
-         } else {
-            return -1;
+            
+            Node.this.finishBlocks(this);
+            Node.this.getBlock();
+         }
+      }
+      
+      /**
+       * Brings the download capacity held by this transfer in line with its rate, as far as capacity is free. Must hold this transfer's lock.
+       */
+      private void reserve() {
+         if (this.isFinished) {
+            return;
+         }
+         
+         if (this.reserved > this.rate) {
+            Node.this.downloadBandwidth.release(this.reserved - this.rate);
+            this.reserved = this.rate;
+         } else if (this.reserved < this.rate) {
+            this.reserved += Node.this.downloadBandwidth.tryAcquire(this.rate - this.reserved);
          }
-      } finally {
-         // this.lock.unlock();
+      }
+      
+      /**
+       * Stops all further events and returns the download capacity. Must hold this transfer's lock.
+       */
+      private void finish() {
+         this.isFinished = true;
+         this.generation++;
+         Node.this.downloadBandwidth.release(this.reserved);
+         this.reserved = 0;
       }
    }
    
-   @Override
-   public void finalizeBlock(final String nodeName, final int index) throws RemoteException {
-      try {
-         // this.lock.lock();
+   /**
+    * Asks the known peers, starting at the given or a random one, for a batch of the blocks the {@link PiecePicker} prefers among the blocks each of them
+    * owns. Peers that own nothing this node still wants are skipped by their wanted count, without asking the picker, and so are peers that refused a
+    * request and have not said they would accept one since. Only in endgame mode, once every missing block is in flight, are all peers offered to the picker.
+    * 
+    * @param peerId
+    *           the id of the peer asked first, -1 to start at a random one
+    */
+   private Transfer getSeed(final int peerId) {
+      final boolean isEndgame = this.picker.getWantedCount() == 0;
+      
+      if (isEndgame && !this.hasEndgame) {
+         // every missing block is in flight and the picker never asks twice
+         return null;
+      }
+      
+      final PeerTable table = this.peerTable;
+      final Peer[] peers = table.peers;
+      int offset = table.indexOf(peerId);
+      
+      if (offset < 0) {
+         offset = (peers.length == 0) ? 0 : this.random.nextInt(peers.length);
+      }
+      
+      final int[] batch = new int[this.pipelineDepth];
+      int requests = 0;
+      
+      // the download capacity is split evenly over the running transfers and this new one
+      final double demand = this.download / (this.transfers.size() + 1);
+      final long now = this.scheduler.currentTime();
+      
+      for (int i = 0; (i < peers.length) && (requests < MAX_REQUESTS); i++) {
+         final Peer peer = peers[(offset + i) % peers.length];
+         
+         if ((!isEndgame && (peer.wantedCount == 0)) || (peer.refusedUntil > now)) {
+            continue;
+         }
+         
+         final int count = this.pickBatch(peer, batch);
+         
+         if (count == 0) {
+            continue;
+         }
+         
+         final int[] indices = new int[count];
+         System.arraycopy(batch, 0, indices, 0, count);
+         requests++;
          
-         if (nodeName != null) {
-            final Double value = this.currentUploads.get(Pair.getInstance(nodeName, index));
+         try {
+            final long delay = this.getRequestDelay(peer);
+            final double rate = peer.node.requestBlocks(this.id, indices, demand);
             
-            if (value != null) {
-               this.incrementUploadAvailable(nodeName, index);
+            if (rate > 0) {
+               this.reserveBlocks(peer.id, indices);
+               return new Transfer(peer, indices, rate, demand, delay);
+            } else if ((rate == CHOKED) || (rate == 0)) {
+               // the peer sends an unchoke when it lets this node in, or offers an upload slot once one is free
+               peer.refusedUntil = now + REFUSAL_TIMEOUT;
             }
+         } catch (final RemoteException e) {
+            // nothing; node is gone, just skip
+            this.removePeer(peer.id);
          }
-      } finally {
-         // this.lock.unlock();
+         
+         this.unpickBlocks(indices);
       }
+      
+      return null;
    }
    
-   public void startProcess() throws RemoteException, InterruptedException {
-      this.startTime = System.nanoTime();
+   /**
+    * Returns how long a request to the given peer takes to bring back its first byte. The round trip time of a peer is looked up on the first request rather
+    * than when the peer connects, since by then both nodes have their ids.
+    * 
+    * @return the delay in simulated milliseconds; 0 if the swarm has no {@link NetworkModel}
+    */
+   private long getRequestDelay(final Peer peer) throws RemoteException {
+      if (this.network == null) {
+         return 0;
+      }
       
-      if (this.isSeed) {
-         this.endTime = this.startTime;
-      } else {
-         while (!this.isSeed && !this.isDisposed) {
-            this.getBlock();
-         }
+      if (peer.roundTripTime < 0) {
+         peer.roundTripTime = this.network.getRoundTripTime(this.seed, this.id, this.latency, peer.id, peer.node.getLatency());
       }
+      
+      return this.network.getRequestDelay(peer.roundTripTime, this.random);
    }
    
-   private void getBlock() {
-      final Runnable runnable = new Runnable() {
-         @Override
-         public void run() {
-            NodeRef node = null;
-            int index = -1;
-            
-            try {
-               final Index indexReturnValue = new Index();
-               node = Node.this.getSeed(indexReturnValue);
-               index = indexReturnValue.getIndex();
+   /**
+    * Picks up to a full pipeline of blocks owned by the given peer. The picker stops offering them right away, but they only count as reserved once the peer
+    * accepts the request, so a refused request is undone without touching the wanted counts of the peers.
+    * 
+    * @return the number of blocks written to batch
+    */
+   private int pickBatch(final Peer peer, final int[] batch) {
+      int count = 0;
+      
+      synchronized (this.peerLock) {
+         synchronized (peer.bitfield) {
+            while (count < batch.length) {
+               final int block = this.picker.pick(peer.bitfield);
                
-               if (node != null) {
-                  final Pair<String, Integer> pair = Pair.getInstance(node.getName(), index);
-                  final Double uploadReserved = Node.this.currentDownloads.get(pair);
-                  
-                  if (uploadReserved != null) {
-                     // size of block in bytes divided by transfer speed in bytes per second is the number of
-                     // seconds the transfer will take
-                     // multiply by the number of milliseconds in a second to get wait time
-                     // divide by 100 to get duration per percent complete (tenths of a second)
-                     // bytes / bytes per second * ms per second = bytes per ms
-                     final double duration = (Node.this.blockSize / uploadReserved) * RemoteUtils.SECONDS_IN_MILLISECONDS;
-                     final double step = RemoteUtils.getStep(duration * RemoteUtils.TIME_DILATION_RATIO);
-                     final double inc = RemoteUtils.getIncrements(duration * RemoteUtils.TIME_DILATION_RATIO);
-                     double value = 0;
-                     
-                     Node.this.setBlockCompletion(index, 0.0);
-                     
-                     for (int i = 0; i < inc; i++) {
-                        RemoteUtils.sleep((long) step);
-                        value += 1.0 / inc;
-                        Node.this.setBlockCompletion(index, value);
-                     }
-                     
-                     Node.this.setBlockCompletion(index, 1.0);
-                     Node.this.incrementDownloadAvailable(pair.left, pair.right);
-                     Node.this.notifyListeners();
-                  }
-               }
-            } catch (final Exception e) {
-               e.printStackTrace();
-            }
-            
-            if (node != null) {
-               try {
-                  node.finalizeBlock(Node.this.name, index);
-                  Node.this.incrementDownloadAvailable(node.getName(), index);
-               } catch (final RemoteException e) {
-                  e.printStackTrace();
-               }
-            }
-            
-            try {
-               if (Node.this.getBlockCompletion(index) != 1.0) {
-                  Node.this.setBlockCompletion(index, null);
+               // a block already queued from this peer can only be picked again in endgame mode
+               if ((block == -1) || this.queued.containsKey(getKey(peer.id, block)) || contains(batch, count, block)) {
+                  break;
                }
-            } catch (final RemoteException e) {
-               e.printStackTrace();
+               
+               this.picker.reserved(block);
+               batch[count++] = block;
             }
-            
-            Node.this.checkSeedStatus();
          }
-      };
+      }
       
-      // will block if jobs service is full
-      this.jobs.execute(runnable);
+      return count;
    }
    
-   private void setBlockCompletion(final Integer index, final Double value) {
-      try {
-         // this.lock.lock();
-         if ((value == null) || (value == -1)) {
-            this.blockCompletion.remove(index);
-         } else {
-            this.blockCompletion.put(index, value);
+   /**
+    * Reserves the blocks of a request the peer accepted, so no other peer is asked for them and the peer is not asked for them twice.
+    */
+   private void reserveBlocks(final int peerId, final int[] indices) {
+      synchronized (this.peerLock) {
+         for (final int index : indices) {
+            this.queued.put(getKey(peerId, index), 1);
+            
+            if (this.blocks.reserve(index)) {
+               this.updateWantedCounts(index, -1);
+            }
          }
-      } finally {
-         // this.lock.unlock();
       }
    }
    
-   private NodeRef getSeed(final Index index) {
-      try {
-         // this.lock.lock();
-         final List<NodeRef> peers = new ArrayList<NodeRef>();
-         final UniformIntPrng peerRandoms = new UniformIntPrng(new Random(), 0, this.peers.size() - 1);
-         double uploadReserved = 0;
-         int ctr = 0;
-         NodeRef peer = null;
-         
-         peers.addAll(this.peers.values());
-         
-         while ((uploadReserved <= 0) && (ctr < 100)) {
-            index.setIndex(this.selectRandomBlock());
-            peer = peers.get(peerRandoms.next());
-            
-            try {
-               if (!peer.getName().equals(this.name)) {
-                  synchronized (this.currentDownloads) {
-                     uploadReserved = peer.requestBlock(this.name, index.getIndex(), this.downloadAvailable);
-                     ctr++;
-                     
-                     if (uploadReserved > 0) {
-                        this.decrementDownloadAvailable(peer.getName(), index.getIndex(), uploadReserved);
-                        return peer;
-                     }
-                  }
-               }
-            } catch (final RemoteException e) {
-               // nothing; node is gone, just skip
-               // e.printStackTrace();
-               this.peers.remove(peer);
+   /**
+    * Hands the blocks of a refused request back to the picker, unless another transfer, which can only be running in endgame mode, still holds them.
+    */
+   private void unpickBlocks(final int[] indices) {
+      synchronized (this.peerLock) {
+         for (final int index : indices) {
+            if (this.blocks.isWanted(index)) {
+               this.picker.released(index);
             }
          }
-      } finally {
-         // this.lock.unlock();
       }
-      
-      index.setIndex(-1);
-      return null;
    }
    
-   private void checkSeedStatus() {
-      double progress = 0;
-      
-      try {
-         progress = this.getProgress();
-      } catch (final RemoteException e) {
-         // shouldn't happen; called locally
-         e.printStackTrace();
+   private static boolean contains(final int[] values, final int count, final int value) {
+      for (int i = 0; i < count; i++) {
+         if (values[i] == value) {
+            return true;
+         }
       }
       
-      if (progress == 1.0) {
+      return false;
+   }
+   
+   private synchronized void checkSeedStatus() {
+      if (this.blocks.isComplete() && !this.isSeed) {
          this.isSeed = true;
-         this.endTime = System.nanoTime();
+         this.endTime = this.scheduler.currentTime();
          try {
-            this.manager.addSeed(this);
+            this.manager.addSeed(this, this.endTime - this.startTime);
          } catch (final RemoteException e) {
             e.printStackTrace();
          }
-      }
-   }
-   
-   private void decrementDownloadAvailable(final String name, final int index, final double download) {
-      this.downloadAvailable -= download;
-      this.setBlockCompletion(index, -0.5);
-      this.currentDownloads.put(Pair.getInstance(name, index), download);
-   }
-   
-   private void incrementDownloadAvailable(final String name, final int index) {
-      final Double download = this.currentDownloads.remove(Pair.getInstance(name, index));
-      
-      if (download != null) {
-         this.downloadAvailable += download;
-      }
-   }
-   
-   private void decrementUploadAvailable(final String name, final int index, final double upload) {
-      this.uploadAvailable -= upload;
-      this.currentUploads.put(Pair.getInstance(name, index), upload);
-   }
-   
-   private void incrementUploadAvailable(final String name, final int index) {
-      final Double upload = this.currentUploads.remove(Pair.getInstance(name, index));
-      
-      if (upload != null) {
-         this.uploadAvailable += upload;
+         
+         if (this.isTracker) {
+            this.dropSeedPeers();
+         }
       }
    }
    
@@ -398,6 +1386,11 @@ public class Node implements NodeRef {
       return this.name;
    }
    
+   @Override
+   public int getId() throws RemoteException {
+      return this.id;
+   }
+   
    @Override
    public long getBlockSize(final int _index) throws RemoteException {
       return this.blockSize;
@@ -418,34 +1411,34 @@ public class Node implements NodeRef {
       return this.upload;
    }
    
+   @Override
+   public double getLatency() throws RemoteException {
+      return this.latency;
+   }
+   
    @Override
    public double getCurrentDownloadRate() throws RemoteException {
-      return this.download - this.downloadAvailable;
+      return this.downloadBandwidth.getUsed();
    }
    
    @Override
    public double getCurrentUploadRate() throws RemoteException {
-      return this.upload - this.uploadAvailable;
+      return this.uploadShare.getUsed();
    }
    
    @Override
    public double getAvailableDownloadRate() throws RemoteException {
-      return this.downloadAvailable;
+      return this.downloadBandwidth.getAvailable();
    }
    
    @Override
    public double getAvailableUploadRate() throws RemoteException {
-      return this.uploadAvailable;
+      return this.uploadShare.getAvailable();
    }
    
    @Override
    public Double[] getStatus() throws RemoteException {
-      try {
-         // this.lock.lock();
-         return this.blockCompletion.values().toArray(new Double[this.blockCompletion.size()]);
-      } finally {
-         // this.lock.unlock();
-      }
+      return this.blocks.getStatus();
    }
    
    @Override
@@ -455,67 +1448,184 @@ public class Node implements NodeRef {
    
    @Override
    public long getTransferTime() throws RemoteException {
-      final long currentTime = ((this.isSeed) ? this.endTime : System.nanoTime());
-      final long duration = (this.startTime > 0) ? (currentTime - this.startTime) : 0; // ensures that 0 is returned before the startTime is set
-      return (long) (duration / RemoteUtils.MILLISECOND_IN_NANOSECONDS / RemoteUtils.TIME_DILATION_RATIO);
+      final long currentTime = ((this.isSeed) ? this.endTime : this.scheduler.currentTime());
+      return (this.startTime >= 0) ? (currentTime - this.startTime) : 0; // ensures that 0 is returned before the startTime is set
    }
    
    @Override
    public double getProgress() throws RemoteException {
-      try {
-         // this.lock.lock();
-         double total = 0;
-         
-         for (final Double value : this.blockCompletion.values()) {
-            total += (value < 0) ? 0 : value;
-         }
-         
-         return total / this.blockCount;
-      } finally {
-         // this.lock.unlock();
-      }
+      return this.blocks.getProgress();
    }
    
    @Override
    public long estimatedTime() throws RemoteException {
-      final long duration = (((this.isSeed) ? this.endTime : System.nanoTime()) - this.startTime) / RemoteUtils.MILLISECOND_IN_NANOSECONDS;
-      return (long) (((100.0 * duration) / RemoteUtils.TIME_DILATION_RATIO) / this.getProgress());
+      return (long) ((100.0 * this.getTransferTime()) / this.getProgress());
    }
    
    @Override
    public Lease addNodeListener(final NodeListener listener) throws RemoteException {
-      return this.eventGenerator.addListener(listener);
+      return this.eventBus.addListener(listener);
    }
    
    private void notifyListeners() {
-      double progress;
-      try {
-         progress = this.getProgress();
-         this.eventGenerator.reportEvent(new NodeEvent(this, this.name, progress));
-      } catch (final RemoteException e) {
-         // don't care; it's local
-      }
+      this.eventBus.post(new NodeEvent(this, this.name, this.blocks.getProgress(), this.blocks.getVersion()));
    }
    
    @Override
    public double getBlockCompletion(final int index) throws RemoteException {
-      try {
-         // this.lock.lock();
-         final Double value = this.blockCompletion.get(index);
-         
-         return (value == null) ? -1 : value;
-      } finally {
-         // this.lock.unlock();
-      }
+      return this.blocks.get(index);
    }
    
    @Override
    public int getUploadCount() throws RemoteException {
-      return this.currentUploads.size();
+      return this.uploadShare.size();
    }
    
    @Override
    public int getDownloadCount() throws RemoteException {
-      return this.currentDownloads.size();
+      return this.transfers.size();
+   }
+   
+   @Override
+   public NodeStatus getSnapshot(final long sinceVersion) throws RemoteException {
+      return new NodeStatus(this.name, this.isSeed, this.blockCount, this.upload, this.download, this.getAvailableUploadRate(),
+            this.getAvailableDownloadRate(), this.getUploadCount(), this.getDownloadCount(), this.blocks.getProgress(), this.getTransferTime(),
+            this.blocks.getBlocks(sinceVersion));
+   }
+   
+   /**
+    * A known peer and the blocks it is known to own, from its bitfield and the HAVE announcements received since.
+    */
+   private static class Peer {
+      private final int       id;
+      private final NodeRef   node;
+      private final long[]    bitfield;
+      private final int       blockCount;
+      // milliseconds; negative until the first request to the peer
+      private volatile double roundTripTime = -1;
+      // guarded by bitfield
+      private int             ownedCount    = 0;
+      // number of owned blocks the node neither owns nor has reserved; written while holding the node's peerLock, read without it as a hint
+      private volatile int    wantedCount   = 0;
+      // simulated time until which the peer is taken to refuse this node; set when it refuses a request as CHOKED or for want of an upload slot, and
+      // cleared when it unchokes this node or offers it a slot
+      private volatile long   refusedUntil  = 0;
+      
+      private Peer(final int id, final NodeRef node, final long[] bitfield, final int blockCount) {
+         this.id = id;
+         this.node = node;
+         this.bitfield = bitfield;
+         this.blockCount = blockCount;
+         
+         for (final long word : bitfield) {
+            this.ownedCount += Long.bitCount(word);
+         }
+      }
+      
+      private boolean isComplete() {
+         synchronized (this.bitfield) {
+            return this.ownedCount == this.blockCount;
+         }
+      }
+   }
+   
+   /**
+    * The known peers of a node, by id. Open addressing over a table at most half full, so its size follows the number of peers rather than the highest id in
+    * the swarm. A table is never changed once created; adding or removing a peer makes a new one, so lookups and iteration need no lock.
+    */
+   private static final class PeerTable {
+      private static final PeerTable EMPTY = new PeerTable(new Peer[0]);
+      
+      // every peer once, for iteration
+      private final Peer[]           peers;
+      // peers by id, the length a power of two
+      private final Peer[]           slots;
+      
+      private PeerTable(final Peer[] peers) {
+         int capacity = 4;
+         
+         while (capacity < (peers.length * 2)) {
+            capacity <<= 1;
+         }
+         
+         this.peers = peers;
+         this.slots = new Peer[capacity];
+         
+         for (final Peer peer : peers) {
+            int slot = peer.id & (capacity - 1);
+            
+            while (this.slots[slot] != null) {
+               slot = (slot + 1) & (capacity - 1);
+            }
+            
+            this.slots[slot] = peer;
+         }
+      }
+      
+      /**
+       * Returns the position of a peer in {@link #peers}, which is in id order.
+       * 
+       * @return the position, or -1 if the peer is not known
+       */
+      private int indexOf(final int id) {
+         int low = 0;
+         int high = this.peers.length - 1;
+         
+         while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int middleId = this.peers[middle].id;
+            
+            if (middleId < id) {
+               low = middle + 1;
+            } else if (middleId > id) {
+               high = middle - 1;
+            } else {
+               return middle;
+            }
+         }
+         
+         return -1;
+      }
+      
+      private Peer get(final int id) {
+         final int mask = this.slots.length - 1;
+         
+         // ids are dense, so the id itself spreads well over the slots
+         for (int slot = id & mask; this.slots[slot] != null; slot = (slot + 1) & mask) {
+            if (this.slots[slot].id == id) {
+               return this.slots[slot];
+            }
+         }
+         
+         return null;
+      }
+      
+      /**
+       * Returns a table without the removed peer and with the added one. Peers are kept in id order, so the order does not depend on which of two
+       * connecting nodes got there first.
+       */
+      private PeerTable copy(final Peer removed, final Peer added) {
+         final Peer[] copy = new Peer[this.peers.length + ((added == null) ? 0 : 1) - ((removed == null) ? 0 : 1)];
+         int count = 0;
+         boolean isAdded = added == null;
+         
+         for (final Peer peer : this.peers) {
+            if (!isAdded && (peer.id > added.id)) {
+               copy[count++] = added;
+               isAdded = true;
+            }
+            
+            if (peer != removed) {
+               copy[count++] = peer;
+            }
+         }
+         
+         if (!isAdded) {
+            copy[count] = added;
+         }
+         
+         return new PeerTable(copy);
+      }
    }
-}
\ No newline at end of file
+
+}
@@ -6,10 +6,13 @@ public class NodeEvent extends RemoteEvent {
    public final NodeRef node;
    public final String  name;
    public final double  progress;
+   // block version of the node; a listener holding an older {@link NodeStatus} can fetch the changed blocks with NodeRef.getSnapshot(long)
+   public final long    version;
    
-   public NodeEvent(final NodeRef node, final String name, final double progress) {
+   public NodeEvent(final NodeRef node, final String name, final double progress, final long version) {
       this.node = node;
       this.name = name;
       this.progress = progress;
+      this.version = version;
    }
 }
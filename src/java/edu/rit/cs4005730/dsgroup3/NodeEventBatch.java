@@ -0,0 +1,21 @@
+package edu.rit.cs4005730.dsgroup3;
+
+import edu.rit.ds.RemoteEvent;
+
+/**
+ * The {@link NodeEvent}s a {@link NodeListener} receives in one call from a {@link NodeEventBus}: the latest event of every node that changed since the
+ * listener's previous batch. Events that were superseded before the listener got to them are not included, only counted.
+ *
+ */
+public class NodeEventBatch extends RemoteEvent {
+   private static final long serialVersionUID = 1L;
+
+   public final NodeEvent[]  events;
+   // events dropped for this listener because a newer one of the same node replaced them
+   public final int          superseded;
+
+   public NodeEventBatch(final NodeEvent[] events, final int superseded) {
+      this.events = events;
+      this.superseded = superseded;
+   }
+}
@@ -0,0 +1,217 @@
+package edu.rit.cs4005730.dsgroup3;
+
+import java.rmi.RemoteException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import edu.rit.cs4005730.dsgroup3.sim.Scheduler;
+import edu.rit.cs4005730.dsgroup3.sim.SimulationEvent;
+import edu.rit.ds.Lease;
+import edu.rit.ds.LeaseListener;
+
+/**
+ * Coalescing fan-out of {@link NodeEvent}s. One bus serves a whole swarm: every node posts to it, so a listener gets one batch per interval covering every
+ * node that changed rather than one call per node. Posted events are collected for one interval of {@link Scheduler} time, keeping only the latest event per
+ * node, and then handed to every listener as a single {@link NodeEventBatch}. Each listener is called from one delivery at a time; while it is still busy
+ * with a batch, newer events replace the ones waiting for it instead of queueing behind them, so a slow listener sees fewer, more recent batches and never
+ * holds up the swarm or the other listeners.
+ *
+ * Nothing is scheduled while there are no listeners, so a headless swarm pays nothing for its events.
+ *
+ */
+public class NodeEventBus {
+   // default coalescing interval in milliseconds of scheduler time
+   public static final long              DEFAULT_INTERVAL = 50;
+
+   // delivers batches so that listeners never run on a scheduler thread
+   private static final ExecutorService  DELIVERY         = Executors.newCachedThreadPool(new ThreadFactory() {
+                                                              @Override
+                                                              public Thread newThread(final Runnable runnable) {
+                                                                 final Thread thread = new Thread(runnable, "NodeEventBus");
+                                                                 thread.setDaemon(true);
+                                                                 return thread;
+                                                              }
+                                                           });
+
+   private final Scheduler               scheduler;
+   private final long                    interval;
+   private final List<Subscription>      subscriptions    = new CopyOnWriteArrayList<Subscription>();
+   // latest event per node since the last flush, keyed by the node since names need not be unique; guarded by this
+   private final Map<NodeRef, NodeEvent> pending          = new LinkedHashMap<NodeRef, NodeEvent>();
+   private int                           superseded       = 0;
+   private boolean                       isFlushScheduled = false;
+
+   /**
+    * Creates an event bus that flushes on the given scheduler.
+    *
+    * @param scheduler
+    *           the {@link Scheduler} whose time the interval is measured in
+    * @param interval
+    *           the coalescing interval in milliseconds
+    */
+   public NodeEventBus(final Scheduler scheduler, final long interval) {
+      this.scheduler = scheduler;
+      this.interval = Math.max(0, interval);
+   }
+
+   /**
+    * Adds a listener that receives batches until the returned lease is canceled or expires, or a delivery fails. A listener that is already subscribed, e.g.
+    * because it was added through every node of the swarm, is not added again and gets the lease of its subscription.
+    *
+    * @param listener
+    *           the listener to add
+    * @return the lease of the registration
+    * @throws RemoteException
+    */
+   public synchronized Lease addListener(final NodeListener listener) throws RemoteException {
+      for (final Subscription subscription : this.subscriptions) {
+         if (subscription.listener.equals(listener)) {
+            return subscription.lease;
+         }
+      }
+
+      final Subscription subscription = new Subscription(listener, new Lease());
+      subscription.lease.setListener(subscription);
+      this.subscriptions.add(subscription);
+      return subscription.lease;
+   }
+
+   /**
+    * Queues an event for the next batch, replacing any queued event of the same node.
+    *
+    * @param event
+    *           the event to post
+    */
+   public void post(final NodeEvent event) {
+      if (this.subscriptions.isEmpty()) {
+         return;
+      }
+
+      synchronized (this) {
+         if (this.pending.put(event.node, event) != null) {
+            this.superseded++;
+         }
+
+         if (this.isFlushScheduled) {
+            return;
+         }
+
+         this.isFlushScheduled = true;
+      }
+
+      this.scheduler.schedule(SimulationEvent.EventType.TIMER, this.interval, new Runnable() {
+         @Override
+         public void run() {
+            NodeEventBus.this.flush();
+         }
+      });
+   }
+
+   private void flush() {
+      final NodeEvent[] events;
+      final int superseded;
+
+      synchronized (this) {
+         events = this.pending.values().toArray(new NodeEvent[this.pending.size()]);
+         superseded = this.superseded;
+         this.pending.clear();
+         this.superseded = 0;
+         this.isFlushScheduled = false;
+      }
+
+      for (final Subscription subscription : this.subscriptions) {
+         subscription.offer(events, superseded);
+      }
+   }
+
+   /**
+    * One listener and the events waiting for it while it is busy.
+    */
+   private class Subscription implements LeaseListener, Runnable {
+      private final NodeListener            listener;
+      private final Lease                   lease;
+      // guarded by this
+      private final Map<NodeRef, NodeEvent> mailbox      = new LinkedHashMap<NodeRef, NodeEvent>();
+      private int                           superseded   = 0;
+      private boolean                       isDelivering = false;
+      // only touched by the single running delivery
+      private long                          sequence     = 0;
+
+      private Subscription(final NodeListener listener, final Lease lease) {
+         this.listener = listener;
+         this.lease = lease;
+      }
+
+      private void offer(final NodeEvent[] events, final int superseded) {
+         synchronized (this) {
+            this.superseded += superseded;
+
+            for (final NodeEvent event : events) {
+               if (this.mailbox.put(event.node, event) != null) {
+                  this.superseded++;
+               }
+            }
+
+            if (this.isDelivering) {
+               return;
+            }
+
+            this.isDelivering = true;
+         }
+
+         DELIVERY.execute(this);
+      }
+
+      @Override
+      public void run() {
+         while (true) {
+            final NodeEventBatch batch;
+
+            synchronized (this) {
+               if (this.mailbox.isEmpty()) {
+                  this.isDelivering = false;
+                  return;
+               }
+
+               batch = new NodeEventBatch(this.mailbox.values().toArray(new NodeEvent[this.mailbox.size()]), this.superseded);
+               this.mailbox.clear();
+               this.superseded = 0;
+            }
+
+            try {
+               this.listener.report(this.sequence++, batch);
+            } catch (final RemoteException e) {
+               // the listener is gone; stop delivering to it
+               NodeEventBus.this.subscriptions.remove(this);
+
+               synchronized (this) {
+                  this.mailbox.clear();
+                  this.isDelivering = false;
+               }
+
+               return;
+            }
+         }
+      }
+
+      @Override
+      public void leaseRenewed(final Lease lease) {
+         // nothing to do
+      }
+
+      @Override
+      public void leaseCanceled(final Lease lease) {
+         NodeEventBus.this.subscriptions.remove(this);
+      }
+
+      @Override
+      public void leaseExpired(final Lease lease) {
+         NodeEventBus.this.subscriptions.remove(this);
+      }
+   }
+}
@@ -3,11 +3,12 @@ package edu.rit.cs4005730.dsgroup3;
 import edu.rit.ds.RemoteEventListener;
 
 /**
- * Listener class that will be added to a {@link Node} object to listen for transfer progress events.
+ * Listener class that will be added to a {@link Node} object to listen for transfer progress events. Events are coalesced by a {@link NodeEventBus} and
+ * arrive in batches.
  * 
  * @author Roshan Balaji
  * 
  */
-public interface NodeListener extends RemoteEventListener<NodeEvent> {
+public interface NodeListener extends RemoteEventListener<NodeEventBatch> {
    
 }
\ No newline at end of file
@@ -1,19 +1,29 @@
 package edu.rit.cs4005730.dsgroup3;
 
-import java.rmi.NoSuchObjectException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.rmi.RemoteException;
-import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import edu.rit.cs4005730.dsgroup3.NodeManagerEvent.EventType;
+import edu.rit.cs4005730.dsgroup3.sim.Scenario;
+import edu.rit.cs4005730.dsgroup3.transport.RmiTransport;
+import edu.rit.cs4005730.dsgroup3.transport.Transport;
+import edu.rit.cs4005730.dsgroup3.util.SplitMix;
 import edu.rit.ds.Lease;
 import edu.rit.ds.RemoteEventGenerator;
 import edu.rit.ds.registry.AlreadyBoundException;
-import edu.rit.ds.registry.RegistryProxy;
 
 /**
  * Allows for the registration of remote {@link NodeRef} objects as well as the lookup of all other {@link NodeRef} objects in the system.
@@ -25,86 +35,178 @@ import edu.rit.ds.registry.RegistryProxy;
  */
 
 public class NodeManager implements NodeManagerRef {
+   // lock stripes of the registry maps; nodes of a large swarm register from many threads at once
+   private static final int                             CONCURRENCY    = 64;
+   
    // final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-   private final Map<String, NodeRef>                   seeds          = new ConcurrentHashMap<String, NodeRef>();
-   private final List<NodeRef>                          peers          = new CopyOnWriteArrayList<NodeRef>();
-   private final GeneralStatistics                      stats          = new GeneralStatistics();
-   private final RegistryProxy                          myProxy;
+   // registered nodes by id; membership changes are O(1) and iteration needs no copy
+   private final ConcurrentMap<Integer, NodeRef>        nodes          = new ConcurrentHashMap<Integer, NodeRef>(16, 0.75f, CONCURRENCY);
+   // the registered nodes that are seeds, by id
+   private final ConcurrentMap<Integer, NodeRef>        seeds          = new ConcurrentHashMap<Integer, NodeRef>(16, 0.75f, CONCURRENCY);
+   // download times reported through addSeed by id, so a leaving node's time can be taken out of the statistics
+   private final Map<Integer, Long>                     durations      = new ConcurrentHashMap<Integer, Long>(16, 0.75f, CONCURRENCY);
+   // dense ids of the registered nodes, keyed by the node itself since names need not be unique; ids come from a counter, so an id is never handed to
+   // another node, even after its node leaves
+   private final ConcurrentMap<NodeRef, Integer>        ids            = new ConcurrentHashMap<NodeRef, Integer>(16, 0.75f, CONCURRENCY);
+   private final AtomicInteger                          nextId         = new AtomicInteger();
+   // these three follow the config of the current swarm and are replaced by reset
+   private volatile GeneralStatistics                   stats;
+   // true if nodes learn about each other through announce instead of NODE_ADDED and NODE_REMOVED events
+   private volatile boolean                             isTracker;
+   private volatile Random                              random;
    private final RemoteEventGenerator<NodeManagerEvent> eventGenerator = new RemoteEventGenerator<NodeManagerEvent>();
    
-   public NodeManager(final String args[]) throws RemoteException, AlreadyBoundException {
+   /**
+    * Creates a {@link NodeManager} for the swarm of the given config and binds it under {@link SwarmConfig#nodeManagerName} with the given {@link Transport}.
+    * 
+    * @param transport
+    *           the {@link Transport} nodes will use to look this manager up
+    * @param config
+    *           the {@link SwarmConfig} of the swarm this manager keeps track of
+    * @throws RemoteException
+    */
+   public NodeManager(final Transport transport, final SwarmConfig config) throws RemoteException {
       super();
-      // Verify command line arguments.
-      if (args.length != 3) {
-         throw new IllegalArgumentException("NodeManager: <host> <port> <name>");
-      }
-      final String host = args[0];
-      final String name = args[2];
-      int port;
-      try {
-         port = Integer.parseInt(args[1]);
-      } catch (final NumberFormatException exc) {
-         throw new IllegalArgumentException("NodeManager: Invalid port: \"" + args[1] + "\"");
-      }
-      
-      // Get a proxy for the Registry Server.
-      try {
-         this.myProxy = new RegistryProxy(host, port);
-      } catch (final RemoteException e) {
-         throw new RemoteException("NodeManager: Invalid Registry Server Not found");
-      }
-      // Export.
-      
-      UnicastRemoteObject.exportObject(this, 0);
       
-      // Rebind into the Registry Server.
+      this.stats = new GeneralStatistics(config);
+      this.isTracker = config.isTracker;
+      this.random = SplitMix.newRandom(config.seed, config.nodeManagerName);
       
       try {
-         
-         this.myProxy.bind(name, this);
-         
-      } catch (final RemoteException exc) {
-         try {
-            UnicastRemoteObject.unexportObject(this, true);
-            throw new RemoteException("NodeManager: Invalid Registry Server Not found");
-         } catch (final NoSuchObjectException exc2) {
-         }
-         throw exc;
+         transport.bind(config.nodeManagerName, this);
       } catch (final AlreadyBoundException exc) {
+         throw new IllegalArgumentException("NodeManager(): <NodeManagername> = \"" + config.nodeManagerName + "\" already exists");
+      }
+   }
+   
+   /**
+    * Creates a {@link NodeManager} reachable through RMI. The swarm settings are read from the scenario properties file if one is given (see
+    * {@link Scenario}); otherwise they are the defaults, and whoever sets up the swarm passes its settings with {@link #reset(SwarmConfig)}.
+    * 
+    * @param args
+    *           &lt;host&gt; &lt;port&gt; &lt;name&gt; [&lt;scenario file&gt;]
+    */
+   public NodeManager(final String args[]) throws RemoteException, AlreadyBoundException {
+      this(new RmiTransport(getHost(args), getPort(args)), getConfig(args));
+   }
+   
+   private static String getHost(final String args[]) {
+      // Verify command line arguments.
+      if ((args.length != 3) && (args.length != 4)) {
+         throw new IllegalArgumentException("NodeManager: <host> <port> <name> [<scenario file>]");
+      }
+      return args[0];
+   }
+   
+   private static SwarmConfig getConfig(final String args[]) {
+      final Properties properties = new Properties();
+      
+      if (args.length == 4) {
          try {
-            UnicastRemoteObject.unexportObject(this, true);
-            throw new AlreadyBoundException("NodeManager: The object is already Bounded");
-         } catch (final NoSuchObjectException exc2) {
+            final InputStream in = new FileInputStream(args[3]);
+            
+            try {
+               properties.load(in);
+            } finally {
+               in.close();
+            }
+         } catch (final IOException exc) {
+            throw new IllegalArgumentException("NodeManager: Invalid scenario file: \"" + args[3] + "\"");
          }
-         throw new IllegalArgumentException("NodeManager(): <NodeManagername> = \"" + name + "\" already exists");
+      }
+      
+      return new Scenario(properties).config.toBuilder().nodeManagerName(args[2]).build();
+   }
+   
+   private static int getPort(final String args[]) {
+      try {
+         return Integer.parseInt(args[1]);
+      } catch (final NumberFormatException exc) {
+         throw new IllegalArgumentException("NodeManager: Invalid port: \"" + args[1] + "\"");
       }
    }
    
    /**
-    * Adds a new {@link NodeRef} to the registration system. If the Node already exists, the Node will not be added again.
+    * Adds a new {@link NodeRef} to the registration system. Every node gets an id of its own, even if another node has the same name. If the node is already
+    * registered, it keeps its id and is not added again.
     * 
     * @param NodeRef
     *           the {@link NodeRef} to add
+    * @return the dense id of the node, which nodes use instead of its name to identify it in block transfers
     * @throws RemoteException
     */
    @Override
-   public void registerNode(final NodeRef _node) throws RemoteException {
+   public int registerNode(final NodeRef _node) throws RemoteException {
+      final int id = this.register(_node);
+      
+      if (!this.isTracker) {
+         this.notifyListeners(EventType.NODE_ADDED, _node, id);
+      }
+      
+      return id;
+   }
+   
+   /**
+    * Adds several {@link NodeRef} objects to the registration system in one call, as {@link #registerNode(NodeRef)} does for each of them.
+    * 
+    * @param _nodes
+    *           the {@link NodeRef} objects to add
+    * @return the dense id of every node, in the order of the list
+    * @throws RemoteException
+    */
+   @Override
+   public int[] registerNodes(final List<NodeRef> _nodes) throws RemoteException {
+      final int[] ids = new int[_nodes.size()];
+      
+      for (int i = 0; i < ids.length; i++) {
+         ids[i] = this.register(_nodes.get(i));
+      }
+      
+      if (!this.isTracker) {
+         for (int i = 0; i < ids.length; i++) {
+            this.notifyListeners(EventType.NODE_ADDED, _nodes.get(i), ids[i]);
+         }
+      }
+      
+      return ids;
+   }
+   
+   private int register(final NodeRef _node) throws RemoteException {
+      final boolean isSeed = _node.isSeed();
+      final int id = this.getId(_node);
+      
       try {
          // this.lock.writeLock().lock();
-         if (!this.peers.contains(_node)) {
-            if (_node.isSeed()) {
-               this.seeds.put(_node.getName(), _node);
+         if (this.nodes.putIfAbsent(id, _node) == null) {
+            if (isSeed) {
+               this.seeds.put(id, _node);
             }
             
-            this.peers.add(_node);
+            // counts are kept up to date as nodes come and go instead of asking every node again
+            this.stats.nodeAdded(isSeed);
          }
       } finally {
          // this.lock.writeLock().unlock();
       }
       
-      // update whenever new nodes are added (this can trigger resets if necessary)
-      this.stats.updateStats(this.peers, this.seeds);
-      this.notifyListeners(EventType.NODE_ADDED, _node);
+      return id;
+   }
+   
+   /**
+    * Returns the id of a node, handing out the next one if the node has none yet. Two threads registering the same node at once agree on one id through
+    * putIfAbsent; the loser's id is never handed out, which only leaves a gap.
+    */
+   private int getId(final NodeRef _node) {
+      final Integer id = this.ids.get(_node);
+      
+      if (id != null) {
+         return id;
+      }
+      
+      final Integer next = this.nextId.getAndIncrement();
+      final Integer existing = this.ids.putIfAbsent(_node, next);
+      
+      return (existing == null) ? next : existing;
    }
    
    /**
@@ -116,18 +218,58 @@ public class NodeManager implements NodeManagerRef {
     */
    @Override
    public void deregisterNode(final NodeRef _node) throws RemoteException {
+      final int id = this.deregister(_node);
+      
+      if ((id >= 0) && !this.isTracker) {
+         this.notifyListeners(EventType.NODE_REMOVED, _node, id);
+      }
+   }
+   
+   /**
+    * Removes several {@link Node} objects from the registration system in one call, as {@link #deregisterNode(NodeRef)} does for each of them.
+    * 
+    * @param _nodes
+    *           the {@link Node} objects to remove
+    * @throws RemoteException
+    */
+   @Override
+   public void deregisterNodes(final List<NodeRef> _nodes) throws RemoteException {
+      final int[] ids = new int[_nodes.size()];
+      
+      for (int i = 0; i < ids.length; i++) {
+         ids[i] = this.deregister(_nodes.get(i));
+      }
+      
+      if (!this.isTracker) {
+         for (int i = 0; i < ids.length; i++) {
+            if (ids[i] >= 0) {
+               this.notifyListeners(EventType.NODE_REMOVED, _nodes.get(i), ids[i]);
+            }
+         }
+      }
+   }
+   
+   /**
+    * @return the id of the removed node, or -1 if it was not registered
+    */
+   private int deregister(final NodeRef _node) throws RemoteException {
+      // a node that registers again after leaving gets a new id
+      final Integer id = this.ids.remove(_node);
+      
       try {
          // this.lock.writeLock().lock();
-         if (_node.isSeed()) {
-            this.seeds.remove(_node.getName());
+         if ((id == null) || !this.nodes.remove(id, _node)) {
+            return -1;
          }
          
-         this.peers.remove(_node);
+         final boolean isSeed = this.seeds.remove(id) != null;
+         final Long duration = this.durations.remove(id);
+         this.stats.nodeRemoved(isSeed, (duration == null) ? 0 : duration);
+         
+         return id;
       } finally {
          // this.lock.writeLock().unlock();
       }
-      
-      this.notifyListeners(EventType.NODE_REMOVED, _node);
    }
    
    /**
@@ -140,7 +282,7 @@ public class NodeManager implements NodeManagerRef {
    public List<NodeRef> getSeeds() throws RemoteException {
       try {
          // this.lock.readLock().lock();
-         final List<NodeRef> copyOf = new ArrayList<NodeRef>();
+         final List<NodeRef> copyOf = new ArrayList<NodeRef>(this.seeds.size());
          copyOf.addAll(this.seeds.values());
          
          return copyOf;
@@ -159,8 +301,8 @@ public class NodeManager implements NodeManagerRef {
    public List<NodeRef> getNodes() throws RemoteException {
       try {
          // this.lock.readLock().lock();
-         final List<NodeRef> copyOf = new ArrayList<NodeRef>();
-         copyOf.addAll(this.peers);
+         final List<NodeRef> copyOf = new ArrayList<NodeRef>(this.nodes.size());
+         copyOf.addAll(this.nodes.values());
          
          return copyOf;
       } finally {
@@ -168,9 +310,56 @@ public class NodeManager implements NodeManagerRef {
       }
    }
    
+   /**
+    * Answers a tracker announce with a random subset of the registered nodes other than the announcing one, so a node learns about a bounded number of peers
+    * however large the swarm is. Only the sampled nodes are looked up in the registry.
+    * 
+    * @param _node
+    *           the announcing node
+    * @param count
+    *           the number of nodes wanted
+    * @return at most count nodes in no particular order
+    * @throws RemoteException
+    */
+   @Override
+   public List<NodeRef> announce(final NodeRef _node, final int count) throws RemoteException {
+      final int size = this.nodes.size();
+      final List<NodeRef> sample = new ArrayList<NodeRef>(Math.max(0, Math.min(count, size)));
+      
+      if (size <= (count + 1)) {
+         for (final NodeRef node : this.nodes.values()) {
+            if (!node.equals(_node)) {
+               sample.add(node);
+            }
+         }
+         
+         Collections.shuffle(sample, this.random);
+         return sample;
+      }
+      
+      // ids are dense and rarely given up, so most random ids hit a registered node; the draws are bounded in case many nodes left
+      final int bound = this.nextId.get();
+      final int draws = 4 * (count + 1) * ((bound / size) + 1);
+      final Set<Integer> drawn = new HashSet<Integer>();
+      
+      for (int i = 0; (i < draws) && (sample.size() < count); i++) {
+         final Integer id = this.random.nextInt(bound);
+         
+         if (drawn.add(id)) {
+            final NodeRef node = this.nodes.get(id);
+            
+            if ((node != null) && !node.equals(_node)) {
+               sample.add(node);
+            }
+         }
+      }
+      
+      return sample;
+   }
+   
    /**
     * Adds a {@link NodeManagerListener} to this {@link NodeManager} to listen for nodeAdded and nodeRemoved events. If this listener has already been added,
-    * this call will be ignored.
+    * this call will be ignored. In tracker mode no such events are sent.
     * 
     * @param listener
     *           the listener to add
@@ -181,22 +370,32 @@ public class NodeManager implements NodeManagerRef {
       return this.eventGenerator.addListener(listener);
    }
    
-   private void notifyListeners(final EventType type, final NodeRef node) throws RemoteException {
-      final String name = node.getName();
-      this.eventGenerator.reportEvent(new NodeManagerEvent(type, node, name));
+   private void notifyListeners(final EventType type, final NodeRef node, final int id) throws RemoteException {
+      this.eventGenerator.reportEvent(new NodeManagerEvent(type, node, node.getName(), id));
    }
    
+   /**
+    * Records that a registered node completed its download and is now a seed.
+    * 
+    * @param _seed
+    *           the node that completed
+    * @param transferTime
+    *           the simulated milliseconds its download took
+    * @throws RemoteException
+    */
    @Override
-   public void addSeed(final NodeRef _seed) throws RemoteException {
+   public void addSeed(final NodeRef _seed, final long transferTime) throws RemoteException {
       try {
          // this.lock.writeLock().lock();
-         if (!this.seeds.containsKey(_seed.getName())) {
-            this.seeds.put(_seed.getName(), _seed);
+         final Integer id = this.ids.get(_seed);
+         
+         if ((id != null) && (this.seeds.putIfAbsent(id, _seed) == null)) {
+            this.durations.put(id, transferTime);
+            this.stats.nodeCompleted(transferTime);
          }
       } finally {
          // this.lock.writeLock().unlock();
       }
-      this.stats.updateStats(this.peers, this.seeds);
    }
    
    @Override
@@ -205,7 +404,7 @@ public class NodeManager implements NodeManagerRef {
          // this.lock.readLock().lock();
          double bandwidth = 0;
          
-         for (final NodeRef node : this.peers) {
+         for (final NodeRef node : this.nodes.values()) {
             bandwidth += node.getCurrentDownloadRate();
          }
          
@@ -217,6 +416,27 @@ public class NodeManager implements NodeManagerRef {
    
    @Override
    public GeneralStatistics getStats() throws RemoteException {
-      return this.stats;
+      return this.stats.copy();
+   }
+   
+   /**
+    * Starts over for a new swarm with the given settings: forgets every registered node and starts new statistics of the new config. Listeners stay added
+    * until their leases are cancelled, which a node does when it is disposed, and the manager stays bound under its name. Ids keep counting, so no node of
+    * the new swarm gets the id of an old one. Must not be called while nodes register.
+    * 
+    * @param config
+    *           the {@link SwarmConfig} of the new swarm
+    * @throws RemoteException
+    */
+   @Override
+   public synchronized void reset(final SwarmConfig config) throws RemoteException {
+      this.nodes.clear();
+      this.seeds.clear();
+      this.durations.clear();
+      this.ids.clear();
+      
+      this.stats = new GeneralStatistics(config);
+      this.isTracker = config.isTracker;
+      this.random = SplitMix.newRandom(config.seed, config.nodeManagerName);
    }
 }
@@ -10,10 +10,12 @@ public class NodeManagerEvent extends RemoteEvent {
    public final EventType type;
    public final NodeRef    node;
    public final String     name;
+   public final int        id;
    
-   public NodeManagerEvent(final EventType type, final NodeRef node, final String name) {
+   public NodeManagerEvent(final EventType type, final NodeRef node, final String name, final int id) {
       this.type = type;
       this.node = node;
       this.name = name;
+      this.id = id;
    }
 }
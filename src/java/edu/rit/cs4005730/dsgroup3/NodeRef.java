@@ -1,212 +1,356 @@
-package edu.rit.cs4005730.dsgroup3;
-
-import java.rmi.Remote;
-import java.rmi.RemoteException;
-
-import edu.rit.ds.Lease;
-
-/**
- * This class implements the {@link Remote} interface for use in an RMI system designed to simulate a BitTorrent network and the effects of increasing the
- * number of seeds/peers on average transfer time.
- * 
- * @author Roshan Balaji
- * @author Stephen Ranger
- * 
- */
-public interface NodeRef extends Remote {
-   
-   /**
-    * Returns the name of this node.
-    * 
-    * @return the name of this node
-    * @throws RemoteException
-    */
-   public String getName() throws RemoteException;
-   
-   /**
-    * Returns the size of each block of data in the downloadable file in bytes or -1 if this {@link Node} has no information.
-    * 
-    * @return the size in bytes of each block or -1 if the value is unknown
-    * @throws RemoteException
-    */
-   public long getBlockSize(int _index) throws RemoteException;
-   
-   /**
-    * Returns the number of blocks the downloadable file is split into or -1 if this {@link Node} has no information.
-    * 
-    * @return the size in bytes of the downloadable file or -1 if the value is unknown
-    * @throws RemoteException
-    */
-   public long getBlockCount() throws RemoteException;
-   
-   /**
-    * Returns the maximum download rate for this {@link Node} in bytes per second.
-    * 
-    * @return the maximum download rate in bytes per second
-    * @throws RemoteException
-    */
-   public double getMaximumDownloadRate() throws RemoteException;
-   
-   /**
-    * Returns the maximum upload rate for this {@link Node} in bytes per second.
-    * 
-    * @return the maximum upload rate in bytes per second
-    * @throws RemoteException
-    */
-   public double getMaximumUploadRate() throws RemoteException;
-   
-   /**
-    * Returns the current download rate for this {@link Node} in bytes per second.
-    * 
-    * @return the current download rate in bytes per second
-    * @throws RemoteException
-    */
-   public double getCurrentDownloadRate() throws RemoteException;
-   
-   /**
-    * Returns the current upload rate for this {@link Node} in bytes per second.
-    * 
-    * @return the current upload rate in bytes per second
-    * @throws RemoteException
-    */
-   public double getCurrentUploadRate() throws RemoteException;
-   
-   /**
-    * Returns the status for each block of data as a percentage of completion between 0 and 1.
-    * 
-    * @return an array containing the percentage of completion for each block of data
-    * @throws RemoteException
-    */
-   public Double[] getStatus() throws RemoteException;
-   
-   /**
-    * Returns true if this {@link Node}Node has completed downloading the entire file or false if it has not.
-    * 
-    * @return true if this {@link Node} is a seed; false otherwise
-    * @throws RemoteException
-    */
-   public boolean isSeed() throws RemoteException;
-   
-   /**
-    * {@link Node} request specific block from another {@link Node} which will give the index of the block it is requesting and the total available bandwidth it
-    * has. The {@link Node} receiving the request will then either return -1 if it does not have the block and 0 if it has no more available upload bandwidth.
-    * Otherwise, it will return the amount of bandwidth it has reserved for the transfer. <br/>
-    * <br/>
-    * Block transfer protocol:
-    * 
-    * <pre>
-    * Client 1 needs block 1 and has 2mbps download available
-    * Client 1 asks Client 2 for block 1 with 2mbps max speed
-    * Client 2 has 0.5mbps upload available, tells Client 1 it will use 0.5mbps
-    * Client 2 subtracts 0.5mbps from its upload cap
-    * Client 1 subtracts 0.5mbps from its download cap
-    * Client 1 waits enough time for block 1 to transfer (no actual transfer)
-    * Client 1 notifies Client 2 when the transfer is finished and it's bandwidth is free
-    * Client 1 adds 0.5mbps to download cap
-    * Client 2 adds 0.5mbps to upload cap
-    * </pre>
-    * 
-    * @param node
-    *           the requesting node
-    * @param index
-    *           the index of the requested block
-    * @param maxDownloadAvailable
-    *           the total amount of download bandwidth the requesting node has available in bytes per second
-    * @return amount of upload bandwidth reserved, -1 if block is not available from this node, 0 if no available upload bandwidth
-    * @throws RemoteException
-    */
-   public double requestBlock(final String nodeName, final int index, final double maxDownloadAvailable) throws RemoteException;
-   
-   /**
-    * Notifies this {@link Node} that a previously requested block transfer has been completed.
-    * 
-    * @param node
-    *           the requesting {@link Node}
-    * @param index
-    *           the index of the block to transfer
-    * @throws RemoteException
-    */
-   public void finalizeBlock(final String nodeName, final int index) throws RemoteException;
-   
-   /**
-    * Returns the total elapsed time in milliseconds that this {@link Node} has been, or had been, downloading the file.
-    * 
-    * @return the total transfer time in milliseconds
-    * @throws RemoteException
-    */
-   public long getTransferTime() throws RemoteException;
-   
-   /**
-    * Returns a total progress percentage for this Node.
-    * 
-    * @return the download progress percentage
-    * @throws RemoteException
-    */
-   public double getProgress() throws RemoteException;
-   
-   /**
-    * Adds a {@link NodeListener} to this {@link Node} that will listen for transfer progress events.
-    * 
-    * @param listener
-    *           the listener to add
-    * @throws RemoteException
-    */
-   public Lease addNodeListener(final NodeListener listener) throws RemoteException;
-   
-   /**
-    * Returns the completion percentage as a value between 0 and 1 or -1 if the download of the specified block has not in progress.
-    * 
-    * @param index
-    *           the block index
-    * @return the completion status
-    * @throws RemoteException
-    */
-   public double getBlockCompletion(int index) throws RemoteException;
-   
-   /**
-    * Given the currently elapsed time and the current completion progress, returns the estimated time to completion in milliseconds.
-    * 
-    * @return estimated time to completion in seconds
-    * @throws RemoteException
-    */
-   public long estimatedTime() throws RemoteException;
-   
-   /**
-    * Returns the available bandwidth for download tasks.
-    * 
-    * @return the available download bandwidth in bytes per second
-    * @throws RemoteException
-    */
-   public double getAvailableDownloadRate() throws RemoteException;
-   
-   /**
-    * Returns the available bandwidth for upload tasks.
-    * 
-    * @return the available upload bandwidth in bytes per second
-    * @throws RemoteException
-    */
-   public double getAvailableUploadRate() throws RemoteException;
-   
-   /**
-    * Cancels all outstanding tasks, quits download, and deregisters itself with the NodeManager.
-    * 
-    * @throws RemoteException
-    */
-   public void dispose() throws RemoteException;
-   
-   /**
-    * Returns the number of blocks currently being uploaded.
-    * 
-    * @return the number of uploading blocks
-    * @throws RemoteException
-    */
-   public int getUploadCount() throws RemoteException;
-   
-   /**
-    * Returns the number of blocks currently being downloaded.
-    * 
-    * @return the number of downloading blocks
-    * @throws RemoteException
-    */
-   public int getDownloadCount() throws RemoteException;
-}
+package edu.rit.cs4005730.dsgroup3;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+import edu.rit.ds.Lease;
+
+/**
+ * This class implements the {@link Remote} interface for use in an RMI system designed to simulate a BitTorrent network and the effects of increasing the
+ * number of seeds/peers on average transfer time.
+ * 
+ * @author Roshan Balaji
+ * @author Stephen Ranger
+ * 
+ */
+public interface NodeRef extends Remote {
+   // returned by requestBlocks to a node that is choked; it should not ask again until it is unchoked
+   public static final double CHOKED = -2;
+   
+   /**
+    * Returns the name of this node.
+    * 
+    * @return the name of this node
+    * @throws RemoteException
+    */
+   public String getName() throws RemoteException;
+   
+   /**
+    * Returns the dense id the {@link NodeManager} gave this node when it registered, or -1 before that. Nodes identify each other by id in all block transfer
+    * calls so the bookkeeping can use primitive keys.
+    * 
+    * @return the id of this node
+    * @throws RemoteException
+    */
+   public int getId() throws RemoteException;
+   
+   /**
+    * Returns the size of each block of data in the downloadable file in bytes or -1 if this {@link Node} has no information.
+    * 
+    * @return the size in bytes of each block or -1 if the value is unknown
+    * @throws RemoteException
+    */
+   public long getBlockSize(int _index) throws RemoteException;
+   
+   /**
+    * Returns the number of blocks the downloadable file is split into or -1 if this {@link Node} has no information.
+    * 
+    * @return the size in bytes of the downloadable file or -1 if the value is unknown
+    * @throws RemoteException
+    */
+   public long getBlockCount() throws RemoteException;
+   
+   /**
+    * Returns the maximum download rate for this {@link Node} in bytes per second.
+    * 
+    * @return the maximum download rate in bytes per second
+    * @throws RemoteException
+    */
+   public double getMaximumDownloadRate() throws RemoteException;
+   
+   /**
+    * Returns the maximum upload rate for this {@link Node} in bytes per second.
+    * 
+    * @return the maximum upload rate in bytes per second
+    * @throws RemoteException
+    */
+   public double getMaximumUploadRate() throws RemoteException;
+   
+   /**
+    * Returns the one-way latency from this {@link Node} to the backbone in milliseconds.
+    * 
+    * @return the access latency in milliseconds; 0 if the swarm has no {@link edu.rit.cs4005730.dsgroup3.network.NetworkModel}
+    * @throws RemoteException
+    */
+   public double getLatency() throws RemoteException;
+   
+   /**
+    * Returns the current download rate for this {@link Node} in bytes per second.
+    * 
+    * @return the current download rate in bytes per second
+    * @throws RemoteException
+    */
+   public double getCurrentDownloadRate() throws RemoteException;
+   
+   /**
+    * Returns the current upload rate for this {@link Node} in bytes per second.
+    * 
+    * @return the current upload rate in bytes per second
+    * @throws RemoteException
+    */
+   public double getCurrentUploadRate() throws RemoteException;
+   
+   /**
+    * Returns the status for each block of data as a percentage of completion between 0 and 1.
+    * 
+    * @return an array containing the percentage of completion for each block of data
+    * @throws RemoteException
+    */
+   public Double[] getStatus() throws RemoteException;
+   
+   /**
+    * Returns true if this {@link Node}Node has completed downloading the entire file or false if it has not.
+    * 
+    * @return true if this {@link Node} is a seed; false otherwise
+    * @throws RemoteException
+    */
+   public boolean isSeed() throws RemoteException;
+   
+   /**
+    * {@link Node} request specific block from another {@link Node} which will give the index of the block it is requesting and the total available bandwidth it
+    * has. The {@link Node} receiving the request will then either return -1 if it does not have the block and 0 if it has no more available upload bandwidth.
+    * Otherwise, it will return the amount of bandwidth it has reserved for the transfer. <br/>
+    * <br/>
+    * Block transfer protocol:
+    * 
+    * <pre>
+    * Client 1 needs block 1, has 2mbps download and one other transfer running
+    * Client 1 asks Client 2 for block 1 offering 1mbps, an even share of its download
+    * Client 2 splits its 1.5mbps upload fairly between this and its two other transfers, tells Client 1 it will use 0.5mbps
+    * Client 2 tells the other downloaders their new, lower rates
+    * Client 1 schedules the end of the transfer at 0.5mbps (no actual transfer)
+    * If Client 2 finishes another upload it splits its upload again and tells Client 1 the new rate
+    * Client 1 moves the end of the transfer to match the bytes left at the new rate
+    * Client 1 notifies Client 2 when the transfer is finished and it's bandwidth is free
+    * Client 2 splits its upload again among the remaining transfers
+    * </pre>
+    * 
+    * @param nodeId
+    *           the id of the requesting node
+    * @param index
+    *           the index of the requested block
+    * @param maxDownloadAvailable
+    *           the total amount of download bandwidth the requesting node has available in bytes per second
+    * @return amount of upload bandwidth reserved, -1 if block is not available from this node, 0 if no available upload bandwidth
+    * @throws RemoteException
+    */
+   public double requestBlock(final int nodeId, final int index, final double maxDownloadAvailable) throws RemoteException;
+   
+   /**
+    * Tells this {@link Node} how much the requesting node can now receive for a batch it is uploading, after the requesting node started or ended other
+    * transfers. The upload capacity is split again and the new rates are sent back with {@link #updateRate(int, int, double)}.
+    * 
+    * @param nodeId
+    *           the id of the requesting node
+    * @param index
+    *           the index of the first block of the batch
+    * @param demand
+    *           the download bandwidth the requesting node offers for this batch in bytes per second
+    * @throws RemoteException
+    */
+   public void updateDemand(final int nodeId, final int index, final double demand) throws RemoteException;
+   
+   /**
+    * Tells this {@link Node} that the uploader of one of its batches has changed the rate of that batch.
+    * 
+    * @param nodeId
+    *           the id of the uploading node
+    * @param index
+    *           the index of the first block of the batch
+    * @param rate
+    *           the new transfer rate in bytes per second
+    * @throws RemoteException
+    */
+   public void updateRate(final int nodeId, final int index, final double rate) throws RemoteException;
+   
+   /**
+    * Notifies this {@link Node} that a batch requested with {@link #requestBlocks(int, int[], double)} has ended and its bandwidth is free.
+    * 
+    * @param nodeId
+    *           the id of the requesting {@link Node}
+    * @param indices
+    *           the indices of the blocks in the batch
+    * @throws RemoteException
+    */
+   public void finalizeBlocks(final int nodeId, final int[] indices) throws RemoteException;
+   
+   /**
+    * Swaps block ownership bitfields with another {@link Node} when the two connect. The caller's bitfield is recorded so that requests are only sent to
+    * peers known to own a block, and this {@link Node}'s bitfield is returned for the caller to record in turn.
+    * 
+    * @param nodeId
+    *           the id the {@link NodeManager} gave the connecting {@link Node}
+    * @param node
+    *           the connecting {@link Node}
+    * @param bitfield
+    *           the blocks owned by the connecting {@link Node}, one bit per block
+    * @return the blocks owned by this {@link Node}, one bit per block, or null if this {@link Node} already has as many peers as it takes, was disposed or
+    *         shares a file with a different number of blocks
+    * @throws RemoteException
+    */
+   public long[] exchangeBitfield(final int nodeId, final NodeRef node, final long[] bitfield) throws RemoteException;
+   
+   /**
+    * Notifies this {@link Node} that another {@link Node} has finished downloading a block (a HAVE announcement).
+    * 
+    * @param nodeId
+    *           the id of the announcing {@link Node}
+    * @param index
+    *           the index of the completed block
+    * @throws RemoteException
+    */
+   public void have(final int nodeId, final int index) throws RemoteException;
+   
+   /**
+    * Notifies this {@link Node} that a connected {@link Node} is leaving the swarm. Used in tracker mode, where the {@link NodeManager} does not broadcast
+    * departures.
+    * 
+    * @param nodeId
+    *           the id of the leaving {@link Node}
+    * @throws RemoteException
+    */
+   public void disconnect(final int nodeId) throws RemoteException;
+   
+   /**
+    * Tells this {@link Node} that a connected {@link Node} unchoked it, so requests it refused with {@link #CHOKED} may now succeed.
+    * 
+    * @param nodeId
+    *           the id of the unchoking {@link Node}
+    * @throws RemoteException
+    */
+   public void unchoke(final int nodeId) throws RemoteException;
+   
+   /**
+    * Tells this {@link Node} that an upload slot became free at a connected {@link Node} that refused one of its requests because every slot was taken.
+    * 
+    * @param nodeId
+    *           the id of the {@link Node} with the free slot
+    * @return true if this {@link Node} will ask for a batch, false if the slot should be offered to another one
+    * @throws RemoteException
+    */
+   public boolean offerUpload(final int nodeId) throws RemoteException;
+   
+   /**
+    * Requests a batch of blocks that will be sent one after the other as a single transfer, so a downloader can keep several requests in flight to the same
+    * peer with one round trip. The upload capacity is shared max-min fairly among all running transfers, so the returned rate is only the starting rate; later
+    * changes are sent with {@link #updateRate(int, int, double)}. -1 is returned if any of the blocks is not available from this node or this node was
+    * disposed, {@link #CHOKED} if the requesting node is choked; it is told with {@link #unchoke(int)} once it is unchoked. A node refused because every upload
+    * slot is taken is offered one with {@link #offerUpload(int)} once a batch finishes.
+    * 
+    * @param nodeId
+    *           the id of the requesting node
+    * @param indices
+    *           the indices of the requested blocks in the order they will be transferred
+    * @param maxDownloadAvailable
+    *           the total amount of download bandwidth the requesting node has available in bytes per second
+    * @return amount of upload bandwidth reserved, -1 if a block is not available from this node, {@link #CHOKED} if the requesting node is choked, 0 if no
+    *         available upload bandwidth
+    * @throws RemoteException
+    */
+   public double requestBlocks(final int nodeId, final int[] indices, final double maxDownloadAvailable) throws RemoteException;
+   
+   /**
+    * Notifies this {@link Node} that a previously requested block transfer has been completed.
+    * 
+    * @param nodeId
+    *           the id of the requesting {@link Node}
+    * @param index
+    *           the index of the block to transfer
+    * @throws RemoteException
+    */
+   public void finalizeBlock(final int nodeId, final int index) throws RemoteException;
+   
+   /**
+    * Returns the total elapsed time in milliseconds that this {@link Node} has been, or had been, downloading the file.
+    * 
+    * @return the total transfer time in milliseconds
+    * @throws RemoteException
+    */
+   public long getTransferTime() throws RemoteException;
+   
+   /**
+    * Returns a total progress percentage for this Node.
+    * 
+    * @return the download progress percentage
+    * @throws RemoteException
+    */
+   public double getProgress() throws RemoteException;
+   
+   /**
+    * Adds a {@link NodeListener} to the {@link NodeEventBus} of this {@link Node}, where it will listen for the transfer progress events of every node of the
+    * swarm. Adding the same listener through several nodes subscribes it once.
+    * 
+    * @param listener
+    *           the listener to add
+    * @throws RemoteException
+    */
+   public Lease addNodeListener(final NodeListener listener) throws RemoteException;
+   
+   /**
+    * Returns the completion percentage as a value between 0 and 1 or -1 if the download of the specified block has not in progress.
+    * 
+    * @param index
+    *           the block index
+    * @return the completion status
+    * @throws RemoteException
+    */
+   public double getBlockCompletion(int index) throws RemoteException;
+   
+   /**
+    * Given the currently elapsed time and the current completion progress, returns the estimated time to completion in milliseconds.
+    * 
+    * @return estimated time to completion in seconds
+    * @throws RemoteException
+    */
+   public long estimatedTime() throws RemoteException;
+   
+   /**
+    * Returns the available bandwidth for download tasks.
+    * 
+    * @return the available download bandwidth in bytes per second
+    * @throws RemoteException
+    */
+   public double getAvailableDownloadRate() throws RemoteException;
+   
+   /**
+    * Returns the available bandwidth for upload tasks.
+    * 
+    * @return the available upload bandwidth in bytes per second
+    * @throws RemoteException
+    */
+   public double getAvailableUploadRate() throws RemoteException;
+   
+   /**
+    * Cancels all outstanding tasks, quits download, and deregisters itself with the NodeManager.
+    * 
+    * @throws RemoteException
+    */
+   public void dispose() throws RemoteException;
+   
+   /**
+    * Returns the number of block requests currently being uploaded, counting a pipelined batch once.
+    * 
+    * @return the number of uploading requests
+    * @throws RemoteException
+    */
+   public int getUploadCount() throws RemoteException;
+   
+   /**
+    * Returns the number of block requests currently being downloaded, counting a pipelined batch once.
+    * 
+    * @return the number of downloading requests
+    * @throws RemoteException
+    */
+   public int getDownloadCount() throws RemoteException;
+   
+   /**
+    * Returns everything needed to display this node in one call: rates, counts, progress, elapsed time and the quantized state of the blocks. Only the blocks
+    * that changed since the given version are included, unless the caller passes -1 or its version is too old.
+    * 
+    * @param sinceVersion
+    *           the block version of the caller's last snapshot ({@link NodeStatus#getVersion()}), or -1 for all blocks
+    * @return the status snapshot
+    * @throws RemoteException
+    */
+   public NodeStatus getSnapshot(long sinceVersion) throws RemoteException;
+}
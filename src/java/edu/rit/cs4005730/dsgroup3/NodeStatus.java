@@ -0,0 +1,126 @@
+package edu.rit.cs4005730.dsgroup3;
+
+import java.io.Serializable;
+
+/**
+ * Everything a {@link edu.rit.cs4005730.dsgroup3.ui.SwarmView} needs to draw one node, fetched with a single {@link NodeRef#getSnapshot(long)} call instead of
+ * one remote call per block and label. Block states are quantized to one byte each and versioned: a caller that passes the version of its last snapshot
+ * only receives the blocks whose quantized state changed since then, and merges them with {@link #apply(byte[])}.
+ *
+ */
+public class NodeStatus implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   // quantized block states; values from 0 to OWNED are the completion in percent
+   public static final byte  MISSING          = -1;
+   public static final byte  RESERVED         = -2;
+   public static final byte  OWNED            = 100;
+
+   public final String       name;
+   public final boolean      isSeed;
+   public final int          blockCount;
+   public final double       maxUploadRate;
+   public final double       maxDownloadRate;
+   public final double       availableUploadRate;
+   public final double       availableDownloadRate;
+   public final int          uploadCount;
+   public final int          downloadCount;
+   public final double       progress;
+   public final long         transferTime;
+   public final Blocks       blocks;
+
+   public NodeStatus(final String name, final boolean isSeed, final int blockCount, final double maxUploadRate, final double maxDownloadRate,
+         final double availableUploadRate, final double availableDownloadRate, final int uploadCount, final int downloadCount, final double progress,
+         final long transferTime, final Blocks blocks) {
+      this.name = name;
+      this.isSeed = isSeed;
+      this.blockCount = blockCount;
+      this.maxUploadRate = maxUploadRate;
+      this.maxDownloadRate = maxDownloadRate;
+      this.availableUploadRate = availableUploadRate;
+      this.availableDownloadRate = availableDownloadRate;
+      this.uploadCount = uploadCount;
+      this.downloadCount = downloadCount;
+      this.progress = progress;
+      this.transferTime = transferTime;
+      this.blocks = blocks;
+   }
+
+   /**
+    * Returns the version of the block states in this snapshot, to be passed to the next {@link NodeRef#getSnapshot(long)} call.
+    *
+    * @return the block version
+    */
+   public long getVersion() {
+      return this.blocks.version;
+   }
+
+   /**
+    * Brings a block state array up to the version of this snapshot.
+    *
+    * @param previous
+    *           the block states of the caller's last snapshot, or null if there is none
+    * @return the up to date block states; the given array if it could be updated in place
+    */
+   public byte[] apply(final byte[] previous) {
+      if (this.blocks.states != null) {
+         return this.blocks.states;
+      }
+
+      final byte[] states = ((previous == null) || (previous.length != this.blockCount)) ? new byte[this.blockCount] : previous;
+
+      for (int i = 0; i < this.blocks.indices.length; i++) {
+         states[this.blocks.indices[i]] = this.blocks.values[i];
+      }
+
+      return states;
+   }
+
+   /**
+    * Quantizes a completion value from {@link NodeRef#getBlockCompletion(int)} to a single byte.
+    *
+    * @param completion
+    *           {@link BlockState#MISSING}, {@link BlockState#RESERVED} or the completion between 0 and 1
+    * @return {@link #MISSING}, {@link #RESERVED} or the completion in percent
+    */
+   public static byte quantize(final double completion) {
+      if (completion == BlockState.MISSING) {
+         return MISSING;
+      } else if (completion == BlockState.RESERVED) {
+         return RESERVED;
+      } else if (completion >= 1) {
+         return OWNED;
+      } else {
+         // an unfinished block never rounds up to owned
+         return (byte) Math.min(OWNED - 1, Math.max(0, (int) (completion * OWNED)));
+      }
+   }
+
+   /**
+    * Block states of a snapshot: either all of them or only the ones that changed since the version the caller asked for.
+    */
+   public static class Blocks implements Serializable {
+      private static final long serialVersionUID = 1L;
+
+      public final long         version;
+      // every block state, or null for a delta
+      public final byte[]       states;
+      // changed blocks and their new states, or null for a full snapshot
+      public final int[]        indices;
+      public final byte[]       values;
+
+      public Blocks(final long version, final byte[] states) {
+         this.version = version;
+         this.states = states;
+         this.indices = null;
+         this.values = null;
+      }
+
+      public Blocks(final long version, final int[] indices, final byte[] values) {
+         this.version = version;
+         this.states = null;
+         this.indices = indices;
+         this.values = values;
+      }
+   }
+}
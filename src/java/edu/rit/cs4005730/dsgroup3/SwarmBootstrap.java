@@ -0,0 +1,221 @@
+package edu.rit.cs4005730.dsgroup3;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.rit.cs4005730.dsgroup3.network.Link;
+import edu.rit.cs4005730.dsgroup3.sim.Scheduler;
+import edu.rit.cs4005730.dsgroup3.transport.Transport;
+import edu.rit.ds.registry.NotBoundException;
+
+/**
+ * Adds many nodes to a swarm at once. The nodes are built and exported in parallel on one thread per core, registered with the {@link NodeManagerRef} in a
+ * single {@link NodeManagerRef#registerNodes(List)} call, connected to the swarm and then started at one common instant. Nothing is scheduled before the
+ * start, which runs on the calling thread, so this works with an {@link edu.rit.cs4005730.dsgroup3.sim.EventScheduler} as well. The swarm ends up the same
+ * whatever the threads do: in broadcast mode every node connects to every other in parallel, and in tracker mode the few connections of each node are made
+ * one node after the other.
+ *
+ */
+public class SwarmBootstrap {
+   /**
+    * The settings of one node to create.
+    */
+   public static class Spec {
+      public final String  name;
+      // bytes per second
+      public final double  upload;
+      public final double  download;
+      // one-way milliseconds to the backbone
+      public final double  latency;
+      public final boolean isSeed;
+
+      public Spec(final String name, final double upload, final double download, final boolean isSeed) {
+         this(name, upload, download, 0, isSeed);
+      }
+
+      public Spec(final String name, final Link link, final boolean isSeed) {
+         this(name, link.upload, link.download, link.latency, isSeed);
+      }
+
+      public Spec(final String name, final double upload, final double download, final double latency, final boolean isSeed) {
+         this.name = name;
+         this.upload = upload;
+         this.download = download;
+         this.latency = latency;
+         this.isSeed = isSeed;
+      }
+   }
+
+   /**
+    * Work done for one node of a batch.
+    */
+   private interface Step {
+      public void run(int index) throws RemoteException;
+   }
+
+   private final SwarmConfig  config;
+   private final Transport    transport;
+   private final Scheduler    scheduler;
+   private final NodeEventBus eventBus;
+   private final int          threads;
+
+   /**
+    * Creates a bootstrap that uses one thread per available core.
+    *
+    * @param config
+    *           the {@link SwarmConfig} of the swarm the nodes join
+    * @param transport
+    *           the {@link Transport} of the swarm
+    * @param scheduler
+    *           the {@link Scheduler} that drives the nodes
+    * @param eventBus
+    *           the {@link NodeEventBus} of the swarm, shared by all its nodes
+    */
+   public SwarmBootstrap(final SwarmConfig config, final Transport transport, final Scheduler scheduler, final NodeEventBus eventBus) {
+      this(config, transport, scheduler, eventBus, Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+    * Creates a bootstrap.
+    *
+    * @param config
+    *           the {@link SwarmConfig} of the swarm the nodes join
+    * @param transport
+    *           the {@link Transport} of the swarm
+    * @param scheduler
+    *           the {@link Scheduler} that drives the nodes
+    * @param eventBus
+    *           the {@link NodeEventBus} of the swarm, shared by all its nodes
+    * @param threads
+    *           the number of threads nodes are created and connected on
+    */
+   public SwarmBootstrap(final SwarmConfig config, final Transport transport, final Scheduler scheduler, final NodeEventBus eventBus, final int threads) {
+      this.config = config;
+      this.transport = transport;
+      this.scheduler = scheduler;
+      this.eventBus = eventBus;
+      this.threads = Math.max(1, threads);
+   }
+
+   /**
+    * Creates, registers and connects a node for every spec without starting them.
+    *
+    * @param specs
+    *           the nodes to create
+    * @return the nodes in the order of the specs
+    * @throws RemoteException
+    * @throws NotBoundException
+    *            if the {@link NodeManagerRef} of the swarm is not bound
+    */
+   public List<Node> create(final List<Spec> specs) throws RemoteException, NotBoundException {
+      final NodeManagerRef manager = (NodeManagerRef) this.transport.lookup(this.config.nodeManagerName);
+      final Node[] nodes = new Node[specs.size()];
+      final ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.threads, Math.max(1, nodes.length)));
+
+      try {
+         this.forEach(executor, nodes.length, new Step() {
+            @Override
+            public void run(final int index) throws RemoteException {
+               final Spec spec = specs.get(index);
+               nodes[index] = new Node(spec.name, spec.upload, spec.download, spec.latency, spec.isSeed, SwarmBootstrap.this.config, SwarmBootstrap.this.transport,
+                     SwarmBootstrap.this.scheduler, SwarmBootstrap.this.eventBus, manager);
+            }
+         });
+
+         final int[] ids = manager.registerNodes(new ArrayList<NodeRef>(Arrays.asList(nodes)));
+
+         if (this.config.isTracker) {
+            // peer tables are capped, so which connections succeed depends on the order of the joins; keep it the same on every replay
+            for (int i = 0; i < nodes.length; i++) {
+               nodes[i].join(ids[i]);
+            }
+         } else {
+            this.forEach(executor, nodes.length, new Step() {
+               @Override
+               public void run(final int index) throws RemoteException {
+                  nodes[index].join(ids[index]);
+               }
+            });
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      return new ArrayList<Node>(Arrays.asList(nodes));
+   }
+
+   /**
+    * Starts the given nodes at the current time of the scheduler, so their download times all count from the same instant.
+    *
+    * @param nodes
+    *           the nodes to start
+    */
+   public void start(final List<Node> nodes) {
+      final long now = this.scheduler.currentTime();
+
+      for (final Node node : nodes) {
+         node.startProcess(now);
+      }
+   }
+
+   /**
+    * Creates the nodes with {@link #create(List)} and starts them with {@link #start(List)}.
+    *
+    * @param specs
+    *           the nodes to create
+    * @return the running nodes in the order of the specs
+    * @throws RemoteException
+    * @throws NotBoundException
+    *            if the {@link NodeManagerRef} of the swarm is not bound
+    */
+   public List<Node> launch(final List<Spec> specs) throws RemoteException, NotBoundException {
+      final List<Node> nodes = this.create(specs);
+      this.start(nodes);
+      return nodes;
+   }
+
+   /**
+    * Runs a step for every index, each thread taking every n-th index, and waits for all of them.
+    */
+   private void forEach(final ExecutorService executor, final int count, final Step step) throws RemoteException {
+      final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+      final int stride = Math.min(this.threads, count);
+
+      for (int t = 0; t < stride; t++) {
+         final int first = t;
+
+         tasks.add(new Callable<Void>() {
+            @Override
+            public Void call() throws RemoteException {
+               for (int i = first; i < count; i += stride) {
+                  step.run(i);
+               }
+
+               return null;
+            }
+         });
+      }
+
+      try {
+         for (final Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+         }
+      } catch (final InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new RemoteException("SwarmBootstrap: interrupted", e);
+      } catch (final ExecutionException e) {
+         if (e.getCause() instanceof RemoteException) {
+            throw (RemoteException) e.getCause();
+         }
+
+         throw new IllegalStateException("SwarmBootstrap: node could not be created", e.getCause());
+      }
+   }
+}
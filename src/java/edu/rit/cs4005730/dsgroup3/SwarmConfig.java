@@ -0,0 +1,310 @@
+package edu.rit.cs4005730.dsgroup3;
+
+import java.io.Serializable;
+import java.util.Random;
+
+import edu.rit.cs4005730.dsgroup3.network.Link;
+import edu.rit.cs4005730.dsgroup3.network.NetworkModel;
+import edu.rit.cs4005730.dsgroup3.picker.PiecePicker;
+import edu.rit.cs4005730.dsgroup3.sim.EventExecutors;
+import edu.rit.cs4005730.dsgroup3.util.RemoteUtils;
+import edu.rit.cs4005730.dsgroup3.util.SplitMix;
+
+/**
+ * Immutable settings of one swarm: the file being shared, the range of node rates, and how nodes pick, pipeline and report blocks. Every {@link Node},
+ * {@link NodeManager} and {@link GeneralStatistics} gets the config of its swarm when it is created, so any number of swarms with different settings can run in
+ * the same JVM. Changing a setting means building a new config with {@link #toBuilder()} and starting a new swarm with it.
+ *
+ */
+public final class SwarmConfig implements Serializable {
+   private static final long serialVersionUID = -6190218563337211437L;
+
+   // the settings the UserInterface starts with
+   public static final SwarmConfig  DEFAULT          = new Builder().build();
+
+   public final long                fileSize;
+   public final long                blockSize;
+   public final int                 blockCount;
+   // bytes per second
+   public final double              uploadMin;
+   public final double              uploadMax;
+   public final double              downloadMin;
+   public final double              downloadMax;
+   // wall-clock milliseconds per simulated millisecond when the swarm runs in real time
+   public final double              timeDilation;
+   public final PiecePicker.Type    pickerType;
+   // number of blocks requested from a peer at once
+   public final int                 pipelineDepth;
+   // number of batches a node downloads at the same time
+   public final int                 maxConcurrentDownloads;
+   // number of batches a node uploads at the same time; its upload capacity is shared fairly among them
+   public final int                 maxUploads;
+   public final EventExecutors.Type eventExecutor;
+   // milliseconds over which node progress events are coalesced before listeners are called
+   public final long                eventInterval;
+   // the name the NodeManager of the swarm is bound to
+   public final String              nodeManagerName;
+   // true if nodes find peers by announcing to the NodeManager, false if it broadcasts every node that joins or leaves to all nodes
+   public final boolean             isTracker;
+   // number of peers the NodeManager returns for one announce in tracker mode
+   public final int                 announceSize;
+   // simulated milliseconds between two announces of a node that is still downloading
+   public final long                announceInterval;
+   // number of peers a node connects to at most in tracker mode
+   public final int                 maxPeers;
+   // master seed every random stream of the swarm is derived from; the same seed on an EventScheduler replays a run exactly
+   public final long                seed;
+   // rates and latencies of the nodes by bandwidth class; null if every node draws its rates from the ranges above and requests take no time
+   public final NetworkModel        network;
+
+   private SwarmConfig(final Builder builder) {
+      this.fileSize = builder.fileSize;
+      this.blockSize = builder.blockSize;
+      this.blockCount = (int) Math.ceil((double) builder.fileSize / builder.blockSize);
+      this.uploadMin = builder.uploadMin;
+      this.uploadMax = builder.uploadMax;
+      this.downloadMin = builder.downloadMin;
+      this.downloadMax = builder.downloadMax;
+      this.timeDilation = builder.timeDilation;
+      this.pickerType = builder.pickerType;
+      this.pipelineDepth = builder.pipelineDepth;
+      this.maxConcurrentDownloads = builder.maxConcurrentDownloads;
+      this.maxUploads = builder.maxUploads;
+      this.eventExecutor = builder.eventExecutor;
+      this.eventInterval = builder.eventInterval;
+      this.nodeManagerName = builder.nodeManagerName;
+      this.isTracker = builder.isTracker;
+      this.announceSize = builder.announceSize;
+      this.announceInterval = builder.announceInterval;
+      this.maxPeers = builder.maxPeers;
+      this.seed = builder.seed;
+      this.network = builder.network;
+   }
+
+   /**
+    * Returns a builder preset with the settings of this config.
+    *
+    * @return a new builder
+    */
+   public Builder toBuilder() {
+      return new Builder(this);
+   }
+
+   /**
+    * Returns a random upload rate between {@link #uploadMin} and {@link #uploadMax}.
+    *
+    * @param random
+    *           the random source to draw from
+    * @return the upload rate in bytes per second
+    */
+   public double getUpload(final Random random) {
+      return this.uploadMin + ((this.uploadMax - this.uploadMin) * random.nextDouble());
+   }
+
+   /**
+    * Returns a random download rate between {@link #downloadMin} and {@link #downloadMax}.
+    *
+    * @param random
+    *           the random source to draw from
+    * @return the download rate in bytes per second
+    */
+   public double getDownload(final Random random) {
+      return this.downloadMin + ((this.downloadMax - this.downloadMin) * random.nextDouble());
+   }
+
+   /**
+    * Draws the rates and latency of a new node: from the {@link #network} if there is one, otherwise a seed gets the maximum rates, a peer random rates within
+    * the ranges of this config, and both no latency.
+    *
+    * @param random
+    *           the random source to draw from
+    * @param isSeed
+    *           true if the node is a seed
+    * @return the link of the node
+    */
+   public Link drawLink(final Random random, final boolean isSeed) {
+      if (this.network != null) {
+         return this.network.draw(random, isSeed);
+      }
+
+      if (isSeed) {
+         return new Link(null, this.uploadMax, this.downloadMax, 0);
+      }
+
+      final double upload = this.getUpload(random);
+      return new Link(null, upload, this.getDownload(random), 0);
+   }
+
+   @Override
+   public String toString() {
+      return "SwarmConfig[fileSize=" + this.fileSize + ", blockSize=" + this.blockSize + ", upload=" + this.uploadMin + "-" + this.uploadMax + ", download="
+            + this.downloadMin + "-" + this.downloadMax + ", timeDilation=" + this.timeDilation + ", picker=" + this.pickerType + ", pipelineDepth="
+            + this.pipelineDepth + ", maxConcurrentDownloads=" + this.maxConcurrentDownloads + ", maxUploads=" + this.maxUploads + ", eventExecutor="
+            + this.eventExecutor + ", eventInterval=" + this.eventInterval + ", nodeManagerName=" + this.nodeManagerName + ", tracker=" + this.isTracker
+            + ", announceSize=" + this.announceSize + ", announceInterval=" + this.announceInterval + ", maxPeers=" + this.maxPeers + ", seed=" + this.seed
+            + ", network=" + this.network + "]";
+   }
+
+   /**
+    * Collects the settings of a {@link SwarmConfig}. Starts out with the defaults; {@link #build()} checks the settings and may be called more than once.
+    */
+   public static final class Builder {
+      private long                fileSize               = 100 * RemoteUtils.MB_IN_BYTES;
+      private long                blockSize              = 256 * RemoteUtils.KB_IN_BYTES;
+      private double              uploadMin              = 256 * RemoteUtils.KB_IN_BYTES;
+      private double              uploadMax              = 1 * RemoteUtils.MB_IN_BYTES;
+      private double              downloadMin            = 5 * RemoteUtils.MB_IN_BYTES;
+      private double              downloadMax            = 15 * RemoteUtils.MB_IN_BYTES;
+      private double              timeDilation           = 0.1;
+      private PiecePicker.Type    pickerType             = PiecePicker.Type.RANDOM;
+      private int                 pipelineDepth          = 5;
+      private int                 maxConcurrentDownloads = 8;
+      private int                 maxUploads             = 8;
+      private EventExecutors.Type eventExecutor          = EventExecutors.Type.SHARED;
+      private long                eventInterval          = NodeEventBus.DEFAULT_INTERVAL;
+      private String              nodeManagerName        = RemoteUtils.NODE_MANAGER_NAME;
+      private boolean             isTracker              = false;
+      private int                 announceSize           = 50;
+      private long                announceInterval       = 30 * RemoteUtils.SECONDS_IN_MILLISECONDS;
+      private int                 maxPeers               = 80;
+      // a new one for every builder, so swarms are only alike when asked to be
+      private long                seed                   = SplitMix.newSeed();
+      private NetworkModel        network                = null;
+
+      public Builder() {
+         // defaults only
+      }
+
+      private Builder(final SwarmConfig config) {
+         this.fileSize = config.fileSize;
+         this.blockSize = config.blockSize;
+         this.uploadMin = config.uploadMin;
+         this.uploadMax = config.uploadMax;
+         this.downloadMin = config.downloadMin;
+         this.downloadMax = config.downloadMax;
+         this.timeDilation = config.timeDilation;
+         this.pickerType = config.pickerType;
+         this.pipelineDepth = config.pipelineDepth;
+         this.maxConcurrentDownloads = config.maxConcurrentDownloads;
+         this.maxUploads = config.maxUploads;
+         this.eventExecutor = config.eventExecutor;
+         this.eventInterval = config.eventInterval;
+         this.nodeManagerName = config.nodeManagerName;
+         this.isTracker = config.isTracker;
+         this.announceSize = config.announceSize;
+         this.announceInterval = config.announceInterval;
+         this.maxPeers = config.maxPeers;
+         this.seed = config.seed;
+         this.network = config.network;
+      }
+
+      public Builder fileSize(final long fileSize) {
+         this.fileSize = fileSize;
+         return this;
+      }
+
+      public Builder blockSize(final long blockSize) {
+         this.blockSize = blockSize;
+         return this;
+      }
+
+      public Builder upload(final double min, final double max) {
+         this.uploadMin = min;
+         this.uploadMax = max;
+         return this;
+      }
+
+      public Builder download(final double min, final double max) {
+         this.downloadMin = min;
+         this.downloadMax = max;
+         return this;
+      }
+
+      public Builder timeDilation(final double timeDilation) {
+         this.timeDilation = timeDilation;
+         return this;
+      }
+
+      public Builder pickerType(final PiecePicker.Type pickerType) {
+         this.pickerType = pickerType;
+         return this;
+      }
+
+      public Builder pipelineDepth(final int pipelineDepth) {
+         this.pipelineDepth = pipelineDepth;
+         return this;
+      }
+
+      public Builder maxConcurrentDownloads(final int maxConcurrentDownloads) {
+         this.maxConcurrentDownloads = maxConcurrentDownloads;
+         return this;
+      }
+
+      public Builder maxUploads(final int maxUploads) {
+         this.maxUploads = maxUploads;
+         return this;
+      }
+
+      public Builder eventExecutor(final EventExecutors.Type eventExecutor) {
+         this.eventExecutor = eventExecutor;
+         return this;
+      }
+
+      public Builder eventInterval(final long eventInterval) {
+         this.eventInterval = eventInterval;
+         return this;
+      }
+
+      public Builder nodeManagerName(final String nodeManagerName) {
+         this.nodeManagerName = nodeManagerName;
+         return this;
+      }
+
+      public Builder tracker(final boolean isTracker) {
+         this.isTracker = isTracker;
+         return this;
+      }
+
+      public Builder announceSize(final int announceSize) {
+         this.announceSize = announceSize;
+         return this;
+      }
+
+      public Builder announceInterval(final long announceInterval) {
+         this.announceInterval = announceInterval;
+         return this;
+      }
+
+      public Builder maxPeers(final int maxPeers) {
+         this.maxPeers = maxPeers;
+         return this;
+      }
+
+      public Builder seed(final long seed) {
+         this.seed = seed;
+         return this;
+      }
+
+      public Builder network(final NetworkModel network) {
+         this.network = network;
+         return this;
+      }
+
+      /**
+       * Creates a config of the current settings.
+       *
+       * @return the new config
+       * @throws IllegalArgumentException
+       *            if a size or rate is not positive, a minimum rate exceeds its maximum, or a setting is missing
+       */
+      public SwarmConfig build() {
+         if ((this.fileSize <= 0) || (this.blockSize <= 0) || (this.uploadMin <= 0) || (this.uploadMax < this.uploadMin) || (this.downloadMin <= 0)
+               || (this.downloadMax < this.downloadMin) || (this.timeDilation <= 0) || (this.pipelineDepth < 1) || (this.maxConcurrentDownloads < 1)
+               || (this.maxUploads < 1) || (this.eventInterval < 0) || (this.announceSize < 1) || (this.announceInterval <= 0) || (this.maxPeers < 1) || (this.pickerType == null) || (this.eventExecutor == null) || (this.nodeManagerName == null)) {
+            throw new IllegalArgumentException("SwarmConfig: invalid settings");
+         }
+
+         return new SwarmConfig(this);
+      }
+   }
+}
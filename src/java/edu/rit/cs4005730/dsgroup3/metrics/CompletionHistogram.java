@@ -0,0 +1,125 @@
+package edu.rit.cs4005730.dsgroup3.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative durations with bounded relative error, in the style of HdrHistogram. Values below {@link #SUB_BUCKET_COUNT} get a bucket each;
+ * above that every power of two is split into {@link #SUB_BUCKET_COUNT}/2 linear buckets, so a value is never off by more than 1/64 (about 1.6%) whatever
+ * its magnitude. The counts live in one array sized for every {@code long}, so recording is O(1) and never allocates, and percentiles cost one pass over
+ * a few thousand counters.
+ *
+ */
+public class CompletionHistogram {
+   // values below this get exact buckets; must be a power of two
+   public static final int    SUB_BUCKET_COUNT = 128;
+
+   private static final int   SUB_BUCKET_HALF  = SUB_BUCKET_COUNT / 2;
+   // log2(SUB_BUCKET_HALF)
+   private static final int   HALF_BITS        = Integer.numberOfTrailingZeros(SUB_BUCKET_HALF);
+   // enough buckets for Long.MAX_VALUE
+   private static final int   BUCKET_COUNT     = SUB_BUCKET_COUNT + ((63 - HALF_BITS) * SUB_BUCKET_HALF);
+
+   private final long[]       counts           = new long[BUCKET_COUNT];
+   private long               totalCount       = 0;
+   private long               sum              = 0;
+   private long               min              = Long.MAX_VALUE;
+   private long               max              = 0;
+
+   /**
+    * Records a value.
+    *
+    * @param value
+    *           the value to record, in milliseconds; negative values are recorded as 0
+    */
+   public synchronized void record(final long value) {
+      final long v = Math.max(0, value);
+
+      this.counts[getIndex(v)]++;
+      this.totalCount++;
+      this.sum += v;
+      this.min = Math.min(this.min, v);
+      this.max = Math.max(this.max, v);
+   }
+
+   public synchronized long getTotalCount() {
+      return this.totalCount;
+   }
+
+   /**
+    * Returns the exact mean of the recorded values.
+    *
+    * @return the mean, or 0 if nothing was recorded
+    */
+   public synchronized double getMean() {
+      return (this.totalCount == 0) ? 0 : ((double) this.sum / this.totalCount);
+   }
+
+   public synchronized long getMin() {
+      return (this.totalCount == 0) ? 0 : this.min;
+   }
+
+   public synchronized long getMax() {
+      return this.max;
+   }
+
+   /**
+    * Returns the value below or at which the given percentage of the recorded values fall. Like HdrHistogram this is the highest value of the bucket the
+    * percentile falls into, capped at the largest value recorded.
+    *
+    * @param percentile
+    *           the percentile, from 0 to 100
+    * @return the value at the percentile, or 0 if nothing was recorded
+    */
+   public synchronized long getValueAtPercentile(final double percentile) {
+      if (this.totalCount == 0) {
+         return 0;
+      }
+
+      final double p = Math.min(100, Math.max(0, percentile));
+      final long target = Math.max(1, (long) Math.ceil((p / 100.0) * this.totalCount));
+      long seen = 0;
+
+      for (int i = 0; i < this.counts.length; i++) {
+         seen += this.counts[i];
+
+         if (seen >= target) {
+            return Math.max(this.getMin(), Math.min(this.max, getHighestValue(i)));
+         }
+      }
+
+      return this.max;
+   }
+
+   /**
+    * Removes every recorded value.
+    */
+   public synchronized void reset() {
+      Arrays.fill(this.counts, 0);
+      this.totalCount = 0;
+      this.sum = 0;
+      this.min = Long.MAX_VALUE;
+      this.max = 0;
+   }
+
+   private static int getIndex(final long value) {
+      if (value < SUB_BUCKET_COUNT) {
+         return (int) value;
+      }
+
+      // shift that brings the value into [SUB_BUCKET_HALF, SUB_BUCKET_COUNT)
+      final int shift = (63 - Long.numberOfLeadingZeros(value)) - HALF_BITS;
+      return SUB_BUCKET_COUNT + ((shift - 1) * SUB_BUCKET_HALF) + (int) ((value >>> shift) - SUB_BUCKET_HALF);
+   }
+
+   private static long getHighestValue(final int index) {
+      if (index < SUB_BUCKET_COUNT) {
+         return index;
+      }
+
+      final int shift = ((index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF) + 1;
+      final long top = ((index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF) + SUB_BUCKET_HALF;
+      final long highest = ((top + 1) << shift) - 1;
+      // the last bucket ends beyond Long.MAX_VALUE
+      return (highest < 0) ? Long.MAX_VALUE : highest;
+   }
+}
@@ -0,0 +1,314 @@
+package edu.rit.cs4005730.dsgroup3.metrics;
+
+import java.io.PrintWriter;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.rit.cs4005730.dsgroup3.NodeManagerRef;
+import edu.rit.cs4005730.dsgroup3.NodeRef;
+import edu.rit.cs4005730.dsgroup3.sim.Scheduler;
+import edu.rit.cs4005730.dsgroup3.sim.SimulationEvent;
+import edu.rit.cs4005730.dsgroup3.sim.SimulationEvent.EventType;
+
+/**
+ * Samples a swarm at a fixed simulated interval. Every sample records the upload and download rate, the number of downloads in flight and the progress of
+ * the swarm as a whole into preallocated {@link TimeSeries} ring buffers, and the download time of every peer that finished since the previous sample goes
+ * into a {@link CompletionHistogram}. The same curves are kept for every single node only if a node capacity is given, since a large swarm would otherwise
+ * spend megabytes on series nobody reads. Samples are taken by {@link EventType#TIMER} events on the swarm's own {@link Scheduler}, so the
+ * curves line up with simulated time whether the swarm runs on the virtual or on the wall clock.
+ *
+ * Sampling stops by itself once every node is a seed, so an {@link edu.rit.cs4005730.dsgroup3.sim.EventScheduler} still runs out of events when the swarm
+ * completes.
+ *
+ */
+public class MetricsCollector {
+   // samples kept for the whole swarm
+   public static final int             DEFAULT_CAPACITY      = 4096;
+   // samples kept for every single node; none unless asked for, since there may be thousands of nodes
+   public static final int             DEFAULT_NODE_CAPACITY = 0;
+
+   /**
+    * The series of a single node.
+    */
+   public static class NodeSeries {
+      public final String     name;
+      // bytes per second
+      public final TimeSeries uploadRate;
+      public final TimeSeries downloadRate;
+      public final TimeSeries transfers;
+      // fraction of the file owned, from 0 to 1
+      public final TimeSeries progress;
+
+      private NodeSeries(final String name, final int capacity) {
+         this.name = name;
+         this.uploadRate = new TimeSeries(capacity);
+         this.downloadRate = new TimeSeries(capacity);
+         this.transfers = new TimeSeries(capacity);
+         this.progress = new TimeSeries(capacity);
+      }
+   }
+
+   private final NodeManagerRef                   manager;
+   private final Scheduler                        scheduler;
+   private final long                             interval;
+   private final int                              nodeCapacity;
+
+   private final TimeSeries                       uploadRate;
+   private final TimeSeries                       downloadRate;
+   private final TimeSeries                       transfers;
+   // mean progress of the nodes that are not seeds
+   private final TimeSeries                       progress;
+   private final TimeSeries                       completed;
+   private final CompletionHistogram              completionTimes       = new CompletionHistogram();
+   // series by node in the order the nodes were first seen; empty if the node capacity is 0; guarded by this
+   private final Map<NodeRef, NodeSeries>         nodes                 = new LinkedHashMap<NodeRef, NodeSeries>();
+   // seeds whose download time went into the histogram, or that started out as seeds; guarded by this
+   private final Set<NodeRef>                     counted               = new HashSet<NodeRef>();
+   private volatile boolean                       isStopped             = true;
+   private SimulationEvent                        next;
+
+   private final Runnable                         sample                = new Runnable() {
+                                                                           @Override
+                                                                           public void run() {
+                                                                              MetricsCollector.this.sample();
+                                                                           }
+                                                                        };
+
+   /**
+    * Creates a collector with the default capacities, which keeps no series for single nodes.
+    *
+    * @param manager
+    *           the {@link NodeManagerRef} listing the nodes to sample
+    * @param scheduler
+    *           the {@link Scheduler} of the swarm
+    * @param interval
+    *           simulated milliseconds between two samples
+    */
+   public MetricsCollector(final NodeManagerRef manager, final Scheduler scheduler, final long interval) {
+      this(manager, scheduler, interval, DEFAULT_CAPACITY, DEFAULT_NODE_CAPACITY);
+   }
+
+   /**
+    * Creates a collector. Sampling starts with {@link #start()}.
+    *
+    * @param manager
+    *           the {@link NodeManagerRef} listing the nodes to sample
+    * @param scheduler
+    *           the {@link Scheduler} of the swarm
+    * @param interval
+    *           simulated milliseconds between two samples
+    * @param capacity
+    *           the number of samples kept for the whole swarm
+    * @param nodeCapacity
+    *           the number of samples kept for each node; 0 keeps no series for single nodes
+    */
+   public MetricsCollector(final NodeManagerRef manager, final Scheduler scheduler, final long interval, final int capacity, final int nodeCapacity) {
+      if (interval <= 0) {
+         throw new IllegalArgumentException("MetricsCollector: interval must be positive");
+      }
+
+      this.manager = manager;
+      this.scheduler = scheduler;
+      this.interval = interval;
+      this.nodeCapacity = nodeCapacity;
+      this.uploadRate = new TimeSeries(capacity);
+      this.downloadRate = new TimeSeries(capacity);
+      this.transfers = new TimeSeries(capacity);
+      this.progress = new TimeSeries(capacity);
+      this.completed = new TimeSeries(capacity);
+   }
+
+   /**
+    * Takes a sample now and then every interval until {@link #stop()} is called or every node is a seed.
+    */
+   public synchronized void start() {
+      if (this.isStopped) {
+         this.isStopped = false;
+         this.next = this.scheduler.schedule(EventType.TIMER, 0, this.sample);
+      }
+   }
+
+   public synchronized void stop() {
+      this.isStopped = true;
+
+      if (this.next != null) {
+         this.next.cancel();
+         this.next = null;
+      }
+   }
+
+   public boolean isRunning() {
+      return !this.isStopped;
+   }
+
+   private void sample() {
+      List<NodeRef> refs;
+
+      try {
+         refs = this.manager.getNodes();
+      } catch (final RemoteException e) {
+         refs = new ArrayList<NodeRef>();
+      }
+
+      final long now = this.scheduler.currentTime();
+      double upload = 0;
+      double download = 0;
+      int downloads = 0;
+      double progressSum = 0;
+      int peerCount = 0;
+
+      synchronized (this) {
+         if (this.isStopped) {
+            return;
+         }
+
+         for (final NodeRef ref : refs) {
+            try {
+               final boolean isSeed = ref.isSeed();
+               final double nodeUpload = ref.getCurrentUploadRate();
+               final double nodeDownload = ref.getCurrentDownloadRate();
+               final int nodeDownloads = ref.getDownloadCount();
+               final double nodeProgress = ref.getProgress();
+
+               if (isSeed && this.counted.add(ref)) {
+                  final long transferTime = ref.getTransferTime();
+
+                  // nodes that started out as seeds have no download time to report
+                  if (transferTime != 0) {
+                     this.completionTimes.record(transferTime);
+                  }
+               }
+
+               if (this.nodeCapacity > 0) {
+                  NodeSeries series = this.nodes.get(ref);
+
+                  if (series == null) {
+                     series = new NodeSeries(ref.getName(), this.nodeCapacity);
+                     this.nodes.put(ref, series);
+                  }
+
+                  series.uploadRate.add(now, nodeUpload);
+                  series.downloadRate.add(now, nodeDownload);
+                  series.transfers.add(now, nodeDownloads);
+                  series.progress.add(now, nodeProgress);
+               }
+
+               upload += nodeUpload;
+               download += nodeDownload;
+               downloads += nodeDownloads;
+
+               if (!isSeed) {
+                  progressSum += nodeProgress;
+                  peerCount++;
+               }
+            } catch (final RemoteException e) {
+               // the node is gone; its series keep their last samples
+            }
+         }
+
+         this.uploadRate.add(now, upload);
+         this.downloadRate.add(now, download);
+         this.transfers.add(now, downloads);
+         this.progress.add(now, (peerCount == 0) ? 1 : (progressSum / peerCount));
+         this.completed.add(now, this.completionTimes.getTotalCount());
+
+         if (!refs.isEmpty() && (peerCount == 0)) {
+            // the swarm is complete; keep the event queue from running forever
+            this.isStopped = true;
+            this.next = null;
+         } else {
+            this.next = this.scheduler.schedule(EventType.TIMER, this.interval, this.sample);
+         }
+      }
+   }
+
+   public long getInterval() {
+      return this.interval;
+   }
+
+   /**
+    * Returns the summed upload rate of all nodes in bytes per second.
+    *
+    * @return the swarm's upload rate series
+    */
+   public TimeSeries getUploadRate() {
+      return this.uploadRate;
+   }
+
+   /**
+    * Returns the summed download rate of all nodes in bytes per second.
+    *
+    * @return the swarm's download rate series
+    */
+   public TimeSeries getDownloadRate() {
+      return this.downloadRate;
+   }
+
+   /**
+    * Returns the number of block downloads in flight across the swarm.
+    *
+    * @return the swarm's active transfer series
+    */
+   public TimeSeries getTransfers() {
+      return this.transfers;
+   }
+
+   /**
+    * Returns the mean progress, from 0 to 1, of the nodes that are not seeds yet; 1 once there are none.
+    *
+    * @return the swarm's progress series
+    */
+   public TimeSeries getProgress() {
+      return this.progress;
+   }
+
+   /**
+    * Returns the number of peers that had completed their download.
+    *
+    * @return the completion count series
+    */
+   public TimeSeries getCompleted() {
+      return this.completed;
+   }
+
+   /**
+    * Returns the download times of the peers that have completed, in simulated milliseconds.
+    *
+    * @return the completion time histogram
+    */
+   public CompletionHistogram getCompletionTimes() {
+      return this.completionTimes;
+   }
+
+   /**
+    * Returns the series of every node sampled so far, in the order the nodes were first seen.
+    *
+    * @return a copy of the node series; empty if the collector was created with a node capacity of 0
+    */
+   public synchronized List<NodeSeries> getNodeSeries() {
+      return new ArrayList<NodeSeries>(this.nodes.values());
+   }
+
+   /**
+    * Writes the swarm series as CSV with one row per sample: simulated seconds, upload and download rate in bytes per second, downloads in flight, mean
+    * progress and completed peers.
+    *
+    * @param out
+    *           the writer to write to
+    */
+   public synchronized void writeCsv(final PrintWriter out) {
+      out.println("time,uploadRate,downloadRate,transfers,progress,completed");
+
+      for (int i = 0; i < this.uploadRate.size(); i++) {
+         out.println((this.uploadRate.getTime(i) / 1000.0) + "," + (long) this.uploadRate.getValue(i) + "," + (long) this.downloadRate.getValue(i) + ","
+               + (long) this.transfers.getValue(i) + "," + this.progress.getValue(i) + "," + (long) this.completed.getValue(i));
+      }
+
+      out.flush();
+   }
+}
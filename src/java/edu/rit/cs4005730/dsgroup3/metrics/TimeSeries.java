@@ -0,0 +1,106 @@
+package edu.rit.cs4005730.dsgroup3.metrics;
+
+/**
+ * Fixed-size ring buffer of timestamped samples. Both arrays are allocated up front, so recording a sample never allocates; once the buffer is full every new
+ * sample overwrites the oldest one. Samples are indexed from the oldest one still held.
+ *
+ */
+public class TimeSeries {
+   private final long[]   times;
+   private final double[] values;
+   // index of the slot the next sample is written to
+   private int            next  = 0;
+   private int            size  = 0;
+
+   /**
+    * Creates an empty series holding at most the given number of samples.
+    *
+    * @param capacity
+    *           the number of samples kept
+    */
+   public TimeSeries(final int capacity) {
+      if (capacity < 1) {
+         throw new IllegalArgumentException("TimeSeries: capacity must be positive");
+      }
+
+      this.times = new long[capacity];
+      this.values = new double[capacity];
+   }
+
+   /**
+    * Appends a sample, overwriting the oldest one if the series is full.
+    *
+    * @param time
+    *           the simulated time of the sample in milliseconds
+    * @param value
+    *           the sampled value
+    */
+   public synchronized void add(final long time, final double value) {
+      this.times[this.next] = time;
+      this.values[this.next] = value;
+      this.next = (this.next + 1) % this.times.length;
+      this.size = Math.min(this.size + 1, this.times.length);
+   }
+
+   public synchronized int size() {
+      return this.size;
+   }
+
+   public int getCapacity() {
+      return this.times.length;
+   }
+
+   /**
+    * Returns the time of a sample.
+    *
+    * @param index
+    *           the index of the sample, 0 being the oldest one held
+    * @return the simulated time of the sample in milliseconds
+    */
+   public synchronized long getTime(final int index) {
+      return this.times[this.slot(index)];
+   }
+
+   /**
+    * Returns the value of a sample.
+    *
+    * @param index
+    *           the index of the sample, 0 being the oldest one held
+    * @return the sampled value
+    */
+   public synchronized double getValue(final int index) {
+      return this.values[this.slot(index)];
+   }
+
+   /**
+    * Returns the value of the newest sample.
+    *
+    * @return the newest value, or 0 if the series is empty
+    */
+   public synchronized double getLatest() {
+      return (this.size == 0) ? 0 : this.values[(this.next + this.times.length - 1) % this.times.length];
+   }
+
+   /**
+    * Returns the largest value held.
+    *
+    * @return the largest value, or 0 if the series is empty
+    */
+   public synchronized double getMax() {
+      double max = (this.size == 0) ? 0 : Double.NEGATIVE_INFINITY;
+
+      for (int i = 0; i < this.size; i++) {
+         max = Math.max(max, this.values[this.slot(i)]);
+      }
+
+      return max;
+   }
+
+   private int slot(final int index) {
+      if ((index < 0) || (index >= this.size)) {
+         throw new IndexOutOfBoundsException("TimeSeries: index " + index + " of " + this.size);
+      }
+
+      return ((this.next - this.size) + index + this.times.length) % this.times.length;
+   }
+}
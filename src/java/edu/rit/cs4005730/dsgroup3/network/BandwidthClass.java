@@ -0,0 +1,43 @@
+package edu.rit.cs4005730.dsgroup3.network;
+
+import edu.rit.cs4005730.dsgroup3.util.RemoteUtils;
+
+/**
+ * Kinds of connection a node can have. Each comes with typical upload and download rates, the one-way latency from the node to the backbone, and how common it
+ * is in a swarm of end users; a {@link NetworkModel} may override all of them.
+ *
+ */
+public enum BandwidthClass {
+   // asymmetric and slow to upload; interleaving adds latency on the last mile
+   DSL(64 * RemoteUtils.KB_IN_BYTES, 128 * RemoteUtils.KB_IN_BYTES, 512 * RemoteUtils.KB_IN_BYTES, 2 * RemoteUtils.MB_IN_BYTES, 15, 40, 0.25),
+   CABLE(256 * RemoteUtils.KB_IN_BYTES, 1 * RemoteUtils.MB_IN_BYTES, 2 * RemoteUtils.MB_IN_BYTES, 12 * RemoteUtils.MB_IN_BYTES, 8, 20, 0.45),
+   FIBER(10 * RemoteUtils.MB_IN_BYTES, 60 * RemoteUtils.MB_IN_BYTES, 10 * RemoteUtils.MB_IN_BYTES, 120 * RemoteUtils.MB_IN_BYTES, 2, 6, 0.25),
+   DATACENTER(100 * RemoteUtils.MB_IN_BYTES, 1000 * RemoteUtils.MB_IN_BYTES, 100 * RemoteUtils.MB_IN_BYTES, 1000 * RemoteUtils.MB_IN_BYTES, 0.1, 0.5, 0.05);
+
+   private final NetworkModel.Profile profile;
+   private final double               weight;
+
+   private BandwidthClass(final double uploadMin, final double uploadMax, final double downloadMin, final double downloadMax, final double latencyMin,
+         final double latencyMax, final double weight) {
+      this.profile = new NetworkModel.Profile(uploadMin, uploadMax, downloadMin, downloadMax, latencyMin, latencyMax);
+      this.weight = weight;
+   }
+
+   /**
+    * Returns the typical rates and latency of this class.
+    *
+    * @return the default profile
+    */
+   public NetworkModel.Profile getDefaultProfile() {
+      return this.profile;
+   }
+
+   /**
+    * Returns the share of nodes of this class in a typical swarm.
+    *
+    * @return the default weight, the weights of all classes adding up to 1
+    */
+   public double getDefaultWeight() {
+      return this.weight;
+   }
+}
@@ -0,0 +1,31 @@
+package edu.rit.cs4005730.dsgroup3.network;
+
+import java.io.Serializable;
+
+/**
+ * The connection of one node, as drawn from a {@link NetworkModel}.
+ *
+ */
+public final class Link implements Serializable {
+   private static final long   serialVersionUID = 4127723092376215731L;
+
+   // null if the rates were not drawn from a NetworkModel
+   public final BandwidthClass bandwidthClass;
+   // bytes per second
+   public final double         upload;
+   public final double         download;
+   // one-way milliseconds from the node to the backbone
+   public final double         latency;
+
+   public Link(final BandwidthClass bandwidthClass, final double upload, final double download, final double latency) {
+      this.bandwidthClass = bandwidthClass;
+      this.upload = upload;
+      this.download = download;
+      this.latency = latency;
+   }
+
+   @Override
+   public String toString() {
+      return "Link[" + this.bandwidthClass + ", upload=" + this.upload + ", download=" + this.download + ", latency=" + this.latency + "]";
+   }
+}
@@ -0,0 +1,284 @@
+package edu.rit.cs4005730.dsgroup3.network;
+
+import java.io.Serializable;
+import java.util.Random;
+
+import edu.rit.cs4005730.dsgroup3.util.SplitMix;
+
+/**
+ * Immutable model of the network a swarm runs on. Every node gets a {@link Link} of one of the {@link BandwidthClass}es, chosen by the weights of the classes,
+ * with rates and access latency drawn from the {@link Profile} of its class. Two nodes are apart by the access latency of both plus a backbone delay that is
+ * fixed for the pair, so the round trip time of every pair of nodes is known without any state per pair. Every request for a batch of blocks waits one round
+ * trip, give or take the jitter, before its first byte arrives.
+ *
+ */
+public final class NetworkModel implements Serializable {
+   private static final long        serialVersionUID = -2409874583651254103L;
+
+   // the default profiles and weights of every class
+   public static final NetworkModel DEFAULT          = new Builder().build();
+
+   /**
+    * Rates and access latency of one {@link BandwidthClass}. Rates are drawn log-uniformly, so within a class a link is as likely to be between 1 and 2 MBps as
+    * between 2 and 4 MBps; latencies are drawn uniformly.
+    */
+   public static final class Profile implements Serializable {
+      private static final long serialVersionUID = 7853271990253467601L;
+
+      // bytes per second
+      public final double       uploadMin;
+      public final double       uploadMax;
+      public final double       downloadMin;
+      public final double       downloadMax;
+      // one-way milliseconds from a node to the backbone
+      public final double       latencyMin;
+      public final double       latencyMax;
+
+      /**
+       * Creates a profile.
+       *
+       * @throws IllegalArgumentException
+       *            if a rate is not positive, a latency is negative or a minimum exceeds its maximum
+       */
+      public Profile(final double uploadMin, final double uploadMax, final double downloadMin, final double downloadMax, final double latencyMin,
+            final double latencyMax) {
+         if ((uploadMin <= 0) || (uploadMax < uploadMin) || (downloadMin <= 0) || (downloadMax < downloadMin) || (latencyMin < 0) || (latencyMax < latencyMin)) {
+            throw new IllegalArgumentException("NetworkModel.Profile: invalid settings");
+         }
+
+         this.uploadMin = uploadMin;
+         this.uploadMax = uploadMax;
+         this.downloadMin = downloadMin;
+         this.downloadMax = downloadMax;
+         this.latencyMin = latencyMin;
+         this.latencyMax = latencyMax;
+      }
+
+      @Override
+      public String toString() {
+         return "Profile[upload=" + this.uploadMin + "-" + this.uploadMax + ", download=" + this.downloadMin + "-" + this.downloadMax + ", latency="
+               + this.latencyMin + "-" + this.latencyMax + "]";
+      }
+   }
+
+   // by ordinal of BandwidthClass
+   private final double[]           weights;
+   private final Profile[]          profiles;
+   private final double             totalWeight;
+   // the class of every seed; null if seeds are drawn like peers
+   public final BandwidthClass      seedClass;
+   // one-way milliseconds across the backbone between the access networks of two nodes
+   public final double              backboneMin;
+   public final double              backboneMax;
+   // largest deviation of a request's round trip from the pair's round trip time, as a fraction of it
+   public final double              jitter;
+
+   private NetworkModel(final Builder builder) {
+      this.weights = builder.weights.clone();
+      this.profiles = builder.profiles.clone();
+      this.seedClass = builder.seedClass;
+      this.backboneMin = builder.backboneMin;
+      this.backboneMax = builder.backboneMax;
+      this.jitter = builder.jitter;
+
+      double total = 0;
+
+      for (final double weight : this.weights) {
+         total += weight;
+      }
+
+      this.totalWeight = total;
+   }
+
+   /**
+    * Returns a builder preset with the settings of this model.
+    *
+    * @return a new builder
+    */
+   public Builder toBuilder() {
+      return new Builder(this);
+   }
+
+   public double getWeight(final BandwidthClass bandwidthClass) {
+      return this.weights[bandwidthClass.ordinal()];
+   }
+
+   public Profile getProfile(final BandwidthClass bandwidthClass) {
+      return this.profiles[bandwidthClass.ordinal()];
+   }
+
+   /**
+    * Draws the connection of a new node.
+    *
+    * @param random
+    *           the random source to draw from
+    * @param isSeed
+    *           true if the node is a seed, which is of {@link #seedClass} if one is set
+    * @return the link of the node
+    */
+   public Link draw(final Random random, final boolean isSeed) {
+      final BandwidthClass bandwidthClass = (isSeed && (this.seedClass != null)) ? this.seedClass : this.pickClass(random);
+      final Profile profile = this.profiles[bandwidthClass.ordinal()];
+
+      return new Link(bandwidthClass, logUniform(random, profile.uploadMin, profile.uploadMax), logUniform(random, profile.downloadMin, profile.downloadMax),
+            profile.latencyMin + ((profile.latencyMax - profile.latencyMin) * random.nextDouble()));
+   }
+
+   private BandwidthClass pickClass(final Random random) {
+      final BandwidthClass[] classes = BandwidthClass.values();
+      double remaining = random.nextDouble() * this.totalWeight;
+
+      for (int i = 0; i < classes.length; i++) {
+         remaining -= this.weights[i];
+
+         if ((remaining < 0) && (this.weights[i] > 0)) {
+            return classes[i];
+         }
+      }
+
+      // rounding left a little weight over; take the last class that has any
+      for (int i = classes.length - 1; i >= 0; i--) {
+         if (this.weights[i] > 0) {
+            return classes[i];
+         }
+      }
+
+      return classes[0];
+   }
+
+   private static double logUniform(final Random random, final double min, final double max) {
+      return min * Math.pow(max / min, random.nextDouble());
+   }
+
+   /**
+    * Returns the round trip time between two nodes: twice their access latencies plus the backbone delay of the pair, which is the same whichever of the two
+    * asks.
+    *
+    * @param seed
+    *           the master seed of the swarm, which fixes the backbone delay of every pair
+    * @param id
+    *           the id of one node
+    * @param latency
+    *           the one-way access latency of that node in milliseconds
+    * @param otherId
+    *           the id of the other node
+    * @param otherLatency
+    *           the one-way access latency of the other node in milliseconds
+    * @return the round trip time in milliseconds
+    */
+   public double getRoundTripTime(final long seed, final int id, final double latency, final int otherId, final double otherLatency) {
+      final long pair = ((long) Math.min(id, otherId) << 32) | (Math.max(id, otherId) & 0xFFFFFFFFL);
+      // 53 random bits as a double in [0, 1)
+      final double fraction = (SplitMix.derive(seed, pair) >>> 11) * 0x1.0p-53;
+      final double backbone = this.backboneMin + ((this.backboneMax - this.backboneMin) * fraction);
+
+      return 2 * (latency + otherLatency + backbone);
+   }
+
+   /**
+    * Returns how long a request waits for its first byte: one round trip, give or take the jitter.
+    *
+    * @param roundTripTime
+    *           the round trip time of the pair in milliseconds
+    * @param random
+    *           the random source to draw the jitter from
+    * @return the delay in simulated milliseconds
+    */
+   public long getRequestDelay(final double roundTripTime, final Random random) {
+      return Math.round(roundTripTime * (1 + (this.jitter * ((2 * random.nextDouble()) - 1))));
+   }
+
+   @Override
+   public String toString() {
+      final StringBuilder text = new StringBuilder("NetworkModel[");
+
+      for (final BandwidthClass bandwidthClass : BandwidthClass.values()) {
+         text.append(bandwidthClass).append('=').append(this.getWeight(bandwidthClass)).append(' ').append(this.getProfile(bandwidthClass)).append(", ");
+      }
+
+      return text.append("seedClass=").append(this.seedClass).append(", backbone=").append(this.backboneMin).append('-').append(this.backboneMax)
+            .append(", jitter=").append(this.jitter).append(']').toString();
+   }
+
+   /**
+    * Collects the settings of a {@link NetworkModel}. Starts out with the default profile and weight of every {@link BandwidthClass}.
+    */
+   public static final class Builder {
+      private final double[]  weights     = new double[BandwidthClass.values().length];
+      private final Profile[] profiles    = new Profile[BandwidthClass.values().length];
+      private BandwidthClass  seedClass   = null;
+      private double          backboneMin = 5;
+      private double          backboneMax = 80;
+      private double          jitter      = 0.1;
+
+      public Builder() {
+         for (final BandwidthClass bandwidthClass : BandwidthClass.values()) {
+            this.weights[bandwidthClass.ordinal()] = bandwidthClass.getDefaultWeight();
+            this.profiles[bandwidthClass.ordinal()] = bandwidthClass.getDefaultProfile();
+         }
+      }
+
+      private Builder(final NetworkModel model) {
+         System.arraycopy(model.weights, 0, this.weights, 0, this.weights.length);
+         System.arraycopy(model.profiles, 0, this.profiles, 0, this.profiles.length);
+         this.seedClass = model.seedClass;
+         this.backboneMin = model.backboneMin;
+         this.backboneMax = model.backboneMax;
+         this.jitter = model.jitter;
+      }
+
+      /**
+       * Sets the share of nodes of the given class. Weights are relative to each other and need not add up to 1; a weight of 0 leaves the class out.
+       */
+      public Builder weight(final BandwidthClass bandwidthClass, final double weight) {
+         this.weights[bandwidthClass.ordinal()] = weight;
+         return this;
+      }
+
+      public Builder profile(final BandwidthClass bandwidthClass, final Profile profile) {
+         this.profiles[bandwidthClass.ordinal()] = profile;
+         return this;
+      }
+
+      public Builder seedClass(final BandwidthClass seedClass) {
+         this.seedClass = seedClass;
+         return this;
+      }
+
+      public Builder backbone(final double min, final double max) {
+         this.backboneMin = min;
+         this.backboneMax = max;
+         return this;
+      }
+
+      public Builder jitter(final double jitter) {
+         this.jitter = jitter;
+         return this;
+      }
+
+      /**
+       * Creates a model of the current settings.
+       *
+       * @return the new model
+       * @throws IllegalArgumentException
+       *            if a weight is negative, all weights are 0, a backbone delay is negative or exceeds its maximum, or the jitter is not between 0 and 1
+       */
+      public NetworkModel build() {
+         double total = 0;
+
+         for (int i = 0; i < this.weights.length; i++) {
+            if ((this.weights[i] < 0) || (this.profiles[i] == null)) {
+               throw new IllegalArgumentException("NetworkModel: invalid settings");
+            }
+
+            total += this.weights[i];
+         }
+
+         if ((total <= 0) || (this.backboneMin < 0) || (this.backboneMax < this.backboneMin) || (this.jitter < 0) || (this.jitter > 1)) {
+            throw new IllegalArgumentException("NetworkModel: invalid settings");
+         }
+
+         return new NetworkModel(this);
+      }
+   }
+}
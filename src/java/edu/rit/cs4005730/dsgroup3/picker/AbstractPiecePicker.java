@@ -0,0 +1,158 @@
+package edu.rit.cs4005730.dsgroup3.picker;
+
+import edu.rit.cs4005730.dsgroup3.BlockState;
+
+/**
+ * Base class for pickers that keep the wanted blocks in a dense array. Adding and removing a block swaps it with the last wanted block, so both are O(1) and
+ * a uniformly random wanted block is a single array access. The wanted blocks are mirrored in a bitfield, so the wanted blocks a peer owns are found by
+ * and-ing it with the peer's bitfield, 64 blocks per step.
+ * 
+ */
+public abstract class AbstractPiecePicker implements PiecePicker {
+   protected final int[] wanted;
+   // position of each block in wanted or -1 if the block is not wanted
+   protected final int[] position;
+   protected int         size;
+   // one bit per wanted block, like a BlockState bitfield
+   private final long[]  wantedBits;
+   
+   protected AbstractPiecePicker(final int blockCount) {
+      this.wanted = new int[blockCount];
+      this.position = new int[blockCount];
+      this.wantedBits = new long[BlockState.getWordCount(blockCount)];
+      
+      for (int i = 0; i < blockCount; i++) {
+         this.wanted[i] = i;
+         this.position[i] = i;
+         this.wantedBits[i >> 6] |= 1L << i;
+      }
+      
+      this.size = blockCount;
+   }
+   
+   @Override
+   public synchronized int getWantedCount() {
+      return this.size;
+   }
+   
+   /**
+    * Returns the number of wanted blocks the peer owns. O(blocks / 64).
+    */
+   protected int countAvailable(final long[] available) {
+      final int words = Math.min(available.length, this.wantedBits.length);
+      int count = 0;
+      
+      for (int word = 0; word < words; word++) {
+         count += Long.bitCount(this.wantedBits[word] & available[word]);
+      }
+      
+      return count;
+   }
+   
+   /**
+    * Returns the wanted block the peer owns that comes after the given number of such blocks in index order. O(blocks / 64).
+    * 
+    * @param rank
+    *           the number of wanted blocks owned by the peer to skip, less than {@link #countAvailable(long[])}
+    * @return the block index or -1 if the peer owns no more wanted blocks than that
+    */
+   protected int selectAvailable(final long[] available, final int rank) {
+      final int words = Math.min(available.length, this.wantedBits.length);
+      int remaining = rank;
+      
+      for (int word = 0; word < words; word++) {
+         long bits = this.wantedBits[word] & available[word];
+         final int count = Long.bitCount(bits);
+         
+         if (remaining < count) {
+            for (; remaining > 0; remaining--) {
+               bits &= bits - 1;
+            }
+            
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+         }
+         
+         remaining -= count;
+      }
+      
+      return -1;
+   }
+   
+   /**
+    * Returns the lowest wanted block the peer owns at or after the given index. O(blocks / 64).
+    * 
+    * @return the block index or -1 if there is none
+    */
+   protected int nextAvailable(final long[] available, final int from) {
+      final int words = Math.min(available.length, this.wantedBits.length);
+      
+      if (from < 0) {
+         return -1;
+      }
+      
+      for (int word = from >> 6; word < words; word++) {
+         long bits = this.wantedBits[word] & available[word];
+         
+         if (word == (from >> 6)) {
+            // leave out the blocks before from in its own word
+            bits &= -1L << from;
+         }
+         
+         if (bits != 0) {
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+         }
+      }
+      
+      return -1;
+   }
+   
+   protected boolean isWanted(final int index) {
+      return this.position[index] != -1;
+   }
+   
+   protected void addWanted(final int index) {
+      if (this.position[index] == -1) {
+         this.wanted[this.size] = index;
+         this.position[index] = this.size;
+         this.size++;
+         this.wantedBits[index >> 6] |= 1L << index;
+      }
+   }
+   
+   protected void removeWanted(final int index) {
+      final int pos = this.position[index];
+      
+      if (pos != -1) {
+         final int last = this.wanted[--this.size];
+         this.wanted[pos] = last;
+         this.position[last] = pos;
+         this.position[index] = -1;
+         this.wantedBits[index >> 6] &= ~(1L << index);
+      }
+   }
+   
+   @Override
+   public synchronized void reserved(final int index) {
+      this.removeWanted(index);
+   }
+   
+   @Override
+   public synchronized void released(final int index) {
+      this.addWanted(index);
+   }
+   
+   @Override
+   public synchronized void completed(final int index) {
+      this.removeWanted(index);
+   }
+   
+   @Override
+   public void addAvailability(final int index) {
+      // availability is ignored unless the strategy needs it
+   }
+   
+   @Override
+   public void removeAvailability(final int index) {
+      // availability is ignored unless the strategy needs it
+   }
+}
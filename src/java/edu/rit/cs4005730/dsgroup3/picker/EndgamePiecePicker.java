@@ -0,0 +1,115 @@
+package edu.rit.cs4005730.dsgroup3.picker;
+
+import java.util.Random;
+
+import edu.rit.cs4005730.dsgroup3.BlockState;
+
+/**
+ * Wraps another {@link PiecePicker} and switches to endgame mode once every remaining block is already being downloaded: blocks that are still in flight are
+ * then requested again from other peers so a single slow peer cannot hold back the end of the download. The first copy to arrive wins.
+ * 
+ */
+public class EndgamePiecePicker implements PiecePicker {
+   private final PiecePicker delegate;
+   private final Random      random;
+   // blocks currently being downloaded, kept dense like the wanted blocks of AbstractPiecePicker
+   private final int[]       inFlight;
+   private final int[]       position;
+   private int               size = 0;
+   
+   public EndgamePiecePicker(final PiecePicker delegate, final int blockCount, final Random random) {
+      this.delegate = delegate;
+      this.random = random;
+      this.inFlight = new int[blockCount];
+      this.position = new int[blockCount];
+      
+      for (int i = 0; i < blockCount; i++) {
+         this.position[i] = -1;
+      }
+   }
+   
+   @Override
+   public synchronized int pick() {
+      final int index = this.delegate.pick();
+      
+      if ((index != -1) || (this.size == 0)) {
+         return index;
+      }
+      
+      return this.inFlight[this.random.nextInt(this.size)];
+   }
+   
+   @Override
+   public synchronized int pick(final long[] available) {
+      final int index = this.delegate.pick(available);
+      
+      // only duplicate requests once nothing is left that is not already in flight
+      if ((index != -1) || (this.size == 0) || (this.delegate.getWantedCount() > 0)) {
+         return index;
+      }
+      
+      final int offset = this.random.nextInt(this.size);
+      
+      for (int i = 0; i < this.size; i++) {
+         final int block = this.inFlight[(offset + i) % this.size];
+         
+         if (BlockState.isSet(available, block)) {
+            return block;
+         }
+      }
+      
+      return -1;
+   }
+   
+   @Override
+   public int getWantedCount() {
+      return this.delegate.getWantedCount();
+   }
+   
+   private void addInFlight(final int index) {
+      if (this.position[index] == -1) {
+         this.inFlight[this.size] = index;
+         this.position[index] = this.size;
+         this.size++;
+      }
+   }
+   
+   private void removeInFlight(final int index) {
+      final int pos = this.position[index];
+      
+      if (pos != -1) {
+         final int last = this.inFlight[--this.size];
+         this.inFlight[pos] = last;
+         this.position[last] = pos;
+         this.position[index] = -1;
+      }
+   }
+   
+   @Override
+   public synchronized void reserved(final int index) {
+      this.delegate.reserved(index);
+      this.addInFlight(index);
+   }
+   
+   @Override
+   public synchronized void released(final int index) {
+      this.delegate.released(index);
+      this.removeInFlight(index);
+   }
+   
+   @Override
+   public synchronized void completed(final int index) {
+      this.delegate.completed(index);
+      this.removeInFlight(index);
+   }
+   
+   @Override
+   public void addAvailability(final int index) {
+      this.delegate.addAvailability(index);
+   }
+   
+   @Override
+   public void removeAvailability(final int index) {
+      this.delegate.removeAvailability(index);
+   }
+}
@@ -0,0 +1,99 @@
+package edu.rit.cs4005730.dsgroup3.picker;
+
+import java.util.Random;
+
+/**
+ * Chooses which missing block a {@link edu.rit.cs4005730.dsgroup3.Node} should request next. A picker tracks the set of wanted blocks (not owned and not
+ * being downloaded) and is told about every change to that set, so {@link #pick()} never has to scan the whole file.
+ * 
+ */
+public interface PiecePicker {
+   public enum Type {
+      RANDOM, SEQUENTIAL, RAREST_FIRST, ENDGAME;
+      
+      /**
+       * Creates a picker of this type for a file with the given number of blocks, all of which are wanted.
+       * 
+       * @param blockCount
+       *           the number of blocks in the file
+       * @param random
+       *           the random number generator used to break ties
+       * @return the new picker
+       */
+      public PiecePicker create(final int blockCount, final Random random) {
+         switch (this) {
+            case SEQUENTIAL:
+               return new SequentialPiecePicker(blockCount);
+            case RAREST_FIRST:
+               return new RarestFirstPiecePicker(blockCount, random);
+            case ENDGAME:
+               return new EndgamePiecePicker(new RarestFirstPiecePicker(blockCount, random), blockCount, random);
+            default:
+               return new RandomPiecePicker(blockCount, random);
+         }
+      }
+   }
+   
+   /**
+    * Returns the index of the block to request next.
+    * 
+    * @return the block index or -1 if there is nothing left to request
+    */
+   public int pick();
+   
+   /**
+    * Returns the index of the block to request next from a peer that owns the given blocks.
+    * 
+    * @param available
+    *           the bitfield of the blocks owned by the peer
+    * @return the block index or -1 if the peer has no block worth requesting
+    */
+   public int pick(final long[] available);
+   
+   /**
+    * Returns the number of blocks that are neither owned nor being downloaded.
+    * 
+    * @return the number of wanted blocks
+    */
+   public int getWantedCount();
+   
+   /**
+    * Notifies this picker that a transfer of the given block has been reserved with a peer.
+    * 
+    * @param index
+    *           the block index
+    */
+   public void reserved(final int index);
+   
+   /**
+    * Notifies this picker that every transfer of the given block has ended without completing it, so the block is wanted again.
+    * 
+    * @param index
+    *           the block index
+    */
+   public void released(final int index);
+   
+   /**
+    * Notifies this picker that the given block has been completely downloaded.
+    * 
+    * @param index
+    *           the block index
+    */
+   public void completed(final int index);
+   
+   /**
+    * Notifies this picker that one more peer owns the given block.
+    * 
+    * @param index
+    *           the block index
+    */
+   public void addAvailability(final int index);
+   
+   /**
+    * Notifies this picker that one less peer owns the given block.
+    * 
+    * @param index
+    *           the block index
+    */
+   public void removeAvailability(final int index);
+}
@@ -0,0 +1,43 @@
+package edu.rit.cs4005730.dsgroup3.picker;
+
+import java.util.Random;
+
+import edu.rit.cs4005730.dsgroup3.BlockState;
+
+/**
+ * Picks a uniformly random wanted block, or a uniformly random one among the wanted blocks a peer owns. The first is O(1). The second first draws a few
+ * wanted blocks and takes the first the peer owns, which is O(1) while the peer owns a fair part of them; only if every draw misses does it count and select
+ * the peer's wanted blocks a word of 64 blocks at a time, which is O(blocks / 64). Either way every wanted block the peer owns is equally likely.
+ * 
+ */
+public class RandomPiecePicker extends AbstractPiecePicker {
+   // wanted blocks drawn before falling back to counting the peer's wanted blocks
+   private static final int DRAWS = 8;
+   
+   private final Random     random;
+   
+   public RandomPiecePicker(final int blockCount, final Random random) {
+      super(blockCount);
+      this.random = random;
+   }
+   
+   @Override
+   public synchronized int pick() {
+      return (this.size == 0) ? -1 : this.wanted[this.random.nextInt(this.size)];
+   }
+   
+   @Override
+   public synchronized int pick(final long[] available) {
+      for (int i = 0; (i < DRAWS) && (this.size > 0); i++) {
+         final int index = this.wanted[this.random.nextInt(this.size)];
+         
+         if (BlockState.isSet(available, index)) {
+            return index;
+         }
+      }
+      
+      final int count = (this.size == 0) ? 0 : this.countAvailable(available);
+      
+      return (count == 0) ? -1 : this.selectAvailable(available, this.random.nextInt(count));
+   }
+}
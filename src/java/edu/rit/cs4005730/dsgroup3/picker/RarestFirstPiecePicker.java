@@ -0,0 +1,191 @@
+package edu.rit.cs4005730.dsgroup3.picker;
+
+import java.util.Random;
+
+import edu.rit.cs4005730.dsgroup3.BlockState;
+
+/**
+ * Picks a random block among the wanted blocks owned by the fewest known peers. Wanted blocks are kept sorted by availability in a single array with the
+ * start of every availability bucket recorded, so a change in availability is a single swap and picking only has to find the first non-empty bucket.
+ * Blocks no known peer owns are only picked when nothing else is available.
+ * 
+ */
+public class RarestFirstPiecePicker implements PiecePicker {
+   private final Random random;
+   private final int[]  availability;
+   // wanted blocks sorted by availability
+   private final int[]  order;
+   // position of each block in order or -1 if the block is not wanted
+   private final int[]  position;
+   // start[c] is the position in order of the first wanted block with availability c
+   private int[]        start      = new int[8];
+   private int          maxBucket  = 0;
+   private int          size;
+   
+   public RarestFirstPiecePicker(final int blockCount, final Random random) {
+      this.random = random;
+      this.availability = new int[blockCount];
+      this.order = new int[blockCount];
+      this.position = new int[blockCount];
+      
+      for (int i = 0; i < blockCount; i++) {
+         this.order[i] = i;
+         this.position[i] = i;
+      }
+      
+      this.size = blockCount;
+   }
+   
+   private int getEnd(final int bucket) {
+      return (bucket == this.maxBucket) ? this.size : this.start[bucket + 1];
+   }
+   
+   private void swap(final int a, final int b) {
+      final int blockA = this.order[a];
+      final int blockB = this.order[b];
+      this.order[a] = blockB;
+      this.order[b] = blockA;
+      this.position[blockB] = a;
+      this.position[blockA] = b;
+   }
+   
+   @Override
+   public synchronized int pick() {
+      if (this.size == 0) {
+         return -1;
+      }
+      
+      for (int bucket = 1; bucket <= this.maxBucket; bucket++) {
+         final int from = this.start[bucket];
+         final int to = this.getEnd(bucket);
+         
+         if (from < to) {
+            return this.order[from + this.random.nextInt(to - from)];
+         }
+      }
+      
+      // nobody is known to have any wanted block; fall back to any of them
+      final int to = this.getEnd(0);
+      return (to == 0) ? -1 : this.order[this.random.nextInt(to)];
+   }
+   
+   @Override
+   public synchronized int pick(final long[] available) {
+      if (this.size == 0) {
+         return -1;
+      }
+      
+      // blocks in bucket 0 are owned by no known peer, so the given peer cannot have them either
+      for (int bucket = 1; bucket <= this.maxBucket; bucket++) {
+         final int from = this.start[bucket];
+         final int length = this.getEnd(bucket) - from;
+         
+         if (length > 0) {
+            final int offset = this.random.nextInt(length);
+            
+            for (int i = 0; i < length; i++) {
+               final int index = this.order[from + ((offset + i) % length)];
+               
+               if (BlockState.isSet(available, index)) {
+                  return index;
+               }
+            }
+         }
+      }
+      
+      return -1;
+   }
+   
+   @Override
+   public synchronized int getWantedCount() {
+      return this.size;
+   }
+   
+   private void add(final int index) {
+      if (this.position[index] != -1) {
+         return;
+      }
+      
+      // append to the last bucket, then move down by swapping with the first block of each bucket above the target
+      this.order[this.size] = index;
+      this.position[index] = this.size;
+      this.size++;
+      
+      for (int bucket = this.maxBucket; bucket > this.availability[index]; bucket--) {
+         this.swap(this.start[bucket], this.position[index]);
+         this.start[bucket]++;
+      }
+   }
+   
+   private void remove(final int index) {
+      if (this.position[index] == -1) {
+         return;
+      }
+      
+      // move up to the last bucket by swapping with the last block of each bucket, then drop from the end
+      for (int bucket = this.availability[index] + 1; bucket <= this.maxBucket; bucket++) {
+         this.swap(this.start[bucket] - 1, this.position[index]);
+         this.start[bucket]--;
+      }
+      
+      this.swap(this.size - 1, this.position[index]);
+      this.size--;
+      this.position[index] = -1;
+   }
+   
+   @Override
+   public synchronized void reserved(final int index) {
+      this.remove(index);
+   }
+   
+   @Override
+   public synchronized void released(final int index) {
+      this.add(index);
+   }
+   
+   @Override
+   public synchronized void completed(final int index) {
+      this.remove(index);
+   }
+   
+   @Override
+   public synchronized void addAvailability(final int index) {
+      final int bucket = this.availability[index];
+      
+      if (bucket == this.maxBucket) {
+         if (this.maxBucket + 1 == this.start.length) {
+            final int[] grown = new int[this.start.length * 2];
+            System.arraycopy(this.start, 0, grown, 0, this.start.length);
+            this.start = grown;
+         }
+         
+         this.maxBucket++;
+         this.start[this.maxBucket] = this.size;
+      }
+      
+      if (this.position[index] != -1) {
+         // becomes the first block of the next bucket
+         this.swap(this.start[bucket + 1] - 1, this.position[index]);
+         this.start[bucket + 1]--;
+      }
+      
+      this.availability[index]++;
+   }
+   
+   @Override
+   public synchronized void removeAvailability(final int index) {
+      final int bucket = this.availability[index];
+      
+      if (bucket == 0) {
+         return;
+      }
+      
+      if (this.position[index] != -1) {
+         // becomes the last block of the previous bucket
+         this.swap(this.start[bucket], this.position[index]);
+         this.start[bucket]++;
+      }
+      
+      this.availability[index]--;
+   }
+}
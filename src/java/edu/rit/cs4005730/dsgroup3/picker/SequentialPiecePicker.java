@@ -0,0 +1,36 @@
+package edu.rit.cs4005730.dsgroup3.picker;
+
+/**
+ * Picks the wanted block with the lowest index, as a streaming client would. A cursor only moves forward until a block before it is released again, so
+ * picking is O(1) amortized. Picking among the blocks a peer owns goes on from the cursor a word of 64 blocks at a time, so it is O(blocks / 64).
+ * 
+ */
+public class SequentialPiecePicker extends AbstractPiecePicker {
+   private final int blockCount;
+   private int       cursor = 0;
+   
+   public SequentialPiecePicker(final int blockCount) {
+      super(blockCount);
+      this.blockCount = blockCount;
+   }
+   
+   @Override
+   public synchronized int pick() {
+      while ((this.cursor < this.blockCount) && !this.isWanted(this.cursor)) {
+         this.cursor++;
+      }
+      
+      return (this.cursor < this.blockCount) ? this.cursor : -1;
+   }
+   
+   @Override
+   public synchronized int pick(final long[] available) {
+      return this.nextAvailable(available, this.pick());
+   }
+   
+   @Override
+   public synchronized void released(final int index) {
+      super.released(index);
+      this.cursor = Math.min(this.cursor, index);
+   }
+}
@@ -0,0 +1,309 @@
+package edu.rit.cs4005730.dsgroup3.sim;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.rit.cs4005730.dsgroup3.GeneralStatistics;
+import edu.rit.cs4005730.dsgroup3.metrics.CompletionHistogram;
+import edu.rit.cs4005730.dsgroup3.metrics.MetricsCollector;
+import edu.rit.cs4005730.dsgroup3.util.RemoteUtils;
+
+/**
+ * Headless command line runner for parameter sweeps. Reads a {@link Scenario} file, expands it into every combination of the listed alternatives, runs each
+ * combination {@code repeat} times as its own {@link Simulation} on a pool of {@code threads} workers and writes one result row per run as CSV or JSON.
+ * Besides the scenario keys the file may set:
+ *
+ * <pre>
+ * repeat  = 1                   # runs per combination
+ * threads = &lt;available cores&gt;  # runs at the same time
+ * series  = &lt;directory&gt;        # if set, the sampled curves of run n are written to &lt;directory&gt;/run-n.csv
+ * </pre>
+ *
+ * Results are written in the order of the grid, whatever order the runs finish in.
+ *
+ */
+public class BatchRunner {
+   public static final String    REPEAT      = "repeat";
+   public static final String    THREADS     = "threads";
+   public static final String    SERIES      = "series";
+
+   // result columns after the scenario keys
+   private static final String[] RESULT_KEYS = { "run", "repeat", "initialSeedCount", "initialPeerCount", "meanTimeToCompletion", "p50TimeToCompletion",
+         "p90TimeToCompletion", "p99TimeToCompletion", "peakDownloadRate", "isComplete", "simulatedTime", "events", "wallTime" };
+
+   /**
+    * Outcome of a single run.
+    */
+   public static class Result {
+      public final int               run;
+      public final int               repeat;
+      public final Scenario          scenario;
+      public final GeneralStatistics stats;
+      public final MetricsCollector  metrics;
+      // simulated milliseconds at the end of the run
+      public final long              simulatedTime;
+      // -1 for real-time runs
+      public final long              events;
+      public final long              wallTime;
+
+      public Result(final int run, final int repeat, final Scenario scenario, final GeneralStatistics stats, final MetricsCollector metrics,
+            final long simulatedTime, final long events, final long wallTime) {
+         this.run = run;
+         this.repeat = repeat;
+         this.scenario = scenario;
+         this.stats = stats;
+         this.metrics = metrics;
+         this.simulatedTime = simulatedTime;
+         this.events = events;
+         this.wallTime = wallTime;
+      }
+
+      private String[] getValues() {
+         final String[] values = new String[Scenario.KEYS.length + RESULT_KEYS.length];
+         int i = 0;
+
+         for (final String key : Scenario.KEYS) {
+            values[i++] = this.scenario.getValue(key);
+         }
+
+         values[i++] = Integer.toString(this.run);
+         values[i++] = Integer.toString(this.repeat);
+         values[i++] = Integer.toString(this.stats.getInitialSeedCount());
+         values[i++] = Integer.toString(this.stats.getInitialPeerCount());
+         values[i++] = Long.toString(this.stats.getMeanTimeToCompletion());
+
+         final CompletionHistogram completionTimes = this.metrics.getCompletionTimes();
+         values[i++] = Long.toString(completionTimes.getValueAtPercentile(50));
+         values[i++] = Long.toString(completionTimes.getValueAtPercentile(90));
+         values[i++] = Long.toString(completionTimes.getValueAtPercentile(99));
+         values[i++] = Long.toString((long) this.metrics.getDownloadRate().getMax());
+         values[i++] = Boolean.toString(this.stats.getIsComplete());
+         values[i++] = Long.toString(this.simulatedTime);
+         values[i++] = Long.toString(this.events);
+         values[i++] = Long.toString(this.wallTime);
+
+         return values;
+      }
+   }
+
+   private final List<Scenario> scenarios;
+   private final int            repeat;
+   private final int            threads;
+   // null unless the sampled curves are written out
+   private final File           seriesDirectory;
+
+   /**
+    * Creates a runner for the sweep described by the given scenario properties.
+    *
+    * @param properties
+    *           the scenario properties, possibly listing alternatives
+    */
+   public BatchRunner(final Properties properties) {
+      this.scenarios = Scenario.expand(properties);
+      this.repeat = Math.max(1, Integer.parseInt(properties.getProperty(REPEAT, "1").trim()));
+      this.threads = Math.max(1, Integer.parseInt(properties.getProperty(THREADS, Integer.toString(Runtime.getRuntime().availableProcessors())).trim()));
+      this.seriesDirectory = (properties.getProperty(SERIES) == null) ? null : new File(properties.getProperty(SERIES).trim());
+   }
+
+   /**
+    * Runs every combination the configured number of times and waits for all of them.
+    *
+    * @return the results in grid order
+    * @throws InterruptedException
+    * @throws ExecutionException
+    *            if a run failed
+    */
+   public List<Result> run() throws InterruptedException, ExecutionException {
+      final ExecutorService workers = Executors.newFixedThreadPool(this.threads);
+      final List<Future<Result>> futures = new ArrayList<Future<Result>>();
+
+      try {
+         int run = 0;
+
+         for (final Scenario scenario : this.scenarios) {
+            for (int i = 0; i < this.repeat; i++) {
+               final int index = run++;
+               final int repeat = i;
+
+               futures.add(workers.submit(new Callable<Result>() {
+                  @Override
+                  public Result call() throws Exception {
+                     return BatchRunner.this.runOne(index, repeat, scenario);
+                  }
+               }));
+            }
+         }
+
+         final List<Result> results = new ArrayList<Result>(futures.size());
+
+         for (final Future<Result> future : futures) {
+            results.add(future.get());
+         }
+
+         return results;
+      } finally {
+         workers.shutdownNow();
+      }
+   }
+
+   private Result runOne(final int run, final int repeat, final Scenario scenario) throws Exception {
+      final long start = System.nanoTime();
+      // rows report the scenario's seed; each repetition runs on a seed derived from it
+      final Simulation simulation = new Simulation(scenario.forRepeat(repeat));
+      simulation.addSeeds(scenario.seeds);
+      simulation.addPeers(scenario.peers);
+
+      final GeneralStatistics stats = simulation.run();
+      final long wallTime = (System.nanoTime() - start) / RemoteUtils.MILLISECOND_IN_NANOSECONDS;
+
+      System.err.println("run " + run + " done in " + wallTime + " ms");
+
+      if (this.seriesDirectory != null) {
+         this.seriesDirectory.mkdirs();
+         final PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(new File(this.seriesDirectory, "run-" + run + ".csv")), "UTF-8"));
+
+         try {
+            simulation.getMetrics().writeCsv(out);
+         } finally {
+            out.close();
+         }
+      }
+
+      return new Result(run, repeat, scenario, stats, simulation.getMetrics(), simulation.getScheduler().currentTime(), simulation.getProcessedCount(),
+            wallTime);
+   }
+
+   /**
+    * Writes the results as CSV with a header row.
+    *
+    * @param results
+    *           the results to write
+    * @param out
+    *           the writer to write to
+    */
+   public static void writeCsv(final List<Result> results, final PrintWriter out) {
+      final StringBuilder line = new StringBuilder();
+
+      for (final String key : Scenario.KEYS) {
+         line.append(key).append(',');
+      }
+
+      for (final String key : RESULT_KEYS) {
+         line.append(key).append(',');
+      }
+
+      out.println(line.substring(0, line.length() - 1));
+
+      for (final Result result : results) {
+         line.setLength(0);
+
+         for (final String value : result.getValues()) {
+            line.append(value).append(',');
+         }
+
+         out.println(line.substring(0, line.length() - 1));
+      }
+
+      out.flush();
+   }
+
+   /**
+    * Writes the results as a JSON array with one object per run. Finite numbers and booleans are written unquoted. The seed is always a string, as a 64-bit
+    * seed does not survive readers that hold numbers as doubles, and so are NaN and Infinity, which JSON has no numbers for.
+    *
+    * @param results
+    *           the results to write
+    * @param out
+    *           the writer to write to
+    */
+   public static void writeJson(final List<Result> results, final PrintWriter out) {
+      final String[] keys = new String[Scenario.KEYS.length + RESULT_KEYS.length];
+      System.arraycopy(Scenario.KEYS, 0, keys, 0, Scenario.KEYS.length);
+      System.arraycopy(RESULT_KEYS, 0, keys, Scenario.KEYS.length, RESULT_KEYS.length);
+
+      out.println("[");
+
+      for (int i = 0; i < results.size(); i++) {
+         final String[] values = results.get(i).getValues();
+         final StringBuilder line = new StringBuilder("  {");
+
+         for (int j = 0; j < keys.length; j++) {
+            line.append((j == 0) ? "" : ", ").append('"').append(keys[j]).append("\": ").append(toJson(keys[j], values[j]));
+         }
+
+         out.println(line.append((i < (results.size() - 1)) ? "}," : "}"));
+      }
+
+      out.println("]");
+      out.flush();
+   }
+
+   private static String toJson(final String key, final String value) {
+      if (Scenario.SEED.equals(key)) {
+         return '"' + value + '"';
+      }
+
+      if ("true".equals(value) || "false".equals(value)) {
+         return value;
+      }
+
+      double number;
+
+      try {
+         number = Double.parseDouble(value);
+      } catch (final NumberFormatException e) {
+         // the values are enum names and modes; nothing that needs escaping
+         number = Double.NaN;
+      }
+
+      return (Double.isNaN(number) || Double.isInfinite(number)) ? '"' + value + '"' : value;
+   }
+
+   public static void main(final String[] args) throws IOException, InterruptedException, ExecutionException {
+      if ((args.length < 1) || (args.length > 2)) {
+         throw new IllegalArgumentException("Usage: java edu.rit.cs4005730.dsgroup3.sim.BatchRunner <scenario.properties> [<results>.csv|<results>.json]");
+      }
+
+      final Properties properties = new Properties();
+      final InputStream in = new FileInputStream(args[0]);
+
+      try {
+         properties.load(in);
+      } finally {
+         in.close();
+      }
+
+      final List<Result> results = new BatchRunner(properties).run();
+      final PrintWriter out = (args.length == 2) ? new PrintWriter(new OutputStreamWriter(new FileOutputStream(args[1]), "UTF-8")) : new PrintWriter(System.out);
+
+      try {
+         if ((args.length == 2) && args[1].toLowerCase().endsWith(".json")) {
+            writeJson(results, out);
+         } else {
+            writeCsv(results, out);
+         }
+      } finally {
+         if (args.length == 2) {
+            out.close();
+         } else {
+            out.flush();
+         }
+      }
+
+      // the remote event generators keep non-daemon threads around
+      System.exit(0);
+   }
+}
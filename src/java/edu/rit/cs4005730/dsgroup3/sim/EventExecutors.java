@@ -0,0 +1,73 @@
+package edu.rit.cs4005730.dsgroup3.sim;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Factory for the executors that run the events fired by a {@link RealTimeScheduler}. Events are short, so the thread count does not limit how many transfers
+ * a node can have open; that is bounded per node by its maximum number of concurrent downloads.
+ *
+ */
+public final class EventExecutors {
+
+   /**
+    * The available kinds of executors.
+    */
+   public enum Type {
+      /** A new virtual thread for every event; falls back to {@link #SHARED} on runtimes without virtual threads. */
+      VIRTUAL {
+         @Override
+         public ExecutorService create() {
+            return newVirtualThreadExecutor();
+         }
+      },
+      /** One work-stealing pool sized to the available processors, shared by every node of the swarm. */
+      SHARED {
+         @Override
+         public ExecutorService create() {
+            return newSharedExecutor(Runtime.getRuntime().availableProcessors());
+         }
+      };
+
+      /**
+       * Creates an executor of this type.
+       *
+       * @return the new executor
+       */
+      public abstract ExecutorService create();
+   }
+
+   private EventExecutors() {
+      // only static factory methods
+   }
+
+   /**
+    * Returns an executor that starts a virtual thread for every task. The method is looked up reflectively so this class still compiles and runs on runtimes
+    * that predate virtual threads; those get a shared work-stealing pool instead.
+    *
+    * @return the new executor
+    */
+   public static ExecutorService newVirtualThreadExecutor() {
+      try {
+         final Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         return (ExecutorService) method.invoke(null);
+      } catch (final Exception e) {
+         // NoSuchMethodException before Java 21, UnsupportedOperationException without --enable-preview on 19 and 20
+         return newSharedExecutor(Runtime.getRuntime().availableProcessors());
+      }
+   }
+
+   /**
+    * Returns a work-stealing pool with at most the given number of threads. Its worker threads are daemon threads, so an unfinished swarm does not keep the
+    * JVM alive.
+    *
+    * @param parallelism
+    *           the maximum number of threads
+    * @return the new executor
+    */
+   public static ExecutorService newSharedExecutor(final int parallelism) {
+      // async mode runs queued events in FIFO order, which suits tasks that are never joined
+      return new ForkJoinPool(Math.max(1, parallelism), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+   }
+}
@@ -0,0 +1,113 @@
+package edu.rit.cs4005730.dsgroup3.sim;
+
+import java.util.PriorityQueue;
+
+import edu.rit.cs4005730.dsgroup3.sim.SimulationEvent.EventType;
+
+/**
+ * Discrete-event {@link Scheduler} with a virtual clock. Pending events are kept in a priority queue ordered by time and the clock jumps directly to the next
+ * event instead of waiting, so a run costs only the CPU time needed to process its events. This class is not thread-safe; all events are fired on the thread
+ * that calls {@link #run()}.
+ *
+ */
+public class EventScheduler implements Scheduler {
+   private final PriorityQueue<SimulationEvent> events         = new PriorityQueue<SimulationEvent>();
+   private final int                            progressSteps;
+
+   private long                                 currentTime    = 0;
+   private long                                 sequence       = 0;
+   private long                                 processedCount = 0;
+   private boolean                              isStopped      = false;
+
+   /**
+    * Creates a scheduler that only fires the start and completion events of each transfer.
+    */
+   public EventScheduler() {
+      this(1);
+   }
+
+   /**
+    * Creates a scheduler that splits every transfer into the given number of progress events.
+    *
+    * @param progressSteps
+    *           the number of progress events per transfer
+    */
+   public EventScheduler(final int progressSteps) {
+      this.progressSteps = Math.max(1, progressSteps);
+   }
+
+   @Override
+   public long currentTime() {
+      return this.currentTime;
+   }
+
+   @Override
+   public SimulationEvent schedule(final EventType type, final long delay, final Runnable action) {
+      final SimulationEvent event = new SimulationEvent(type, this.currentTime + Math.max(0, delay), this.sequence++, action);
+      this.events.add(event);
+      return event;
+   }
+
+   @Override
+   public int getProgressSteps(final double duration) {
+      return this.progressSteps;
+   }
+
+   /**
+    * Fires events in time order until the queue is empty or {@link #stop()} is called.
+    */
+   public void run() {
+      this.runUntil(Long.MAX_VALUE);
+   }
+
+   /**
+    * Fires events in time order until the queue is empty, {@link #stop()} is called or the next event is later than the given time.
+    *
+    * @param endTime
+    *           the simulated time in milliseconds at which to stop
+    */
+   public void runUntil(final long endTime) {
+      this.isStopped = false;
+
+      while (!this.isStopped && !this.events.isEmpty() && (this.events.peek().time <= endTime)) {
+         final SimulationEvent event = this.events.poll();
+
+         if (!event.isCancelled()) {
+            this.currentTime = event.time;
+            this.processedCount++;
+            event.fire();
+         }
+      }
+   }
+
+   /**
+    * Stops the current {@link #run()} after the event being processed.
+    */
+   public void stop() {
+      this.isStopped = true;
+   }
+
+   /**
+    * Returns the number of events that have been fired so far.
+    *
+    * @return the number of fired events
+    */
+   public long getProcessedCount() {
+      return this.processedCount;
+   }
+
+   /**
+    * Returns the number of events still waiting to be fired.
+    *
+    * @return the number of pending events
+    */
+   public int getPendingCount() {
+      return this.events.size();
+   }
+
+   @Override
+   public void shutdown() {
+      this.isStopped = true;
+      this.events.clear();
+   }
+}
@@ -0,0 +1,111 @@
+package edu.rit.cs4005730.dsgroup3.sim;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import edu.rit.cs4005730.dsgroup3.SwarmConfig;
+import edu.rit.cs4005730.dsgroup3.sim.SimulationEvent.EventType;
+import edu.rit.cs4005730.dsgroup3.util.RemoteUtils;
+
+/**
+ * {@link Scheduler} that follows the wall clock scaled by a time dilation, usually the {@link SwarmConfig#timeDilation} of the swarm. Pending events cost no thread so
+ * waiting transfers no longer hold a sleeping thread each.
+ * A single timer thread waits for events to become due and hands them to an {@link ExecutorService} from {@link EventExecutors}, so the threads that run
+ * events can be virtual threads or a pool shared by the whole swarm. Used by the {@link edu.rit.cs4005730.dsgroup3.ui.UserInterface} so the simulation can be watched.
+ *
+ */
+public class RealTimeScheduler implements Scheduler {
+   private final ScheduledThreadPoolExecutor timer;
+   private final ExecutorService             executor;
+   private final long                        startTime = System.nanoTime();
+   // wall-clock milliseconds per simulated millisecond
+   private final double                      timeDilation;
+   private long                              sequence  = 0;
+
+   /**
+    * Creates a scheduler with the time dilation and executor type of the given swarm.
+    *
+    * @param config
+    *           the {@link SwarmConfig} of the swarm this scheduler drives
+    */
+   public RealTimeScheduler(final SwarmConfig config) {
+      this(config.eventExecutor.create(), config.timeDilation);
+   }
+
+   /**
+    * Creates a scheduler with its own time dilation that runs its events on the given executor. The executor is shut down together with this scheduler.
+    *
+    * @param executor
+    *           the executor that runs fired events
+    * @param timeDilation
+    *           wall-clock milliseconds per simulated millisecond
+    */
+   public RealTimeScheduler(final ExecutorService executor, final double timeDilation) {
+      this.executor = executor;
+      this.timeDilation = timeDilation;
+      this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+         @Override
+         public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "RealTimeScheduler");
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+   }
+
+   @Override
+   public long currentTime() {
+      return (long) ((System.nanoTime() - this.startTime) / RemoteUtils.MILLISECOND_IN_NANOSECONDS / this.timeDilation);
+   }
+
+   @Override
+   public SimulationEvent schedule(final EventType type, final long delay, final Runnable action) {
+      final long sequence;
+
+      synchronized (this) {
+         sequence = this.sequence++;
+      }
+
+      final SimulationEvent event = new SimulationEvent(type, this.currentTime() + Math.max(0, delay), sequence, new Runnable() {
+         @Override
+         public void run() {
+            try {
+               action.run();
+            } catch (final RuntimeException e) {
+               e.printStackTrace();
+            }
+         }
+      });
+
+      final Runnable fire = new Runnable() {
+         @Override
+         public void run() {
+            event.fire();
+         }
+      };
+
+      this.timer.schedule(new Runnable() {
+         @Override
+         public void run() {
+            if (!event.isCancelled()) {
+               RealTimeScheduler.this.executor.execute(fire);
+            }
+         }
+      }, (long) (Math.max(0, delay) * this.timeDilation), TimeUnit.MILLISECONDS);
+
+      return event;
+   }
+
+   @Override
+   public int getProgressSteps(final double duration) {
+      return RemoteUtils.getIncrements(duration * this.timeDilation);
+   }
+
+   @Override
+   public void shutdown() {
+      this.timer.shutdownNow();
+      this.executor.shutdownNow();
+   }
+}
@@ -0,0 +1,329 @@
+package edu.rit.cs4005730.dsgroup3.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import edu.rit.cs4005730.dsgroup3.SwarmConfig;
+import edu.rit.cs4005730.dsgroup3.network.BandwidthClass;
+import edu.rit.cs4005730.dsgroup3.network.NetworkModel;
+import edu.rit.cs4005730.dsgroup3.picker.PiecePicker;
+import edu.rit.cs4005730.dsgroup3.util.RemoteUtils;
+import edu.rit.cs4005730.dsgroup3.util.SplitMix;
+
+/**
+ * Parameters of one headless swarm run, read from a {@link Properties} scenario file: the {@link SwarmConfig} of the swarm plus how many nodes it starts with and
+ * how it is run. Every key is optional and defaults to the value in {@link SwarmConfig#DEFAULT}:
+ *
+ * <pre>
+ * seeds          = 1
+ * peers          = 8
+ * fileSize       = 100 MB
+ * blockSize      = 256 KB
+ * uploadMin      = 256 KBps
+ * uploadMax      = 1 MBps
+ * downloadMin    = 5 MBps
+ * downloadMax    = 15 MBps
+ * picker         = RANDOM
+ * mode           = virtual    # or realtime, which follows the wall clock scaled by timeDilation
+ * timeDilation   = 0.1
+ * maxTime        = 3600       # simulated seconds after which a run is given up, 0 for no limit
+ * sampleInterval = 1          # simulated seconds between two samples of the swarm's metrics
+ * tracker        = false      # true to find peers by announcing to the NodeManager instead of its broadcasts
+ * maxPeers       = 80         # peers a node connects to at most in tracker mode
+ * maxUploads     = 8          # batches a node uploads at the same time; a seed serves at most this many peers at once
+ * network        = off        # or default, or a weighted mix of bandwidth classes such as DSL:3 CABLE:5 FIBER:2, replacing the rate ranges above
+ * seedClass      = none       # bandwidth class of every seed with a network, e.g. DATACENTER; none draws seeds like peers
+ * jitter         = 0.1        # largest deviation of a request's round trip from the pair's round trip time with a network
+ * seed           = &lt;random&gt;   # master seed of every random choice; the same seed replays a virtual run exactly
+ * </pre>
+ *
+ * A value may list several alternatives separated by commas, e.g. {@code peers = 8, 16, 32}; {@link #expand(Properties)} returns one scenario for every
+ * combination of them.
+ *
+ */
+public class Scenario {
+   public static final String    SEEDS           = "seeds";
+   public static final String    PEERS           = "peers";
+   public static final String    FILE_SIZE       = "fileSize";
+   public static final String    BLOCK_SIZE      = "blockSize";
+   public static final String    UPLOAD_MIN      = "uploadMin";
+   public static final String    UPLOAD_MAX      = "uploadMax";
+   public static final String    DOWNLOAD_MIN    = "downloadMin";
+   public static final String    DOWNLOAD_MAX    = "downloadMax";
+   public static final String    PICKER          = "picker";
+   public static final String    MODE            = "mode";
+   public static final String    TIME_DILATION   = "timeDilation";
+   public static final String    MAX_TIME        = "maxTime";
+   public static final String    SAMPLE_INTERVAL = "sampleInterval";
+   public static final String    TRACKER         = "tracker";
+   public static final String    MAX_PEERS       = "maxPeers";
+   public static final String    MAX_UPLOADS     = "maxUploads";
+   public static final String    NETWORK         = "network";
+   public static final String    SEED_CLASS      = "seedClass";
+   public static final String    JITTER          = "jitter";
+   public static final String    SEED            = "seed";
+
+   // the keys a scenario is made of, in the order they are reported
+   public static final String[]  KEYS            = { SEEDS, PEERS, FILE_SIZE, BLOCK_SIZE, UPLOAD_MIN, UPLOAD_MAX, DOWNLOAD_MIN, DOWNLOAD_MAX, PICKER, MODE,
+         TIME_DILATION, MAX_TIME, SAMPLE_INTERVAL, TRACKER, MAX_PEERS, MAX_UPLOADS, NETWORK, SEED_CLASS, JITTER, SEED };
+
+   public final int              seeds;
+   public final int              peers;
+   public final SwarmConfig      config;
+   public final boolean          isRealTime;
+   // simulated milliseconds; Long.MAX_VALUE for no limit
+   public final long             maxTime;
+   // simulated milliseconds between two samples of the MetricsCollector
+   public final long             sampleInterval;
+
+   /**
+    * Creates the scenario described by the given properties. Values must not list alternatives.
+    *
+    * @param properties
+    *           the scenario properties
+    */
+   public Scenario(final Properties properties) {
+      this.seeds = Integer.parseInt(get(properties, SEEDS, Integer.toString(RemoteUtils.SEED_SPINNER_DEFAULT)));
+      this.peers = Integer.parseInt(get(properties, PEERS, Integer.toString(RemoteUtils.PEER_SPINNER_DEFAULT)));
+      this.isRealTime = "realtime".equalsIgnoreCase(get(properties, MODE, "virtual"));
+
+      final SwarmConfig defaults = SwarmConfig.DEFAULT;
+      final SwarmConfig.Builder builder = defaults.toBuilder();
+      builder.fileSize(parseSize(get(properties, FILE_SIZE, Long.toString(defaults.fileSize))));
+      builder.blockSize(parseSize(get(properties, BLOCK_SIZE, Long.toString(defaults.blockSize))));
+      builder.upload(parseSpeed(get(properties, UPLOAD_MIN, Long.toString((long) defaults.uploadMin))),
+            parseSpeed(get(properties, UPLOAD_MAX, Long.toString((long) defaults.uploadMax))));
+      builder.download(parseSpeed(get(properties, DOWNLOAD_MIN, Long.toString((long) defaults.downloadMin))),
+            parseSpeed(get(properties, DOWNLOAD_MAX, Long.toString((long) defaults.downloadMax))));
+      builder.pickerType(PiecePicker.Type.valueOf(get(properties, PICKER, defaults.pickerType.name()).toUpperCase()));
+      builder.timeDilation(Double.parseDouble(get(properties, TIME_DILATION, Double.toString(defaults.timeDilation))));
+      builder.tracker(Boolean.parseBoolean(get(properties, TRACKER, Boolean.toString(defaults.isTracker))));
+      builder.maxPeers(Integer.parseInt(get(properties, MAX_PEERS, Integer.toString(defaults.maxPeers))));
+      builder.maxUploads(Integer.parseInt(get(properties, MAX_UPLOADS, Integer.toString(defaults.maxUploads))));
+      builder.network(parseNetwork(get(properties, NETWORK, "off"), get(properties, SEED_CLASS, "none"),
+            Double.parseDouble(get(properties, JITTER, Double.toString(NetworkModel.DEFAULT.jitter)))));
+      // every scenario without a seed gets its own, not the one of the defaults
+      builder.seed(Long.parseLong(get(properties, SEED, Long.toString(SplitMix.newSeed()))));
+
+      final long maxTime = Long.parseLong(get(properties, MAX_TIME, "0"));
+      this.maxTime = (maxTime > 0) ? (maxTime * RemoteUtils.SECONDS_IN_MILLISECONDS) : Long.MAX_VALUE;
+      this.sampleInterval = (long) (Double.parseDouble(get(properties, SAMPLE_INTERVAL, "1")) * RemoteUtils.SECONDS_IN_MILLISECONDS);
+
+      if ((this.seeds < 1) || (this.peers < 0) || (this.sampleInterval <= 0)) {
+         throw new IllegalArgumentException("Scenario: invalid parameters " + properties);
+      }
+
+      try {
+         this.config = builder.build();
+      } catch (final IllegalArgumentException e) {
+         throw new IllegalArgumentException("Scenario: invalid parameters " + properties);
+      }
+   }
+
+   private Scenario(final Scenario scenario, final SwarmConfig config) {
+      this.seeds = scenario.seeds;
+      this.peers = scenario.peers;
+      this.config = config;
+      this.isRealTime = scenario.isRealTime;
+      this.maxTime = scenario.maxTime;
+      this.sampleInterval = scenario.sampleInterval;
+   }
+
+   /**
+    * Returns the scenario of one repetition of this one: the same parameters, but a seed of its own derived from this scenario's seed. Repetition 0 keeps the
+    * seed, so a single run is replayed by its reported seed alone.
+    *
+    * @param repeat
+    *           the number of the repetition
+    * @return the scenario to run
+    */
+   public Scenario forRepeat(final int repeat) {
+      return (repeat == 0) ? this : new Scenario(this, this.config.toBuilder().seed(SplitMix.derive(this.config.seed, repeat)).build());
+   }
+
+   /**
+    * Returns the scenario of the default {@link SwarmConfig} with the given piece picker.
+    *
+    * @param picker
+    *           the piece picker of every node
+    * @return the default scenario
+    */
+   public static Scenario getDefault(final PiecePicker.Type picker) {
+      final Properties properties = new Properties();
+      properties.setProperty(PICKER, picker.name());
+      return new Scenario(properties);
+   }
+
+   /**
+    * Returns one scenario for every combination of the alternatives listed in the given properties. Keys that are not scenario parameters are ignored.
+    *
+    * @param properties
+    *           the scenario properties, possibly listing alternatives
+    * @return the scenarios, the last key in {@link #KEYS} varying fastest
+    */
+   public static List<Scenario> expand(final Properties properties) {
+      List<Properties> grid = new ArrayList<Properties>();
+      grid.add(new Properties());
+
+      for (final String key : KEYS) {
+         final String value = properties.getProperty(key);
+
+         if (value == null) {
+            continue;
+         }
+
+         final List<Properties> next = new ArrayList<Properties>();
+
+         for (final Properties point : grid) {
+            for (final String alternative : value.split(",")) {
+               final Properties copy = new Properties();
+               copy.putAll(point);
+               copy.setProperty(key, alternative.trim());
+               next.add(copy);
+            }
+         }
+
+         grid = next;
+      }
+
+      final List<Scenario> scenarios = new ArrayList<Scenario>(grid.size());
+
+      for (final Properties point : grid) {
+         scenarios.add(new Scenario(point));
+      }
+
+      return scenarios;
+   }
+
+   /**
+    * Returns the value of the given key in the form it is reported in, with sizes in bytes and rates in bytes per second.
+    *
+    * @param key
+    *           one of {@link #KEYS}
+    * @return the value as text
+    */
+   public String getValue(final String key) {
+      if (SEEDS.equals(key)) {
+         return Integer.toString(this.seeds);
+      } else if (PEERS.equals(key)) {
+         return Integer.toString(this.peers);
+      } else if (FILE_SIZE.equals(key)) {
+         return Long.toString(this.config.fileSize);
+      } else if (BLOCK_SIZE.equals(key)) {
+         return Long.toString(this.config.blockSize);
+      } else if (UPLOAD_MIN.equals(key)) {
+         return Long.toString((long) this.config.uploadMin);
+      } else if (UPLOAD_MAX.equals(key)) {
+         return Long.toString((long) this.config.uploadMax);
+      } else if (DOWNLOAD_MIN.equals(key)) {
+         return Long.toString((long) this.config.downloadMin);
+      } else if (DOWNLOAD_MAX.equals(key)) {
+         return Long.toString((long) this.config.downloadMax);
+      } else if (PICKER.equals(key)) {
+         return this.config.pickerType.name();
+      } else if (MODE.equals(key)) {
+         return this.isRealTime ? "realtime" : "virtual";
+      } else if (TIME_DILATION.equals(key)) {
+         return Double.toString(this.config.timeDilation);
+      } else if (MAX_TIME.equals(key)) {
+         return Long.toString((this.maxTime == Long.MAX_VALUE) ? 0 : (this.maxTime / RemoteUtils.SECONDS_IN_MILLISECONDS));
+      } else if (SAMPLE_INTERVAL.equals(key)) {
+         return Double.toString((double) this.sampleInterval / RemoteUtils.SECONDS_IN_MILLISECONDS);
+      } else if (TRACKER.equals(key)) {
+         return Boolean.toString(this.config.isTracker);
+      } else if (MAX_PEERS.equals(key)) {
+         return Integer.toString(this.config.maxPeers);
+      } else if (MAX_UPLOADS.equals(key)) {
+         return Integer.toString(this.config.maxUploads);
+      } else if (NETWORK.equals(key)) {
+         return formatNetwork(this.config.network);
+      } else if (SEED_CLASS.equals(key)) {
+         return ((this.config.network == null) || (this.config.network.seedClass == null)) ? "none" : this.config.network.seedClass.name();
+      } else if (JITTER.equals(key)) {
+         return (this.config.network == null) ? "0" : Double.toString(this.config.network.jitter);
+      } else if (SEED.equals(key)) {
+         return Long.toString(this.config.seed);
+      } else {
+         throw new IllegalArgumentException("Scenario: unknown key \"" + key + "\"");
+      }
+   }
+
+   private static String get(final Properties properties, final String key, final String defaultValue) {
+      final String value = properties.getProperty(key);
+      return (value == null) ? defaultValue : value.trim();
+   }
+
+   private static long parseSize(final String text) {
+      final long size = RemoteUtils.parseSize(text);
+
+      if (size <= 0) {
+         throw new IllegalArgumentException("Scenario: invalid size \"" + text + "\"");
+      }
+
+      return size;
+   }
+
+   private static double parseSpeed(final String text) {
+      final double speed = RemoteUtils.parseSpeed(text);
+
+      if (speed <= 0) {
+         throw new IllegalArgumentException("Scenario: invalid rate \"" + text + "\"");
+      }
+
+      return speed;
+   }
+
+   /**
+    * Reads a network model: "off" for none, "default" for {@link NetworkModel#DEFAULT}, or bandwidth classes with their weights separated by spaces, such as
+    * {@code DSL:3 CABLE:5 FIBER:2}, leaving out the classes not listed.
+    */
+   private static NetworkModel parseNetwork(final String text, final String seedClass, final double jitter) {
+      if ("off".equalsIgnoreCase(text)) {
+         return null;
+      }
+
+      try {
+         final NetworkModel.Builder builder = NetworkModel.DEFAULT.toBuilder();
+
+         if (!"default".equalsIgnoreCase(text)) {
+            for (final BandwidthClass bandwidthClass : BandwidthClass.values()) {
+               builder.weight(bandwidthClass, 0);
+            }
+
+            for (final String entry : text.trim().split("\\s+")) {
+               final int colon = entry.indexOf(':');
+               final BandwidthClass bandwidthClass = BandwidthClass.valueOf(((colon < 0) ? entry : entry.substring(0, colon)).toUpperCase());
+               builder.weight(bandwidthClass, (colon < 0) ? 1 : Double.parseDouble(entry.substring(colon + 1)));
+            }
+         }
+
+         builder.seedClass("none".equalsIgnoreCase(seedClass) ? null : BandwidthClass.valueOf(seedClass.toUpperCase()));
+         return builder.jitter(jitter).build();
+      } catch (final IllegalArgumentException e) {
+         throw new IllegalArgumentException("Scenario: invalid network \"" + text + "\"");
+      }
+   }
+
+   /**
+    * Writes the bandwidth classes of a network model with their weights, the way {@link #parseNetwork(String, String, double)} reads them.
+    */
+   private static String formatNetwork(final NetworkModel network) {
+      if (network == null) {
+         return "off";
+      }
+
+      final StringBuilder text = new StringBuilder();
+
+      for (final BandwidthClass bandwidthClass : BandwidthClass.values()) {
+         final double weight = network.getWeight(bandwidthClass);
+
+         if (weight > 0) {
+            text.append((text.length() == 0) ? "" : " ").append(bandwidthClass.name()).append(':');
+            text.append((weight == Math.rint(weight)) ? Long.toString((long) weight) : Double.toString(weight));
+         }
+      }
+
+      return text.toString();
+   }
+}
@@ -0,0 +1,46 @@
+package edu.rit.cs4005730.dsgroup3.sim;
+
+import edu.rit.cs4005730.dsgroup3.sim.SimulationEvent.EventType;
+
+/**
+ * Source of simulated time for a swarm. {@link edu.rit.cs4005730.dsgroup3.Node} objects schedule their block requests and transfer progress on a
+ * {@link Scheduler} instead of sleeping, so the same node logic can be driven either by the wall clock ({@link RealTimeScheduler}) or by a virtual clock that
+ * jumps straight to the next pending event ({@link EventScheduler}).
+ *
+ */
+public interface Scheduler {
+
+   /**
+    * Returns the current simulated time in milliseconds.
+    *
+    * @return the simulated time in milliseconds
+    */
+   public long currentTime();
+
+   /**
+    * Queues an action to run after the given amount of simulated time has passed.
+    *
+    * @param type
+    *           the kind of event being scheduled
+    * @param delay
+    *           the simulated delay in milliseconds
+    * @param action
+    *           the action to run
+    * @return the queued event which can be used to cancel the action
+    */
+   public SimulationEvent schedule(final EventType type, final long delay, final Runnable action);
+
+   /**
+    * Returns the number of progress updates a block transfer of the given duration should be split into.
+    *
+    * @param duration
+    *           the simulated duration of the transfer in milliseconds
+    * @return the number of progress steps, at least 1
+    */
+   public int getProgressSteps(final double duration);
+
+   /**
+    * Discards all pending events and releases any resources held by this scheduler.
+    */
+   public void shutdown();
+}
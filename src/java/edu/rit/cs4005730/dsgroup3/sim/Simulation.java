@@ -0,0 +1,186 @@
+package edu.rit.cs4005730.dsgroup3.sim;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import edu.rit.cs4005730.dsgroup3.GeneralStatistics;
+import edu.rit.cs4005730.dsgroup3.Node;
+import edu.rit.cs4005730.dsgroup3.NodeEventBus;
+import edu.rit.cs4005730.dsgroup3.NodeManager;
+import edu.rit.cs4005730.dsgroup3.SwarmBootstrap;
+import edu.rit.cs4005730.dsgroup3.SwarmConfig;
+import edu.rit.cs4005730.dsgroup3.metrics.CompletionHistogram;
+import edu.rit.cs4005730.dsgroup3.metrics.MetricsCollector;
+import edu.rit.cs4005730.dsgroup3.picker.PiecePicker;
+import edu.rit.cs4005730.dsgroup3.transport.LocalTransport;
+import edu.rit.cs4005730.dsgroup3.transport.Transport;
+import edu.rit.cs4005730.dsgroup3.util.RemoteUtils;
+import edu.rit.cs4005730.dsgroup3.util.SplitMix;
+import edu.rit.ds.registry.NotBoundException;
+
+/**
+ * Headless swarm whose nodes and {@link NodeManager} all live in this JVM and talk to each other through a {@link LocalTransport}. Every parameter comes from
+ * a {@link Scenario} and its {@link SwarmConfig}, so several simulations can run side by side without sharing state. By default the swarm runs on an
+ * {@link EventScheduler} and a run takes only as long as it takes to process its events; a real-time scenario runs on its own {@link RealTimeScheduler}
+ * instead.
+ *
+ */
+public class Simulation {
+   // wall-clock milliseconds between two completion checks of a real-time run
+   private static final long      POLL_INTERVAL = 100;
+
+   private final Scenario         scenario;
+   private final Scheduler        scheduler;
+   private final Transport        transport     = new LocalTransport();
+   private final NodeManager      manager;
+   // shared by every node; nothing is scheduled on it unless a listener subscribes
+   private final NodeEventBus     eventBus;
+   private final MetricsCollector metrics;
+   private final SwarmBootstrap   bootstrap;
+   private final List<Node>       nodes         = new ArrayList<Node>();
+   // per simulation so parallel runs never share a random source; derived from the scenario's seed to replay the same rates
+   private final Random           random;
+
+   private int                    seedIndex     = 0;
+   private int                    peerIndex     = 0;
+
+   public Simulation(final PiecePicker.Type pickerType) throws RemoteException {
+      this(Scenario.getDefault(pickerType));
+   }
+
+   /**
+    * Creates an empty swarm for the given scenario. Nodes are added with {@link #addSeeds(int)} and {@link #addPeers(int)}.
+    *
+    * @param scenario
+    *           the parameters of the swarm
+    * @throws RemoteException
+    */
+   public Simulation(final Scenario scenario) throws RemoteException {
+      this.scenario = scenario;
+      this.random = SplitMix.newRandom(scenario.config.seed, "simulation");
+      this.scheduler = scenario.isRealTime ? new RealTimeScheduler(scenario.config) : new EventScheduler();
+      this.manager = new NodeManager(this.transport, scenario.config);
+      this.metrics = new MetricsCollector(this.manager, this.scheduler, scenario.sampleInterval);
+      this.eventBus = new NodeEventBus(this.scheduler, scenario.config.eventInterval);
+      this.bootstrap = new SwarmBootstrap(scenario.config, this.transport, this.scheduler, this.eventBus);
+   }
+
+   /**
+    * Adds the given number of seeds, running at the maximum upload and download rates unless the config has a network model. Nodes are created and connected in parallel but only started by
+    * {@link #run()}.
+    *
+    * @param count
+    *           the number of seeds to add
+    * @throws RemoteException
+    * @throws NotBoundException
+    */
+   public void addSeeds(final int count) throws RemoteException, NotBoundException {
+      final List<SwarmBootstrap.Spec> specs = new ArrayList<SwarmBootstrap.Spec>(count);
+
+      for (int i = 0; i < count; i++) {
+         specs.add(new SwarmBootstrap.Spec("seed" + this.seedIndex++, this.scenario.config.drawLink(this.random, true), true));
+      }
+
+      this.nodes.addAll(this.bootstrap.create(specs));
+   }
+
+   /**
+    * Adds the given number of peers with random upload and download rates, and latencies if the config has a network model.
+    *
+    * @param count
+    *           the number of peers to add
+    * @throws RemoteException
+    * @throws NotBoundException
+    */
+   public void addPeers(final int count) throws RemoteException, NotBoundException {
+      final List<SwarmBootstrap.Spec> specs = new ArrayList<SwarmBootstrap.Spec>(count);
+
+      for (int i = 0; i < count; i++) {
+         specs.add(new SwarmBootstrap.Spec("peer" + this.peerIndex++, this.scenario.config.drawLink(this.random, false), false));
+      }
+
+      this.nodes.addAll(this.bootstrap.create(specs));
+   }
+
+   /**
+    * Starts every node and runs until all peers have become seeds or the scenario's time limit is reached.
+    *
+    * @return the statistics gathered by the {@link NodeManager}
+    * @throws RemoteException
+    */
+   public GeneralStatistics run() throws RemoteException {
+      this.bootstrap.start(this.nodes);
+      this.metrics.start();
+
+      if (this.scheduler instanceof EventScheduler) {
+         ((EventScheduler) this.scheduler).runUntil(this.scenario.maxTime);
+      } else {
+         while (!this.manager.getStats().getIsComplete() && (this.scheduler.currentTime() < this.scenario.maxTime)) {
+            RemoteUtils.sleep(POLL_INTERVAL);
+         }
+
+         this.metrics.stop();
+         this.scheduler.shutdown();
+      }
+
+      return this.manager.getStats();
+   }
+
+   /**
+    * Returns the throughput curves and completion times sampled while the swarm ran.
+    *
+    * @return the metrics of this swarm
+    */
+   public MetricsCollector getMetrics() {
+      return this.metrics;
+   }
+
+   public Scheduler getScheduler() {
+      return this.scheduler;
+   }
+
+   /**
+    * Returns the number of events processed so far, or -1 if the swarm runs in real time and does not count them.
+    *
+    * @return the number of processed events
+    */
+   public long getProcessedCount() {
+      return (this.scheduler instanceof EventScheduler) ? ((EventScheduler) this.scheduler).getProcessedCount() : -1;
+   }
+
+   public static void main(final String[] args) throws RemoteException, NotBoundException {
+      if ((args.length != 2) && (args.length != 3)) {
+         throw new IllegalArgumentException("Usage: java edu.rit.cs4005730.dsgroup3.sim.Simulation <seeds> <peers> [RANDOM|SEQUENTIAL|RAREST_FIRST|ENDGAME]");
+      }
+
+      final int seeds = Integer.parseInt(args[0]);
+      final int peers = Integer.parseInt(args[1]);
+
+      if (seeds < 1) {
+         throw new IllegalArgumentException("Simulation: at least one seed is required");
+      }
+
+      final PiecePicker.Type pickerType = (args.length == 3) ? PiecePicker.Type.valueOf(args[2]) : SwarmConfig.DEFAULT.pickerType;
+      final Simulation simulation = new Simulation(pickerType);
+      simulation.addSeeds(seeds);
+      simulation.addPeers(peers);
+
+      final long start = System.nanoTime();
+      final GeneralStatistics stats = simulation.run();
+      final long elapsed = (System.nanoTime() - start) / RemoteUtils.MILLISECOND_IN_NANOSECONDS;
+
+      System.out.println("seeds: " + stats.getInitialSeedCount() + ", peers: " + stats.getInitialPeerCount() + ", seed: " + simulation.scenario.config.seed);
+      System.out.println("mean time to completion: " + (stats.getMeanTimeToCompletion() / 1000.0) + " seconds (simulated)");
+      final CompletionHistogram completionTimes = simulation.getMetrics().getCompletionTimes();
+      System.out.println("completion time p50/p90/p99: " + (completionTimes.getValueAtPercentile(50) / 1000.0) + " / "
+            + (completionTimes.getValueAtPercentile(90) / 1000.0) + " / " + (completionTimes.getValueAtPercentile(99) / 1000.0) + " seconds (simulated)");
+      System.out.println("peak download rate: " + RemoteUtils.formatSpeed(simulation.getMetrics().getDownloadRate().getMax()));
+      System.out.println("complete: " + stats.getIsComplete());
+      System.out.println("events: " + simulation.getProcessedCount() + " in " + elapsed + " ms");
+
+      // the remote event generators keep non-daemon threads around
+      System.exit(0);
+   }
+}
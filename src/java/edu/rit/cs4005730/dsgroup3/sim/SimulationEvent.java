@@ -0,0 +1,62 @@
+package edu.rit.cs4005730.dsgroup3.sim;
+
+/**
+ * A single action queued on a {@link Scheduler} to run at a given simulated time. Events with equal times are ordered by the sequence in which they were
+ * scheduled so that runs on the {@link EventScheduler} are repeatable.
+ *
+ */
+public class SimulationEvent implements Comparable<SimulationEvent> {
+   public enum EventType {
+      BLOCK_REQUEST, TRANSFER_START, TRANSFER_PROGRESS, TRANSFER_COMPLETE, TIMER;
+   }
+
+   public final EventType  type;
+   public final long       time;
+   public final long       sequence;
+
+   private final Runnable  action;
+   private volatile boolean isCancelled = false;
+
+   public SimulationEvent(final EventType type, final long time, final long sequence, final Runnable action) {
+      this.type = type;
+      this.time = time;
+      this.sequence = sequence;
+      this.action = action;
+   }
+
+   /**
+    * Prevents this event from running if it has not already been fired.
+    */
+   public void cancel() {
+      this.isCancelled = true;
+   }
+
+   public boolean isCancelled() {
+      return this.isCancelled;
+   }
+
+   /**
+    * Runs the action for this event unless it has been cancelled.
+    */
+   public void fire() {
+      if (!this.isCancelled) {
+         this.action.run();
+      }
+   }
+
+   @Override
+   public int compareTo(final SimulationEvent other) {
+      if (this.time != other.time) {
+         return (this.time < other.time) ? -1 : 1;
+      } else if (this.sequence != other.sequence) {
+         return (this.sequence < other.sequence) ? -1 : 1;
+      } else {
+         return 0;
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "SimulationEvent [" + this.type + ", " + this.time + ", " + this.sequence + "]";
+   }
+}
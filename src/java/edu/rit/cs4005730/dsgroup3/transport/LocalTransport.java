@@ -0,0 +1,42 @@
+package edu.rit.cs4005730.dsgroup3.transport;
+
+import java.rmi.Remote;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.rit.ds.registry.AlreadyBoundException;
+import edu.rit.ds.registry.NotBoundException;
+
+/**
+ * {@link Transport} for swarms that live entirely in one JVM. Nothing is exported; lookups return the bound objects themselves, so every call between
+ * nodes is a direct method call without serialization or loopback sockets.
+ * 
+ */
+public class LocalTransport implements Transport {
+   private final Map<String, Remote> bindings = new ConcurrentHashMap<String, Remote>();
+   
+   @Override
+   public void export(final Remote object) {
+      // nothing to do; callers get the object itself
+   }
+   
+   @Override
+   public void bind(final String name, final Remote object) throws AlreadyBoundException {
+      if (this.bindings.containsKey(name)) {
+         throw new AlreadyBoundException("LocalTransport: \"" + name + "\" is already bound");
+      }
+      
+      this.bindings.put(name, object);
+   }
+   
+   @Override
+   public Remote lookup(final String name) throws NotBoundException {
+      final Remote object = this.bindings.get(name);
+      
+      if (object == null) {
+         throw new NotBoundException("LocalTransport: \"" + name + "\" is not bound");
+      }
+      
+      return object;
+   }
+}
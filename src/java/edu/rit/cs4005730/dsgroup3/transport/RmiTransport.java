@@ -0,0 +1,62 @@
+package edu.rit.cs4005730.dsgroup3.transport;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+
+import edu.rit.ds.registry.AlreadyBoundException;
+import edu.rit.ds.registry.NotBoundException;
+import edu.rit.ds.registry.RegistryProxy;
+
+/**
+ * {@link Transport} that exports objects with {@link UnicastRemoteObject} and binds them in a Registry Server, for swarms spread over several processes.
+ * 
+ */
+public class RmiTransport implements Transport {
+   private final RegistryProxy myProxy;
+   
+   public RmiTransport(final String host, final int port) throws RemoteException {
+      // Get a proxy for the Registry Server.
+      try {
+         this.myProxy = new RegistryProxy(host, port);
+      } catch (final RemoteException e) {
+         throw new RemoteException("RmiTransport: Invalid Registry Server Not found");
+      }
+   }
+   
+   @Override
+   public void export(final Remote object) throws RemoteException {
+      try {
+         UnicastRemoteObject.exportObject(object, 0);
+      } catch (final RemoteException e) {
+         throw new RemoteException("RmiTransport: export object problem");
+      }
+   }
+   
+   @Override
+   public void bind(final String name, final Remote object) throws RemoteException, AlreadyBoundException {
+      UnicastRemoteObject.exportObject(object, 0);
+      
+      try {
+         this.myProxy.bind(name, object);
+      } catch (final RemoteException exc) {
+         try {
+            UnicastRemoteObject.unexportObject(object, true);
+         } catch (final NoSuchObjectException exc2) {
+         }
+         throw new RemoteException("RmiTransport: Invalid Registry Server Not found", exc);
+      } catch (final AlreadyBoundException exc) {
+         try {
+            UnicastRemoteObject.unexportObject(object, true);
+         } catch (final NoSuchObjectException exc2) {
+         }
+         throw exc;
+      }
+   }
+   
+   @Override
+   public Remote lookup(final String name) throws RemoteException, NotBoundException {
+      return (Remote) this.myProxy.lookup(name);
+   }
+}
@@ -0,0 +1,50 @@
+package edu.rit.cs4005730.dsgroup3.transport;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+import edu.rit.ds.registry.AlreadyBoundException;
+import edu.rit.ds.registry.NotBoundException;
+
+/**
+ * Decides how {@link edu.rit.cs4005730.dsgroup3.Node} and {@link edu.rit.cs4005730.dsgroup3.NodeManager} objects reach each other. {@link RmiTransport} uses
+ * RMI and a Registry Server so a swarm can be spread over several processes; {@link LocalTransport} hands out the objects themselves so calls between nodes in
+ * the same JVM are plain method calls with no serialization.
+ * 
+ */
+public interface Transport {
+   
+   /**
+    * Makes the given object reachable by other nodes.
+    * 
+    * @param object
+    *           the object to export
+    * @throws RemoteException
+    */
+   public void export(final Remote object) throws RemoteException;
+   
+   /**
+    * Exports the given object and makes it available to {@link #lookup(String)} under the given name.
+    * 
+    * @param name
+    *           the name to bind the object to
+    * @param object
+    *           the object to bind
+    * @throws RemoteException
+    * @throws AlreadyBoundException
+    *            if another object is already bound to the name
+    */
+   public void bind(final String name, final Remote object) throws RemoteException, AlreadyBoundException;
+   
+   /**
+    * Returns the object bound to the given name.
+    * 
+    * @param name
+    *           the name to look up
+    * @return the bound object or a stub for it
+    * @throws RemoteException
+    * @throws NotBoundException
+    *            if nothing is bound to the name
+    */
+   public Remote lookup(final String name) throws RemoteException, NotBoundException;
+}
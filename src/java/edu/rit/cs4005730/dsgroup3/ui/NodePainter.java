@@ -0,0 +1,108 @@
+package edu.rit.cs4005730.dsgroup3.ui;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.text.DecimalFormat;
+
+import edu.rit.cs4005730.dsgroup3.NodeStatus;
+import edu.rit.cs4005730.dsgroup3.ui.SwarmModel.NodeView;
+import edu.rit.cs4005730.dsgroup3.util.RemoteUtils;
+
+/**
+ * Draws nodes from their {@link NodeView}s: the status box of a single node for {@link SwarmView} and the block colors for {@link SwarmHeatmap}. Not a
+ * component; the views paint many nodes each.
+ * 
+ */
+final class NodePainter {
+   // only used on the Event Dispatch Thread
+   private static final DecimalFormat FORMATTER = new DecimalFormat("#.##");
+   // color of every quantized block state, indexed by the state as an unsigned byte
+   private static final Color[]       COLORS    = new Color[256];
+   
+   static {
+      for (int i = 0; i < COLORS.length; i++) {
+         COLORS[i] = getColor((byte) i);
+      }
+   }
+   
+   private NodePainter() {
+   }
+   
+   /**
+    * Draws the status of one node: the block bar followed by its rates, counts and progress.
+    * 
+    * @param g
+    *           the graphics to draw with, translated to the top left corner of the node
+    * @param view
+    *           the node to draw, or null to draw an empty box
+    * @param width
+    *           the width to fill
+    * @param height
+    *           the height to fill
+    */
+   static void paintNode(final Graphics g, final NodeView view, final int width, final int height) {
+      g.setColor(Color.LIGHT_GRAY);
+      g.fillRect(0, 0, width, height);
+      
+      if (view == null) {
+         return;
+      }
+      
+      final NodeStatus status = view.status;
+      
+      g.setColor(Color.BLACK);
+      g.drawString("Max UL: " + RemoteUtils.formatSpeed(status.maxUploadRate), 5, 42);
+      g.drawString("Max DL: " + RemoteUtils.formatSpeed(status.maxDownloadRate), 155, 42);
+      g.drawString("UL: " + RemoteUtils.formatSpeed(status.availableUploadRate), 5, 56);
+      g.drawString("DL: " + RemoteUtils.formatSpeed(status.availableDownloadRate), 155, 56);
+      g.drawString("UpCount: " + status.uploadCount, 5, 70);
+      g.drawString("DownCount: " + status.downloadCount, 155, 70);
+      g.drawString("Progress: " + FORMATTER.format(status.progress * 100.0) + " %", 5, 84);
+      g.drawString("Elapsed: " + FORMATTER.format(status.transferTime / 1000.0) + " seconds", 155, 84);
+      g.drawString("Name: " + status.name, 5, 98);
+      
+      g.drawRect(0, 0, width - 1, height - 1);
+      
+      final int startX = 5;
+      final int barWidth = width - 15;
+      final int startY = 5;
+      final int barHeight = 25;
+      final byte[] blocks = view.blocks;
+      final int blockCount = blocks.length;
+      final double step = Math.ceil(barWidth / (double) blockCount);
+      int i = 0;
+      
+      for (double x = startX; (x < (startX + barWidth)) && (i < blockCount); x += step, i++) {
+         g.setColor(COLORS[blocks[i] & 0xFF]);
+         g.fillRect((int) x, startY, (int) step, barHeight);
+      }
+   }
+   
+   /**
+    * Returns the RGB value a block in the given state is drawn with.
+    * 
+    * @param state
+    *           a quantized block state from {@link NodeStatus}
+    * @return the color as packed RGB
+    */
+   static int getRGB(final byte state) {
+      return COLORS[state & 0xFF].getRGB();
+   }
+   
+   private static Color getColor(final byte state) {
+      if (state == NodeStatus.MISSING) {
+         return Color.black;
+      } else if (state == NodeStatus.RESERVED) {
+         return Color.orange;
+      } else if (state == 0) {
+         return Color.red.darker();
+      } else if (state >= NodeStatus.OWNED) {
+         return Color.blue;
+      } else if (state > 0) {
+         return new Color(0f, state / (float) NodeStatus.OWNED, 0f);
+      } else {
+         // not a state NodeStatus produces
+         return Color.white;
+      }
+   }
+}
@@ -0,0 +1,122 @@
+package edu.rit.cs4005730.dsgroup3.ui;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import javax.swing.JComponent;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import edu.rit.cs4005730.dsgroup3.ui.SwarmModel.NodeView;
+
+/**
+ * Dense view of a whole swarm: one pixel row per node and one column per block, in the colors of {@link NodePainter}. The pixels are written straight into a
+ * {@link BufferedImage} that is kept across snapshots and only replaced when the swarm outgrows it, and rows whose block array did not change since the last
+ * snapshot are skipped, so a refresh of a 5,000 node swarm touches only the nodes that made progress.
+ *
+ */
+public class SwarmHeatmap extends JComponent implements ChangeListener {
+   private static final long serialVersionUID = 1L;
+
+   private final SwarmModel  model;
+   // all fields below are only touched on the Event Dispatch Thread
+   private BufferedImage     image;
+   private int[]             pixels;
+   // the block array each row was last drawn from; arrays of the model are never written to, so an identical reference means an identical row
+   private byte[][]          drawn            = new byte[0][];
+   private int               rowCount         = 0;
+   private int               columnCount      = 0;
+
+   /**
+    * Creates a heatmap of the given model.
+    *
+    * @param model
+    *           the {@link SwarmModel} to draw
+    */
+   public SwarmHeatmap(final SwarmModel model) {
+      this.model = model;
+      this.setOpaque(true);
+
+      model.addChangeListener(this);
+   }
+
+   @Override
+   public void stateChanged(final ChangeEvent e) {
+      final NodeView[] views = this.model.getSnapshot().nodes.values().toArray(new NodeView[0]);
+      int columns = 0;
+
+      for (final NodeView view : views) {
+         columns = Math.max(columns, view.blocks.length);
+      }
+
+      this.ensureCapacity(views.length, columns);
+
+      final int stride = this.image.getWidth();
+
+      for (int row = 0; row < views.length; row++) {
+         final byte[] blocks = views[row].blocks;
+
+         if (blocks == this.drawn[row]) {
+            continue;
+         }
+
+         final int offset = row * stride;
+
+         for (int column = 0; column < columns; column++) {
+            this.pixels[offset + column] = (column < blocks.length) ? NodePainter.getRGB(blocks[column]) : 0;
+         }
+
+         this.drawn[row] = blocks;
+      }
+
+      final boolean isResized = (views.length != this.rowCount) || (columns != this.columnCount);
+      this.rowCount = views.length;
+      this.columnCount = columns;
+
+      if (isResized) {
+         this.revalidate();
+      }
+
+      this.repaint();
+   }
+
+   /**
+    * Replaces the image if it is too small, doubling its size so a growing swarm does not allocate on every snapshot.
+    */
+   private void ensureCapacity(final int rows, final int columns) {
+      if ((this.image != null) && (this.image.getHeight() >= rows) && (this.image.getWidth() >= columns)) {
+         if (columns != this.columnCount) {
+            // the rows were drawn for a different width
+            Arrays.fill(this.drawn, null);
+         }
+
+         return;
+      }
+
+      final int width = Math.max(Math.max(1, columns), (this.image == null) ? 1 : this.image.getWidth());
+      final int height = Math.max(Math.max(1, rows), (this.image == null) ? 64 : (this.image.getHeight() * 2));
+
+      this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      this.pixels = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+      this.drawn = new byte[height][];
+   }
+
+   @Override
+   protected void paintComponent(final Graphics g) {
+      g.setColor(this.getBackground());
+      g.fillRect(0, 0, this.getWidth(), this.getHeight());
+
+      if ((this.image != null) && (this.rowCount > 0) && (this.columnCount > 0)) {
+         // stretch the blocks over the width; one row per node so the scroll pane scrolls through the swarm
+         g.drawImage(this.image, 0, 0, this.getWidth(), this.rowCount, 0, 0, this.columnCount, this.rowCount, null);
+      }
+   }
+
+   @Override
+   public Dimension getPreferredSize() {
+      return new Dimension(Math.max(SwarmView.ROW_WIDTH, this.columnCount), this.rowCount);
+   }
+}
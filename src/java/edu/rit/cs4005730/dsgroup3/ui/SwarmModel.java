@@ -0,0 +1,221 @@
+package edu.rit.cs4005730.dsgroup3.ui;
+
+import java.rmi.RemoteException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import edu.rit.cs4005730.dsgroup3.GeneralStatistics;
+import edu.rit.cs4005730.dsgroup3.NodeEventBatch;
+import edu.rit.cs4005730.dsgroup3.NodeListener;
+import edu.rit.cs4005730.dsgroup3.NodeManagerRef;
+import edu.rit.cs4005730.dsgroup3.NodeRef;
+import edu.rit.cs4005730.dsgroup3.NodeStatus;
+
+/**
+ * View model of the {@link UserInterface}. A background thread polls the {@link NodeManagerRef} for its nodes and statistics and every node for its
+ * {@link NodeStatus}, and publishes the result as an immutable {@link Snapshot}. Swing components read only the latest snapshot, so no remote call is ever
+ * made on the Event Dispatch Thread. Change listeners are called on the Event Dispatch Thread after every poll.
+ *
+ * The poll runs every {@link #POLL_INTERVAL}; progress events from the {@link #getNodeListener() node listener} bring the next one forward.
+ *
+ */
+public class SwarmModel {
+   // milliseconds of wall time between two polls when no events arrive
+   public static final long                 POLL_INTERVAL = 250;
+
+   private final NodeManagerRef             manager;
+   private final List<ChangeListener>       listeners     = new CopyOnWriteArrayList<ChangeListener>();
+   private final AtomicBoolean              isPollQueued  = new AtomicBoolean(false);
+   private final ScheduledExecutorService   poller        = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                                                             @Override
+                                                             public Thread newThread(final Runnable runnable) {
+                                                                final Thread thread = new Thread(runnable, "SwarmModel");
+                                                                thread.setDaemon(true);
+                                                                return thread;
+                                                             }
+                                                          });
+   // views of the last poll by node, for delta snapshots; only touched by the poller thread
+   private Map<NodeRef, NodeView>           views         = new HashMap<NodeRef, NodeView>();
+   private volatile Snapshot                snapshot      = new Snapshot(Collections.<String, NodeView> emptyMap(), null);
+
+   private final Runnable                   poll          = new Runnable() {
+                                                             @Override
+                                                             public void run() {
+                                                                SwarmModel.this.isPollQueued.set(false);
+                                                                SwarmModel.this.poll();
+                                                             }
+                                                          };
+
+   private final NodeListener               nodeListener  = new NodeListener() {
+                                                             @Override
+                                                             public void report(final long theSequenceNumber, final NodeEventBatch theBatch) throws RemoteException {
+                                                                SwarmModel.this.refresh();
+                                                             }
+                                                          };
+
+   /**
+    * Creates a view model of the nodes registered with the given manager. Polling starts with {@link #start()}.
+    *
+    * @param manager
+    *           the {@link NodeManagerRef} to poll
+    */
+   public SwarmModel(final NodeManagerRef manager) {
+      this.manager = manager;
+   }
+
+   public void start() {
+      this.poller.scheduleWithFixedDelay(this.poll, 0, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+   }
+
+   public void stop() {
+      this.poller.shutdownNow();
+   }
+
+   /**
+    * Polls as soon as possible instead of waiting for the next interval. Requests made while a poll is already queued are merged into it.
+    */
+   public void refresh() {
+      if (this.isPollQueued.compareAndSet(false, true)) {
+         this.poller.execute(this.poll);
+      }
+   }
+
+   /**
+    * Returns a listener that can be added to nodes so their progress events trigger a {@link #refresh()}.
+    *
+    * @return the node listener of this model
+    */
+   public NodeListener getNodeListener() {
+      return this.nodeListener;
+   }
+
+   public void addChangeListener(final ChangeListener listener) {
+      this.listeners.add(listener);
+   }
+
+   public void removeChangeListener(final ChangeListener listener) {
+      this.listeners.remove(listener);
+   }
+
+   /**
+    * Returns the result of the latest poll. Never blocks.
+    *
+    * @return the latest snapshot
+    */
+   public Snapshot getSnapshot() {
+      return this.snapshot;
+   }
+
+   private void poll() {
+      List<NodeRef> nodes;
+      Stats stats = null;
+
+      try {
+         nodes = this.manager.getNodes();
+         stats = new Stats(this.manager.getStats());
+      } catch (final RemoteException e) {
+         nodes = Collections.emptyList();
+      }
+
+      final Map<NodeRef, NodeView> views = new HashMap<NodeRef, NodeView>();
+      final Map<String, NodeView> byName = new LinkedHashMap<String, NodeView>();
+
+      for (final NodeRef node : nodes) {
+         final NodeView previous = this.views.get(node);
+
+         try {
+            final NodeStatus status = node.getSnapshot((previous == null) ? -1 : previous.status.getVersion());
+            final byte[] blocks;
+
+            if ((previous != null) && (status.getVersion() == previous.status.getVersion())) {
+               blocks = previous.blocks;
+            } else {
+               // published block arrays are never written to again
+               blocks = status.apply((previous == null) ? null : previous.blocks.clone());
+            }
+
+            final NodeView view = new NodeView(status, blocks);
+            views.put(node, view);
+            byName.put(status.name, view);
+         } catch (final RemoteException e) {
+            // the node is gone; it drops out of the snapshot
+         }
+      }
+
+      this.views = views;
+      this.snapshot = new Snapshot(Collections.unmodifiableMap(byName), (stats != null) ? stats : this.snapshot.stats);
+
+      SwingUtilities.invokeLater(new Runnable() {
+         @Override
+         public void run() {
+            final ChangeEvent event = new ChangeEvent(SwarmModel.this);
+
+            for (final ChangeListener listener : SwarmModel.this.listeners) {
+               listener.stateChanged(event);
+            }
+         }
+      });
+   }
+
+   /**
+    * Immutable state of every node and the swarm statistics at the time of one poll.
+    */
+   public static class Snapshot {
+      // views by node name, in the order the manager lists the nodes
+      public final Map<String, NodeView> nodes;
+      // null until the manager answered once
+      public final Stats                 stats;
+
+      private Snapshot(final Map<String, NodeView> nodes, final Stats stats) {
+         this.nodes = nodes;
+         this.stats = stats;
+      }
+
+      public NodeView get(final String name) {
+         return this.nodes.get(name);
+      }
+   }
+
+   /**
+    * Immutable state of a single node: its last {@link NodeStatus} and the block states merged from all snapshots so far.
+    */
+   public static class NodeView {
+      public final NodeStatus status;
+      public final byte[]     blocks;
+
+      private NodeView(final NodeStatus status, final byte[] blocks) {
+         this.status = status;
+         this.blocks = blocks;
+      }
+   }
+
+   /**
+    * Immutable copy of the {@link GeneralStatistics} of the manager.
+    */
+   public static class Stats {
+      public final int     initialSeedCount;
+      public final int     initialPeerCount;
+      public final long    meanTimeToCompletion;
+      public final boolean isComplete;
+
+      private Stats(final GeneralStatistics stats) {
+         this.initialSeedCount = stats.getInitialSeedCount();
+         this.initialPeerCount = stats.getInitialPeerCount();
+         this.meanTimeToCompletion = stats.getMeanTimeToCompletion();
+         this.isComplete = stats.getIsComplete();
+      }
+   }
+}
@@ -0,0 +1,135 @@
+package edu.rit.cs4005730.dsgroup3.ui;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import javax.swing.JComponent;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import edu.rit.cs4005730.dsgroup3.ui.SwarmModel.NodeView;
+
+/**
+ * Virtualized list of nodes. Instead of one component per node, the rows are kept in a plain array rebuilt from every {@link SwarmModel} snapshot and
+ * drawn with {@link NodePainter}, and only the rows inside the clip are drawn, so a scroll pane over thousands of nodes costs no more to paint than one over
+ * a handful.
+ *
+ */
+public class SwarmView extends JComponent implements Scrollable, ChangeListener {
+   private static final long serialVersionUID = 1L;
+
+   public static final int   ROW_WIDTH        = 300;
+   public static final int   ROW_HEIGHT       = 100;
+
+   private final SwarmModel  model;
+   private final boolean     showSeeds;
+   // rows of the latest snapshot; only touched on the Event Dispatch Thread
+   private NodeView[]        rows             = new NodeView[0];
+
+   /**
+    * Creates a view of either the seeds or the peers of the given model.
+    *
+    * @param model
+    *           the {@link SwarmModel} to draw
+    * @param showSeeds
+    *           true to list the seeds, highest upload count first, false to list the peers in the order they joined
+    */
+   public SwarmView(final SwarmModel model, final boolean showSeeds) {
+      this.model = model;
+      this.showSeeds = showSeeds;
+      this.setOpaque(true);
+
+      model.addChangeListener(this);
+   }
+
+   @Override
+   public void stateChanged(final ChangeEvent e) {
+      final NodeView[] all = this.model.getSnapshot().nodes.values().toArray(new NodeView[0]);
+      int count = 0;
+
+      for (final NodeView view : all) {
+         if (view.status.isSeed == this.showSeeds) {
+            all[count++] = view;
+         }
+      }
+
+      final NodeView[] rows = Arrays.copyOf(all, count);
+
+      if (this.showSeeds) {
+         Arrays.sort(rows, new Comparator<NodeView>() {
+            @Override
+            public int compare(final NodeView o1, final NodeView o2) {
+               // highest to lowest
+               return (o1.status.uploadCount < o2.status.uploadCount) ? 1 : ((o1.status.uploadCount == o2.status.uploadCount) ? 0 : -1);
+            }
+         });
+      }
+
+      final boolean isResized = rows.length != this.rows.length;
+      this.rows = rows;
+
+      if (isResized) {
+         this.revalidate();
+      }
+
+      this.repaint();
+   }
+
+   @Override
+   protected void paintComponent(final Graphics g) {
+      final Rectangle clip = g.getClipBounds();
+      final int width = this.getWidth();
+      final NodeView[] rows = this.rows;
+
+      g.setColor(this.getBackground());
+      g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+      final int first = Math.max(0, clip.y / ROW_HEIGHT);
+      final int last = Math.min(rows.length - 1, ((clip.y + clip.height) - 1) / ROW_HEIGHT);
+
+      for (int i = first; i <= last; i++) {
+         final Graphics row = g.create(0, i * ROW_HEIGHT, width, ROW_HEIGHT);
+
+         try {
+            NodePainter.paintNode(row, rows[i], width, ROW_HEIGHT);
+         } finally {
+            row.dispose();
+         }
+      }
+   }
+
+   @Override
+   public Dimension getPreferredSize() {
+      return new Dimension(ROW_WIDTH, this.rows.length * ROW_HEIGHT);
+   }
+
+   @Override
+   public Dimension getPreferredScrollableViewportSize() {
+      return new Dimension(ROW_WIDTH, 6 * ROW_HEIGHT);
+   }
+
+   @Override
+   public int getScrollableUnitIncrement(final Rectangle visibleRect, final int orientation, final int direction) {
+      return (orientation == SwingConstants.VERTICAL) ? (ROW_HEIGHT / 4) : 10;
+   }
+
+   @Override
+   public int getScrollableBlockIncrement(final Rectangle visibleRect, final int orientation, final int direction) {
+      return (orientation == SwingConstants.VERTICAL) ? Math.max(ROW_HEIGHT, visibleRect.height - ROW_HEIGHT) : visibleRect.width;
+   }
+
+   @Override
+   public boolean getScrollableTracksViewportWidth() {
+      return true;
+   }
+
+   @Override
+   public boolean getScrollableTracksViewportHeight() {
+      return false;
+   }
+}
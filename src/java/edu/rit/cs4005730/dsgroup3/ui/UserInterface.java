@@ -1,9 +1,7 @@
 package edu.rit.cs4005730.dsgroup3.ui;
 
-import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
-import java.awt.Graphics;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.GridLayout;
@@ -14,12 +12,10 @@ import java.awt.datatransfer.StringSelection;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.rmi.RemoteException;
-import java.rmi.server.UnicastRemoteObject;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
-import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -29,18 +25,26 @@ import javax.swing.JSpinner;
 import javax.swing.JTabbedPane;
 import javax.swing.JTextField;
 import javax.swing.SpinnerNumberModel;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
-import edu.rit.cs4005730.dsgroup3.GeneralStatistics;
 import edu.rit.cs4005730.dsgroup3.Node;
-import edu.rit.cs4005730.dsgroup3.NodeEvent;
-import edu.rit.cs4005730.dsgroup3.NodeListener;
+import edu.rit.cs4005730.dsgroup3.NodeEventBus;
 import edu.rit.cs4005730.dsgroup3.NodeManager;
 import edu.rit.cs4005730.dsgroup3.NodeManagerListener;
 import edu.rit.cs4005730.dsgroup3.NodeManagerRef;
 import edu.rit.cs4005730.dsgroup3.NodeRef;
+import edu.rit.cs4005730.dsgroup3.SwarmBootstrap;
+import edu.rit.cs4005730.dsgroup3.SwarmConfig;
+import edu.rit.cs4005730.dsgroup3.sim.RealTimeScheduler;
+import edu.rit.cs4005730.dsgroup3.sim.Scheduler;
+import edu.rit.cs4005730.dsgroup3.transport.LocalTransport;
+import edu.rit.cs4005730.dsgroup3.transport.RmiTransport;
+import edu.rit.cs4005730.dsgroup3.transport.Transport;
 import edu.rit.cs4005730.dsgroup3.util.RemoteUtils;
+import edu.rit.cs4005730.dsgroup3.util.SplitMix;
+import edu.rit.ds.Lease;
 import edu.rit.ds.registry.NotBoundException;
-import edu.rit.ds.registry.RegistryProxy;
 import edu.rit.ds.registry.RegistryServer;
 
 /**
@@ -59,22 +63,23 @@ public class UserInterface extends JTabbedPane {
    
    private final JFrame       frame;
    
-   private RegistryProxy      proxy;
+   private Transport          transport;
    private NodeManagerRef     manager;
+   private SwarmModel         model;
    
-   private JPanel             seedPanel, peerPanel;
+   private SwarmView          seedView, peerView;
+   
+   // settings, scheduler and event bus of the current swarm; all are replaced together by "Submit Changes"
+   private volatile SwarmConfig config      = SwarmConfig.DEFAULT;
+   private volatile Scheduler scheduler    = new RealTimeScheduler(this.config);
+   private volatile NodeEventBus eventBus  = new NodeEventBus(this.scheduler, this.config.eventInterval);
+   // the model's subscription to the current event bus
+   private Lease              eventLease;
+   private final Random       random       = SplitMix.newRandom(this.config.seed, "userInterface");
    
    private int                seedIndex    = 0;
    private int                peerIndex    = 0;
    
-   private final NodeListener nodeListener = new NodeListener() {
-                                              @Override
-                                              public void report(final long theSequenceNumber, final NodeEvent theEvent) throws RemoteException {
-                                                 UserInterface.this.frame.invalidate();
-                                                 UserInterface.this.frame.repaint();
-                                              }
-                                           };
-   
    public UserInterface(final String[] args) {
       if ((args == null) || (args.length != 0)) {
          throw new IllegalArgumentException("Usage: java Start UserInterface");
@@ -82,27 +87,43 @@ public class UserInterface extends JTabbedPane {
       
       System.out.println(this.host + ":" + this.port);
       
-      RemoteUtils.startProcess(RegistryServer.class, new String[] { this.host, Integer.toString(this.port) });
-      RemoteUtils.sleep(1000);
-      
-      try {
-         this.proxy = new RegistryProxy(this.host, this.port);
-         System.out.println("proxy: " + this.proxy);
-      } catch (final RemoteException e) {
-         throw new IllegalArgumentException("NodeManager: Invalid Registry Server Not found");
+      if ("local".equals(System.getProperty(RemoteUtils.TRANSPORT_PROPERTY))) {
+         // all nodes live in this JVM; skip the Registry Server and RMI entirely
+         this.transport = new LocalTransport();
+         
+         try {
+            this.manager = new NodeManager(this.transport, this.config);
+         } catch (final RemoteException e) {
+            e.printStackTrace();
+         }
+      } else {
+         RemoteUtils.startProcess(RegistryServer.class, new String[] { this.host, Integer.toString(this.port) });
+         RemoteUtils.sleep(1000);
+         
+         try {
+            this.transport = new RmiTransport(this.host, this.port);
+            System.out.println("transport: " + this.transport);
+         } catch (final RemoteException e) {
+            throw new IllegalArgumentException("NodeManager: Invalid Registry Server Not found");
+         }
+         
+         RemoteUtils.startProcess(NodeManager.class, new String[] { this.host, Integer.toString(this.port), this.config.nodeManagerName });
+         RemoteUtils.sleep(1000);
+         
+         try {
+            this.manager = (NodeManagerRef) this.transport.lookup(this.config.nodeManagerName);
+            // the manager was started with the default settings and its own seed; give it the ones of this swarm
+            this.manager.reset(this.config);
+         } catch (final RemoteException e) {
+            e.printStackTrace();
+         } catch (final NotBoundException e) {
+            e.printStackTrace();
+         }
       }
       
-      RemoteUtils.startProcess(NodeManager.class, new String[] { this.host, Integer.toString(this.port), RemoteUtils.NODE_MANAGER_NAME });
-      RemoteUtils.sleep(1000);
+      System.out.println("node manager: " + this.manager);
       
-      try {
-         this.manager = (NodeManagerRef) this.proxy.lookup(RemoteUtils.NODE_MANAGER_NAME);
-         System.out.println("node manager: " + this.manager);
-      } catch (final RemoteException e) {
-         e.printStackTrace();
-      } catch (final NotBoundException e) {
-         e.printStackTrace();
-      }
+      this.model = new SwarmModel(this.manager);
       
       this.frame = new JFrame("BitTorrent Simulation");
       this.frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -112,28 +133,65 @@ public class UserInterface extends JTabbedPane {
       final JPanel statsPanel = this.getStatsPanel();
       
       this.addTab("Node Status", nodePanel);
+      this.addTab("Heatmap", this.getHeatmapPanel());
       this.addTab("Settings", settingsPanel);
       this.addTab("Statistics", statsPanel);
       this.frame.getContentPane().add(this);
       
       try {
-         UnicastRemoteObject.exportObject(this.nodeListener, 0);
+         this.transport.export(this.model.getNodeListener());
       } catch (final RemoteException e1) {
          e1.printStackTrace();
       }
       
-      // TODO: fix node manager listener and update node panel to display nodes actually in node manager
-      
-      final NodeRef node = RemoteUtils.createNode(this.frame, this.seedPanel, "seed" + this.seedIndex++, this.host, this.port, true, RemoteUtils.getUpload(true), RemoteUtils.getDownload(true));
       try {
-         node.addNodeListener(this.nodeListener);
+         // once for the whole swarm; every node posts to the same bus
+         this.eventLease = this.eventBus.addListener(this.model.getNodeListener());
       } catch (final RemoteException e) {
          e.printStackTrace();
       }
       
+      this.createNode(true);
+      this.model.start();
       this.show();
    }
    
+   /**
+    * Creates a node of the current swarm. Seeds run at the maximum rates, peers at random rates within the configured range, unless the config has a network
+    * model.
+    */
+   private Node createNode(final boolean isSeed) {
+      final SwarmConfig config = this.config;
+      final String name = isSeed ? ("seed" + this.seedIndex++) : ("peer" + this.peerIndex++);
+      
+      return RemoteUtils.createNode(name, config, this.transport, this.scheduler, this.eventBus, isSeed, config.drawLink(this.random, isSeed));
+   }
+   
+   /**
+    * Creates the given number of nodes of the current swarm in parallel, registers them at once and starts them together.
+    * 
+    * @return the nodes that were created
+    */
+   private List<Node> createNodes(final int count, final boolean isSeed) {
+      final SwarmConfig config = this.config;
+      final List<SwarmBootstrap.Spec> specs = new ArrayList<SwarmBootstrap.Spec>(count);
+      
+      for (int i = 0; i < count; i++) {
+         final String name = isSeed ? ("seed" + this.seedIndex++) : ("peer" + this.peerIndex++);
+         specs.add(new SwarmBootstrap.Spec(name, config.drawLink(this.random, isSeed), isSeed));
+      }
+      
+      try {
+         return new SwarmBootstrap(config, this.transport, this.scheduler, this.eventBus).launch(specs);
+      } catch (final RemoteException e) {
+         e.printStackTrace();
+      } catch (final NotBoundException e) {
+         e.printStackTrace();
+      }
+      
+      return new ArrayList<Node>();
+   }
+   
    @Override
    public void show() {
       this.frame.setLocation(200, 200);
@@ -142,48 +200,13 @@ public class UserInterface extends JTabbedPane {
    }
    
    private JPanel getNodePanel() {
-      this.seedPanel = new JPanel() {
-         @Override
-         public void paint(final Graphics g) {
-            UserInterface.sortNodePanels(this);
-            
-            super.paint(g);
-         }
-      };
-      this.seedPanel.setLayout(new BoxLayout(this.seedPanel, BoxLayout.PAGE_AXIS));
-      this.peerPanel = new JPanel() {
-         @Override
-         public void paint(final Graphics g) {
-            // UserInterface.sortNodePanels(this);
-            
-            NodePanel panel;
-            
-            // TODO: temp until remote events work
-            for (int i = 0; i < UserInterface.this.peerPanel.getComponentCount(); i++) {
-               panel = (NodePanel) UserInterface.this.peerPanel.getComponent(i);
-               
-               try {
-                  if (panel.getNode().isSeed()) {
-                     UserInterface.this.peerPanel.remove(panel);
-                     UserInterface.this.seedPanel.add(panel);
-                     UserInterface.this.seedPanel.invalidate();
-                     UserInterface.this.peerPanel.invalidate();
-                     UserInterface.this.frame.repaint();
-                  }
-               } catch (final RemoteException e) {
-                  e.printStackTrace();
-               }
-            }
-            
-            super.paint(g);
-         }
-      };
-      
-      this.peerPanel.setLayout(new BoxLayout(this.peerPanel, BoxLayout.PAGE_AXIS));
+      // virtualized lists; only the visible rows are drawn however many nodes there are
+      this.seedView = new SwarmView(this.model, true);
+      this.peerView = new SwarmView(this.model, false);
       
-      final JScrollPane seedScroll = new JScrollPane(this.seedPanel);
+      final JScrollPane seedScroll = new JScrollPane(this.seedView);
       seedScroll.setPreferredSize(new Dimension(325, 600));
-      final JScrollPane peerScroll = new JScrollPane(this.peerPanel);
+      final JScrollPane peerScroll = new JScrollPane(this.peerView);
       peerScroll.setPreferredSize(new Dimension(325, 600));
       
       final JPanel panel = new JPanel(new FlowLayout(FlowLayout.CENTER));
@@ -202,17 +225,7 @@ public class UserInterface extends JTabbedPane {
             new Thread() {
                @Override
                public void run() {
-                  for (int i = 0; i < count; i++) {
-                     final Node node = RemoteUtils.createNode(UserInterface.this.frame, UserInterface.this.seedPanel, "seed" + UserInterface.this.seedIndex++, UserInterface.this.host,
-                           UserInterface.this.port, true);
-                     try {
-                        node.addNodeListener(UserInterface.this.nodeListener);
-                     } catch (final RemoteException e) {
-                        e.printStackTrace();
-                     }
-                  }
-                  
-                  System.out.println("seeds added: " + count);
+                  System.out.println("seeds added: " + UserInterface.this.createNodes(count, true).size());
                }
             }.start();
          }
@@ -226,17 +239,7 @@ public class UserInterface extends JTabbedPane {
             new Thread() {
                @Override
                public void run() {
-                  for (int i = 0; i < count; i++) {
-                     final Node node = RemoteUtils.createNode(UserInterface.this.frame, UserInterface.this.peerPanel, "peer" + UserInterface.this.peerIndex++, UserInterface.this.host,
-                           UserInterface.this.port, false);
-                     try {
-                        node.addNodeListener(UserInterface.this.nodeListener);
-                     } catch (final RemoteException e) {
-                        e.printStackTrace();
-                     }
-                  }
-                  
-                  System.out.println("peers added: " + count);
+                  System.out.println("peers added: " + UserInterface.this.createNodes(count, false).size());
                }
             }.start();
          }
@@ -256,6 +259,17 @@ public class UserInterface extends JTabbedPane {
       return panel;
    }
    
+   private JPanel getHeatmapPanel() {
+      final JScrollPane scroll = new JScrollPane(new SwarmHeatmap(this.model));
+      scroll.setPreferredSize(new Dimension(650, 600));
+      
+      final JPanel panel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+      panel.add(new JLabel("One row per node, one column per block"));
+      panel.add(scroll);
+      
+      return panel;
+   }
+   
    private JPanel getStatsPanel() {
       final int FIELD_WIDTH = 10;
       final JTextField seedCountLbl = new JTextField(FIELD_WIDTH);
@@ -264,30 +278,27 @@ public class UserInterface extends JTabbedPane {
       final JTextField peersFinishedLbl = new JTextField(FIELD_WIDTH);
       final StringBuilder dataString = new StringBuilder();
       
-      final JPanel panel = new JPanel(new GridBagLayout()) {
+      final JPanel panel = new JPanel(new GridBagLayout());
+      
+      this.model.addChangeListener(new ChangeListener() {
          @Override
-         public void paint(final Graphics g) {
-            // get data from the stats object on the node manager
-            GeneralStatistics stats = null;
-            try {
-               stats = UserInterface.this.manager.getStats();
-            } catch (final RemoteException e) {
-               e.printStackTrace();
-            }
+         public void stateChanged(final ChangeEvent e) {
+            // statistics of the latest poll; no remote calls on the Event Dispatch Thread
+            final SwarmModel.Stats stats = UserInterface.this.model.getSnapshot().stats;
             
             if (stats != null) {
                // set the labels
-               seedCountLbl.setText("" + stats.getInitialSeedCount());
-               peerCountLbl.setText("" + stats.getInitialPeerCount());
-               meanDownloadTimeLbl.setText("" + (stats.getMeanTimeToCompletion() / 1000.0) + " seconds");
-               peersFinishedLbl.setText("" + stats.getIsComplete());
+               seedCountLbl.setText("" + stats.initialSeedCount);
+               peerCountLbl.setText("" + stats.initialPeerCount);
+               meanDownloadTimeLbl.setText("" + (stats.meanTimeToCompletion / 1000.0) + " seconds");
+               peersFinishedLbl.setText("" + stats.isComplete);
                
                // construct the copyable CSV string
                dataString.setLength(0);
-               dataString.append("" + stats.getInitialSeedCount());
-               dataString.append("," + stats.getInitialPeerCount());
-               dataString.append("," + stats.getMeanTimeToCompletion());
-               dataString.append("," + stats.getIsComplete());
+               dataString.append("" + stats.initialSeedCount);
+               dataString.append("," + stats.initialPeerCount);
+               dataString.append("," + stats.meanTimeToCompletion);
+               dataString.append("," + stats.isComplete);
             } else {
                // failure
                seedCountLbl.setText("ERROR");
@@ -296,9 +307,8 @@ public class UserInterface extends JTabbedPane {
                peersFinishedLbl.setText("ERROR");
                dataString.setLength(0);
             }
-            super.paint(g);
          }
-      };
+      });
       
       final GridBagConstraints c = new GridBagConstraints();
       c.fill = GridBagConstraints.HORIZONTAL;
@@ -358,6 +368,7 @@ public class UserInterface extends JTabbedPane {
    }
    
    private JPanel getSettingsPanel() {
+      final SwarmConfig defaults = this.config;
       final JPanel panel = new JPanel(new GridBagLayout());
       final GridBagConstraints c = new GridBagConstraints();
       c.fill = GridBagConstraints.HORIZONTAL;
@@ -373,7 +384,7 @@ public class UserInterface extends JTabbedPane {
       c.gridy = 0;
       c.gridwidth = 3;
       c.weightx = 0.75;
-      final JSpinner maxDownloadField = new JSpinner(new SpinnerNumberModel(Long.valueOf(RemoteUtils.DOWNLOAD_MAX), Long.valueOf(RemoteUtils.MINIMUM_SPEED_BPS),
+      final JSpinner maxDownloadField = new JSpinner(new SpinnerNumberModel(Long.valueOf((long) defaults.downloadMax), Long.valueOf(RemoteUtils.MINIMUM_SPEED_BPS),
             Long.valueOf(RemoteUtils.MAXIMUM_SPEED_BPS), Long.valueOf(256 * RemoteUtils.KB_IN_BYTES)));
       ((JSpinner.DefaultEditor) maxDownloadField.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
       ((JSpinner.DefaultEditor) maxDownloadField.getEditor()).getTextField().setFormatterFactory(new TransferSpeedFormatFactory());
@@ -390,7 +401,7 @@ public class UserInterface extends JTabbedPane {
       c.gridy = 1;
       c.gridwidth = 3;
       c.weightx = 0.75;
-      final JSpinner minDownloadField = new JSpinner(new SpinnerNumberModel(Long.valueOf(RemoteUtils.DOWNLOAD_MIN), Long.valueOf(RemoteUtils.MINIMUM_SPEED_BPS),
+      final JSpinner minDownloadField = new JSpinner(new SpinnerNumberModel(Long.valueOf((long) defaults.downloadMin), Long.valueOf(RemoteUtils.MINIMUM_SPEED_BPS),
             Long.valueOf(RemoteUtils.MAXIMUM_SPEED_BPS), Long.valueOf(256 * RemoteUtils.KB_IN_BYTES)));
       ((JSpinner.DefaultEditor) minDownloadField.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
       ((JSpinner.DefaultEditor) minDownloadField.getEditor()).getTextField().setFormatterFactory(new TransferSpeedFormatFactory());
@@ -407,7 +418,7 @@ public class UserInterface extends JTabbedPane {
       c.gridy = 2;
       c.gridwidth = 3;
       c.weightx = 0.75;
-      final JSpinner maxUploadField = new JSpinner(new SpinnerNumberModel(Long.valueOf(RemoteUtils.UPLOAD_MAX), Long.valueOf(RemoteUtils.MINIMUM_SPEED_BPS),
+      final JSpinner maxUploadField = new JSpinner(new SpinnerNumberModel(Long.valueOf((long) defaults.uploadMax), Long.valueOf(RemoteUtils.MINIMUM_SPEED_BPS),
             Long.valueOf(RemoteUtils.MAXIMUM_SPEED_BPS), Long.valueOf(256 * RemoteUtils.KB_IN_BYTES)));
       ((JSpinner.DefaultEditor) maxUploadField.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
       ((JSpinner.DefaultEditor) maxUploadField.getEditor()).getTextField().setFormatterFactory(new TransferSpeedFormatFactory());
@@ -424,7 +435,7 @@ public class UserInterface extends JTabbedPane {
       c.gridy = 3;
       c.gridwidth = 3;
       c.weightx = 0.75;
-      final JSpinner minUploadField = new JSpinner(new SpinnerNumberModel(Long.valueOf(RemoteUtils.UPLOAD_MIN), Long.valueOf(RemoteUtils.MINIMUM_SPEED_BPS),
+      final JSpinner minUploadField = new JSpinner(new SpinnerNumberModel(Long.valueOf((long) defaults.uploadMin), Long.valueOf(RemoteUtils.MINIMUM_SPEED_BPS),
             Long.valueOf(RemoteUtils.MAXIMUM_SPEED_BPS), Long.valueOf(256 * RemoteUtils.KB_IN_BYTES)));
       ((JSpinner.DefaultEditor) minUploadField.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
       ((JSpinner.DefaultEditor) minUploadField.getEditor()).getTextField().setFormatterFactory(new TransferSpeedFormatFactory());
@@ -441,7 +452,7 @@ public class UserInterface extends JTabbedPane {
       c.gridy = 4;
       c.gridwidth = 3;
       c.weightx = 0.75;
-      final JSpinner fileSizeField = new JSpinner(new SpinnerNumberModel(Long.valueOf(RemoteUtils.FILESIZE), Long.valueOf(RemoteUtils.KB_IN_BYTES), Long.valueOf(Long.MAX_VALUE),
+      final JSpinner fileSizeField = new JSpinner(new SpinnerNumberModel(Long.valueOf(defaults.fileSize), Long.valueOf(RemoteUtils.KB_IN_BYTES), Long.valueOf(Long.MAX_VALUE),
             Long.valueOf(10 * RemoteUtils.FILESIZE_STEP)));
       ((JSpinner.DefaultEditor) fileSizeField.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
       ((JSpinner.DefaultEditor) fileSizeField.getEditor()).getTextField().setFormatterFactory(new FileSizeFormatFactory());
@@ -458,7 +469,7 @@ public class UserInterface extends JTabbedPane {
       c.gridy = 5;
       c.gridwidth = 3;
       c.weightx = 0.75;
-      final JSpinner blockSizeField = new JSpinner(new SpinnerNumberModel(Long.valueOf(RemoteUtils.BLOCK_SIZE), Long.valueOf(RemoteUtils.KB_IN_BYTES), Long.valueOf(256 * RemoteUtils.MB_IN_BYTES),
+      final JSpinner blockSizeField = new JSpinner(new SpinnerNumberModel(Long.valueOf(defaults.blockSize), Long.valueOf(RemoteUtils.KB_IN_BYTES), Long.valueOf(256 * RemoteUtils.MB_IN_BYTES),
             Long.valueOf(256 * RemoteUtils.KB_IN_BYTES)));
       ((JSpinner.DefaultEditor) blockSizeField.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
       ((JSpinner.DefaultEditor) blockSizeField.getEditor()).getTextField().setFormatterFactory(new FileSizeFormatFactory());
@@ -475,7 +486,7 @@ public class UserInterface extends JTabbedPane {
       c.gridy = 6;
       c.gridwidth = 3;
       c.weightx = 0.75;
-      final JSpinner timeDilationSpinner = new JSpinner(new SpinnerNumberModel(RemoteUtils.TIME_DILATION_RATIO, 0.01, 10.0, 0.1));
+      final JSpinner timeDilationSpinner = new JSpinner(new SpinnerNumberModel(defaults.timeDilation, 0.01, 10.0, 0.1));
       ((JSpinner.DefaultEditor) timeDilationSpinner.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
       panel.add(timeDilationSpinner, c);
       
@@ -499,34 +510,45 @@ public class UserInterface extends JTabbedPane {
             final long blockSize = Math.max(RemoteUtils.KB_IN_BYTES, ((Number) blockSizeField.getValue()).longValue());
             final double timeDilation = ((Number) timeDilationSpinner.getValue()).doubleValue();
             
-            RemoteUtils.DOWNLOAD_MAX = maxDownload;
-            RemoteUtils.DOWNLOAD_MIN = minDownload;
-            RemoteUtils.UPLOAD_MAX = maxUpload;
-            RemoteUtils.UPLOAD_MIN = minUpload;
+            final SwarmConfig config;
             
-            RemoteUtils.FILESIZE = fileSize;
-            RemoteUtils.BLOCK_SIZE = blockSize;
-            RemoteUtils.BLOCK_COUNT = (int) Math.ceil(((double) RemoteUtils.FILESIZE / RemoteUtils.BLOCK_SIZE));
-            
-            RemoteUtils.TIME_DILATION_RATIO = timeDilation;
+            try {
+               config = UserInterface.this.config.toBuilder().download(minDownload, maxDownload).upload(minUpload, maxUpload).fileSize(fileSize)
+                     .blockSize(blockSize).timeDilation(timeDilation).build();
+            } catch (final IllegalArgumentException iae) {
+               // a minimum above its maximum; keep the current swarm
+               return;
+            }
             
             try {
-               final Collection<NodeRef> nodes = UserInterface.this.manager.getNodes();
+               final List<NodeRef> nodes = UserInterface.this.manager.getNodes();
+               // one registry update and no per-node round trips to the manager
+               UserInterface.this.manager.deregisterNodes(nodes);
                
                for (final NodeRef node : nodes) {
                   node.dispose();
                }
                
-               UserInterface.this.seedPanel.removeAll();
-               UserInterface.this.peerPanel.removeAll();
+               // the statistics and tracker settings of the manager follow the new swarm
+               UserInterface.this.manager.reset(config);
+               
+               // the old nodes may still have events pending on the old scheduler
+               final Scheduler old = UserInterface.this.scheduler;
+               UserInterface.this.config = config;
+               UserInterface.this.scheduler = new RealTimeScheduler(config);
+               UserInterface.this.eventBus = new NodeEventBus(UserInterface.this.scheduler, config.eventInterval);
+               old.shutdown();
+               
+               if (UserInterface.this.eventLease != null) {
+                  UserInterface.this.eventLease.cancel();
+               }
+               
+               UserInterface.this.eventLease = UserInterface.this.eventBus.addListener(UserInterface.this.model.getNodeListener());
                
                UserInterface.this.seedIndex = 0;
                UserInterface.this.peerIndex = 0;
                
-               final NodeRef node = RemoteUtils.createNode(UserInterface.this.frame, UserInterface.this.seedPanel, "seed" + UserInterface.this.seedIndex++, UserInterface.this.host,
-                     UserInterface.this.port, true, RemoteUtils.getUpload(true), RemoteUtils.getDownload(true));
-               
-               node.addNodeListener(UserInterface.this.nodeListener);
+               UserInterface.this.createNode(true);
             } catch (final RemoteException re) {
                
             }
@@ -536,33 +558,6 @@ public class UserInterface extends JTabbedPane {
       return panel;
    }
    
-   private static void sortNodePanels(final JPanel panel) {
-      final Component[] components = panel.getComponents();
-      panel.removeAll();
-      
-      Arrays.sort(components, new Comparator<Component>() {
-         @Override
-         public int compare(final Component o1, final Component o2) {
-            if ((o1 instanceof NodePanel) && (o2 instanceof NodePanel)) {
-               try {
-                  // negate so it goes highest to lowest
-                  final int value = -Integer.valueOf(((NodePanel) o1).getNode().getUploadCount()).compareTo(Integer.valueOf(((NodePanel) o2).getNode().getUploadCount()));
-                  
-                  return value;
-               } catch (final RemoteException e) {
-                  return 0;
-               }
-            } else {
-               return 0;
-            }
-         }
-      });
-      
-      for (final Component c : components) {
-         panel.add(c);
-      }
-   }
-   
    public static void main(final String[] args) {
       new UserInterface(args);
    }
@@ -0,0 +1,234 @@
+package edu.rit.cs4005730.dsgroup3.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to primitive {@code double} values. Lookups, updates and removals never allocate, so the map can
+ * sit on hot paths that would otherwise box a key and a value for every call. Collisions are resolved by linear probing and removal shifts the following
+ * entries back, so no tombstones build up. Not thread-safe.
+ *
+ * Entries are visited without an iterator object:
+ *
+ * <pre>
+ * for (int slot = map.nextSlot(0); slot != -1; slot = map.nextSlot(slot + 1)) {
+ *    use(map.keyAt(slot), map.valueAt(slot));
+ * }
+ * </pre>
+ *
+ */
+public class LongDoubleHashMap {
+   private static final float LOAD_FACTOR = 0.5f;
+
+   private long[]             keys;
+   private double[]           values;
+   private boolean[]          used;
+   private int                mask;
+   private int                size        = 0;
+
+   public LongDoubleHashMap() {
+      this(16);
+   }
+
+   /**
+    * Creates a map that holds the given number of entries before it has to grow.
+    *
+    * @param expectedSize
+    *           the expected number of entries
+    */
+   public LongDoubleHashMap(final int expectedSize) {
+      int capacity = 4;
+
+      while (capacity * LOAD_FACTOR < expectedSize) {
+         capacity <<= 1;
+      }
+
+      this.allocate(capacity);
+   }
+
+   private void allocate(final int capacity) {
+      this.keys = new long[capacity];
+      this.values = new double[capacity];
+      this.used = new boolean[capacity];
+      this.mask = capacity - 1;
+   }
+
+   private int slot(final long key) {
+      // 64 bit finalizer from MurmurHash3 so keys built as (high << 32 | low) spread over the whole table
+      long hash = key;
+      hash ^= hash >>> 33;
+      hash *= 0xff51afd7ed558ccdL;
+      hash ^= hash >>> 33;
+      hash *= 0xc4ceb9fe1a85ec53L;
+      hash ^= hash >>> 33;
+
+      return (int) hash & this.mask;
+   }
+
+   /**
+    * Returns the slot holding the given key, or the empty slot where it would be inserted.
+    */
+   private int find(final long key) {
+      int slot = this.slot(key);
+
+      while (this.used[slot] && (this.keys[slot] != key)) {
+         slot = (slot + 1) & this.mask;
+      }
+
+      return slot;
+   }
+
+   public int size() {
+      return this.size;
+   }
+
+   public boolean isEmpty() {
+      return this.size == 0;
+   }
+
+   public boolean containsKey(final long key) {
+      return this.used[this.find(key)];
+   }
+
+   /**
+    * Returns the value for the given key.
+    *
+    * @param key
+    *           the key
+    * @param defaultValue
+    *           the value to return if the key is not in the map
+    * @return the value for the key or the default value
+    */
+   public double get(final long key, final double defaultValue) {
+      final int slot = this.find(key);
+      return this.used[slot] ? this.values[slot] : defaultValue;
+   }
+
+   /**
+    * Sets the value for the given key.
+    *
+    * @param key
+    *           the key
+    * @param value
+    *           the new value
+    */
+   public void put(final long key, final double value) {
+      final int slot = this.find(key);
+
+      if (this.used[slot]) {
+         this.values[slot] = value;
+      } else {
+         this.insert(slot, key, value);
+      }
+   }
+
+   /**
+    * Adds to the value for the given key, starting from 0 if the key is not in the map.
+    *
+    * @param key
+    *           the key
+    * @param delta
+    *           the amount to add
+    * @return the new value
+    */
+   public double addTo(final long key, final double delta) {
+      final int slot = this.find(key);
+
+      if (this.used[slot]) {
+         return this.values[slot] += delta;
+      }
+
+      this.insert(slot, key, delta);
+      return delta;
+   }
+
+   private void insert(final int slot, final long key, final double value) {
+      this.keys[slot] = key;
+      this.values[slot] = value;
+      this.used[slot] = true;
+
+      if (++this.size > (this.keys.length * LOAD_FACTOR)) {
+         this.rehash(this.keys.length << 1);
+      }
+   }
+
+   private void rehash(final int capacity) {
+      final long[] oldKeys = this.keys;
+      final double[] oldValues = this.values;
+      final boolean[] oldUsed = this.used;
+
+      this.allocate(capacity);
+
+      for (int i = 0; i < oldKeys.length; i++) {
+         if (oldUsed[i]) {
+            final int slot = this.find(oldKeys[i]);
+            this.keys[slot] = oldKeys[i];
+            this.values[slot] = oldValues[i];
+            this.used[slot] = true;
+         }
+      }
+   }
+
+   /**
+    * Removes the given key.
+    *
+    * @param key
+    *           the key
+    * @return true if the key was in the map
+    */
+   public boolean remove(final long key) {
+      int slot = this.find(key);
+
+      if (!this.used[slot]) {
+         return false;
+      }
+
+      // shift back every following entry of the probe sequence that would no longer be reachable past the hole
+      int next = (slot + 1) & this.mask;
+
+      while (this.used[next]) {
+         final int home = this.slot(this.keys[next]);
+
+         if (((next - home) & this.mask) >= ((next - slot) & this.mask)) {
+            this.keys[slot] = this.keys[next];
+            this.values[slot] = this.values[next];
+            slot = next;
+         }
+
+         next = (next + 1) & this.mask;
+      }
+
+      this.used[slot] = false;
+      this.size--;
+      return true;
+   }
+
+   public void clear() {
+      Arrays.fill(this.used, false);
+      this.size = 0;
+   }
+
+   /**
+    * Returns the first slot at or after the given one that holds an entry.
+    *
+    * @param from
+    *           the slot to start at
+    * @return the slot or -1 if there are no more entries
+    */
+   public int nextSlot(final int from) {
+      for (int slot = from; slot < this.used.length; slot++) {
+         if (this.used[slot]) {
+            return slot;
+         }
+      }
+
+      return -1;
+   }
+
+   public long keyAt(final int slot) {
+      return this.keys[slot];
+   }
+
+   public double valueAt(final int slot) {
+      return this.values[slot];
+   }
+}
@@ -4,17 +4,16 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.rmi.RemoteException;
 import java.text.ParseException;
-import java.util.Random;
-
-import javax.swing.JFrame;
-import javax.swing.JPanel;
 
 import edu.rit.cs4005730.dsgroup3.Node;
+import edu.rit.cs4005730.dsgroup3.NodeEventBus;
+import edu.rit.cs4005730.dsgroup3.SwarmConfig;
+import edu.rit.cs4005730.dsgroup3.network.Link;
+import edu.rit.cs4005730.dsgroup3.sim.Scheduler;
+import edu.rit.cs4005730.dsgroup3.transport.Transport;
 import edu.rit.cs4005730.dsgroup3.ui.FileSizeFormat;
-import edu.rit.cs4005730.dsgroup3.ui.NodePanel;
 import edu.rit.cs4005730.dsgroup3.ui.TransferSpeedFormat;
 import edu.rit.ds.registry.NotBoundException;
-import edu.rit.numeric.prob.UniformDoublePrng;
 
 public class RemoteUtils {
 
@@ -23,22 +22,14 @@ public class RemoteUtils {
    public static final long                 MINIMUM_SPEED_BPS          = KB_IN_BYTES;
    public static final long                 MAXIMUM_SPEED_BPS          = 1024 * MB_IN_BYTES;
    public static final String               NODE_MANAGER_NAME          = "nodeManager";
+   // system property selecting the transport used by the UserInterface: "rmi" (default) or "local"
+   public static final String               TRANSPORT_PROPERTY         = "dsgroup3.transport";
    public static final long                 MILLISECOND_IN_NANOSECONDS = 1000000;
    public static final long                 SECONDS_IN_MILLISECONDS    = 1000;
    public static final int                  SEED_SPINNER_DEFAULT       = 1;
    public static final int                  PEER_SPINNER_DEFAULT       = 8;
-
-   public static long                       UPLOAD_MAX                 = 1 * MB_IN_BYTES;
-   public static long                       UPLOAD_MIN                 = 256 * KB_IN_BYTES;
-   public static long                       DOWNLOAD_MAX               = 15 * MB_IN_BYTES;
-   public static long                       DOWNLOAD_MIN               = 5 * MB_IN_BYTES;
-   public static long                       FILESIZE                   = 100 * MB_IN_BYTES;
    public static final long                 FILESIZE_STEP              = 1 * MB_IN_BYTES;
-   public static long                       BLOCK_SIZE                 = 256 * KB_IN_BYTES;
-   public static int                        BLOCK_COUNT                = (int) Math.ceil(((double) FILESIZE / BLOCK_SIZE));
-   public static double                     TIME_DILATION_RATIO        = 0.1;
 
-   private static final UniformDoublePrng   RANDOM                     = new UniformDoublePrng(new Random(), 0.0, 1.0);
    private static final TransferSpeedFormat speedFormatter             = new TransferSpeedFormat();
    private static final FileSizeFormat      sizeFormatter              = new FileSizeFormat();
 
@@ -46,6 +37,10 @@ public class RemoteUtils {
       // only static helper methods
    }
 
+   /**
+    * Creates an instance of the given class from the given arguments on a new thread. The thread ends once the constructor returns; the exported object keeps
+    * itself alive.
+    */
    public static void startProcess(final Class<?> clazz, final String[] args) {
       new Thread() {
          @Override
@@ -66,12 +61,6 @@ public class RemoteUtils {
             } catch (final InvocationTargetException e) {
                e.printStackTrace();
             }
-
-            try {
-               Thread.currentThread().join();
-            } catch (final InterruptedException e) {
-               e.printStackTrace();
-            }
          }
       }.start();
    }
@@ -84,57 +73,28 @@ public class RemoteUtils {
       }
    }
 
-   public static Node createNode(final JFrame frame, final JPanel panel, final String name, final String host, final int port, final boolean isSeed) {
-      return createNode(frame, panel, name, host, port, isSeed, RemoteUtils.getUpload(false), RemoteUtils.getDownload(false));
-   }
-
-   public static Node createNode(final JFrame frame, final JPanel panel, final String name, final String host, final int port, final boolean isSeed, final double upload, final double download) {
+   /**
+    * Creates a node of the given swarm with the given link and starts its download. The node shows up in a {@link edu.rit.cs4005730.dsgroup3.ui.SwarmModel} once it has
+    * registered with the node manager.
+    * 
+    * @return the node, or null if it could not reach the node manager
+    */
+   public static Node createNode(final String name, final SwarmConfig config, final Transport transport, final Scheduler scheduler,
+         final NodeEventBus eventBus, final boolean isSeed, final Link link) {
       Node node = null;
 
       try {
-         node = new Node(name, upload, download, RemoteUtils.FILESIZE, RemoteUtils.BLOCK_SIZE, RemoteUtils.BLOCK_COUNT, isSeed, host, port, NODE_MANAGER_NAME);
+         node = new Node(name, link.upload, link.download, link.latency, isSeed, config, transport, scheduler, eventBus);
+         node.startProcess();
       } catch (final RemoteException e) {
          e.printStackTrace();
       } catch (final NotBoundException e) {
          e.printStackTrace();
-      } catch (final InterruptedException e) {
-         e.printStackTrace();
       }
 
-      final Node n = node;
-      final Thread current = Thread.currentThread();
-
-      new Thread() {
-         @Override
-         public void run() {
-            try {
-               if (n != null) {
-                  panel.add(new NodePanel(n));
-                  panel.invalidate();
-                  frame.repaint();
-
-                  n.startProcess();
-               }
-               current.join();
-            } catch (final RemoteException e1) {
-               e1.printStackTrace();
-            } catch (final InterruptedException e1) {
-               e1.printStackTrace();
-            }
-         }
-      }.start();
-
       return node;
    }
 
-   public static double getUpload(final boolean getMax) {
-      return getMax ? UPLOAD_MAX : ((UPLOAD_MAX - UPLOAD_MIN) * RANDOM.next()) + RemoteUtils.UPLOAD_MIN;
-   }
-
-   public static double getDownload(final boolean getMax) {
-      return getMax ? DOWNLOAD_MAX : ((DOWNLOAD_MAX - DOWNLOAD_MIN) * RANDOM.next()) + RemoteUtils.DOWNLOAD_MIN;
-   }
-
    public static double getStep(final double duration) {
       if (duration < 10) {
          return duration;
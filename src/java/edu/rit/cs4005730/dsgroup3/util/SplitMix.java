@@ -0,0 +1,85 @@
+package edu.rit.cs4005730.dsgroup3.util;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Derives independent random seeds from one master seed with the SplitMix64 mixing function, the way {@code SplittableRandom} splits its streams. Every
+ * component of a swarm asks for the seed of its own named stream instead of sharing one generator, so the numbers a node draws depend only on the master seed
+ * and its name, not on how the threads of a run happened to interleave.
+ *
+ */
+public final class SplitMix {
+   // odd constant close to 2^64 / phi; consecutive multiples of it are spread over the whole range
+   private static final long       GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+   // hands out master seeds for swarms that were not given one
+   private static final AtomicLong SEEDER       = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+   private SplitMix() {
+      // only static helper methods
+   }
+
+   /**
+    * Returns a master seed that differs from every seed returned before in this JVM and, most likely, in any other.
+    *
+    * @return a new seed
+    */
+   public static long newSeed() {
+      return mix64(SEEDER.getAndAdd(GOLDEN_GAMMA));
+   }
+
+   /**
+    * Returns the seed of a numbered stream of the given master seed.
+    *
+    * @param seed
+    *           the master seed
+    * @param stream
+    *           the number of the stream
+    * @return the seed of the stream
+    */
+   public static long derive(final long seed, final long stream) {
+      return mix64(seed + (GOLDEN_GAMMA * (stream + 1)));
+   }
+
+   /**
+    * Returns the seed of a named stream of the given master seed, such as the stream of a node by its name.
+    *
+    * @param seed
+    *           the master seed
+    * @param name
+    *           the name of the stream
+    * @return the seed of the stream
+    */
+   public static long derive(final long seed, final String name) {
+      long hash = mix64(seed ^ GOLDEN_GAMMA);
+
+      for (int i = 0; i < name.length(); i++) {
+         hash = mix64(hash + (GOLDEN_GAMMA * (name.charAt(i) + 1)));
+      }
+
+      return mix64(hash + name.length());
+   }
+
+   /**
+    * Returns a {@link Random} for a named stream of the given master seed.
+    *
+    * @param seed
+    *           the master seed
+    * @param name
+    *           the name of the stream
+    * @return a generator that always produces the same numbers for the same seed and name
+    */
+   public static Random newRandom(final long seed, final String name) {
+      return new Random(derive(seed, name));
+   }
+
+   /**
+    * The SplitMix64 finalizer: a bijection on 64 bit values in which every input bit affects every output bit.
+    */
+   public static long mix64(final long value) {
+      long z = value;
+      z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+      z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+      return z ^ (z >>> 31);
+   }
+}